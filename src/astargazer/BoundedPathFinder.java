@@ -0,0 +1,170 @@
+package astargazer;
+
+import astargazer.map.TileMap;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborBuffer;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * Base for searches that find the same shortest paths as the PathFinder while keeping their memory bounded, for queries
+ * on maps too large to hold an open and closed set entry for every tile reached. The heuristic must never overestimate
+ * for the paths to be the shortest. A search gives up once it has expanded the maximum number of tiles, so a query
+ * without a path on a big map ends in bounded time as well
+ * 
+ * @author Matt Yanos
+ */
+public abstract class BoundedPathFinder
+{
+    /**
+     * The maximum number of tiles a search expands before giving up, unless set otherwise
+     */
+    public static final long DEFAULT_MAX_EXPANSIONS = 10000000;
+
+    /**
+     * The map being searched
+     */
+    protected final TileMap map;
+
+    /**
+     * The means for determining distances
+     */
+    protected final HeuristicScheme heuristic;
+
+    /**
+     * The means for determining valid neighbors
+     */
+    protected final NeighborSelector neighborSelector;
+
+    /**
+     * Reusable buffer the neighbor selector writes the neighbors of the expanded tile into
+     */
+    protected final NeighborBuffer neighbors = new NeighborBuffer();
+
+    /**
+     * The maximum number of tiles a search expands before giving up
+     */
+    protected long maxExpansions = DEFAULT_MAX_EXPANSIONS;
+
+    /**
+     * The status of the last search
+     */
+    protected StatusEnum status;
+
+    /**
+     * The cost of the last path found
+     */
+    protected float cost;
+
+    /**
+     * The number of tiles expanded by the last search, counting a tile again each time it is expanded again
+     */
+    protected long expanded;
+
+    /**
+     * The number of cost thresholds tried by the last search, for the searches that deepen one
+     */
+    protected int iterations;
+
+    /**
+     * Construct a search on the specified map
+     * 
+     * @param map
+     * @param heuristic
+     *            the means for determining distances
+     * @param neighborSelector
+     *            the means for determining valid neighbors
+     */
+    protected BoundedPathFinder(TileMap map, HeuristicScheme heuristic, NeighborSelector neighborSelector)
+    {
+        this.map = map;
+        this.heuristic = heuristic;
+        this.neighborSelector = neighborSelector;
+    }
+
+    /**
+     * Set the maximum number of tiles a search expands before giving up
+     * 
+     * @param maxExpansions
+     */
+    public void setMaxExpansions(long maxExpansions)
+    {
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Find the cheapest path from the start to the goal. The status is COMPLETED_FOUND if a path was found, or
+     * COMPLETED_NOT_FOUND if there is no path or the search gave up
+     * 
+     * @param start
+     *            see TileMap.getIndex()
+     * @param goal
+     *            see TileMap.getIndex()
+     * @return the cells of the path from the start to the goal, or null if none was found
+     */
+    public abstract int[] findPath(int start, int goal);
+
+    /**
+     * Estimate the cost from the specified cell to the goal
+     * 
+     * @param cell
+     * @param goalRow
+     * @param goalCol
+     * @return estimate
+     */
+    protected float estimate(int cell, int goalRow, int goalCol)
+    {
+        return heuristic.distance(map.getRow(cell), map.getCol(cell), goalRow, goalCol);
+    }
+
+    /**
+     * Get the status of the last search
+     * 
+     * @return status
+     */
+    public StatusEnum getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Get the cost of the last path found
+     * 
+     * @return cost
+     */
+    public float getCost()
+    {
+        return cost;
+    }
+
+    /**
+     * Get the number of tiles expanded by the last search
+     * 
+     * @return expanded
+     */
+    public long getExpanded()
+    {
+        return expanded;
+    }
+
+    /**
+     * Get the number of cost thresholds tried by the last search
+     * 
+     * @return iterations
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Get the name of the search
+     * 
+     * @return label
+     */
+    public abstract String getLabel();
+
+    public String toString()
+    {
+        return getLabel();
+    }
+}
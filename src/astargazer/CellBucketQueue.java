@@ -0,0 +1,214 @@
+package astargazer;
+
+import java.util.Arrays;
+
+/**
+ * A bucket queue of map cell indexes (Dial's algorithm) for costs that are whole numbers. Each integer cost has its own
+ * bucket, so a push is O(1), and because the search algorithms pop costs that never decrease, the scan for the lowest
+ * non-empty bucket only ever moves forward, making pops O(1) amortized. Cells with equal costs are popped last in,
+ * first out, whatever their tie break. Fractional costs are rounded down to their bucket.
+ * 
+ * @author Matt Yanos
+ */
+public class CellBucketQueue implements CellQueue
+{
+    /**
+     * The first entry of each bucket, or -1 if the bucket is empty, indexed by cost minus the base cost
+     */
+    private int[] heads;
+
+    /**
+     * The cost of the first bucket
+     */
+    private int baseCost;
+
+    /**
+     * The index of the lowest bucket that may be non-empty
+     */
+    private int lowest;
+
+    /**
+     * The cell of each entry
+     */
+    private int[] cells;
+
+    /**
+     * The next entry in the same bucket (or the next free entry) after each entry, or -1
+     */
+    private int[] links;
+
+    /**
+     * The first entry that is free to be reused, or -1
+     */
+    private int freeEntry;
+
+    /**
+     * The number of entries that have ever been used
+     */
+    private int entryCount;
+
+    /**
+     * The number of cells in the queue
+     */
+    private int size;
+
+    /**
+     * Constructs an empty queue
+     */
+    public CellBucketQueue()
+    {
+        this.heads = new int[64];
+        this.cells = new int[64];
+        this.links = new int[64];
+        clear();
+    }
+
+    @Override
+    public void push(int cell, float cost, double tieBreak)
+    {
+        push(cell, cost);
+    }
+
+    @Override
+    public void push(int cell, float cost)
+    {
+        int key = (int)Math.floor(cost);
+
+        if (size == 0)
+        {
+            // Start the buckets at the first cost pushed
+            baseCost = key;
+            lowest = 0;
+        }
+
+        int bucket = key - baseCost;
+        if (bucket < 0)
+        {
+            // Costs are not expected to decrease, but shift the buckets up to make room if they do
+            shiftBuckets(-bucket);
+            bucket = 0;
+        }
+        else if (bucket >= heads.length)
+        {
+            heads = grow(heads, bucket + 1, -1);
+        }
+
+        int entry;
+        if (freeEntry >= 0)
+        {
+            entry = freeEntry;
+            freeEntry = links[entry];
+        }
+        else
+        {
+            if (entryCount == cells.length)
+            {
+                cells = grow(cells, entryCount + 1, 0);
+                links = grow(links, entryCount + 1, 0);
+            }
+            entry = entryCount++;
+        }
+
+        cells[entry] = cell;
+        links[entry] = heads[bucket];
+        heads[bucket] = entry;
+
+        lowest = Math.min(lowest, bucket);
+        size++;
+    }
+
+    @Override
+    public boolean decreaseCost(int cell, float cost, double tieBreak)
+    {
+        // The buckets are singly linked, so an entry cannot be moved without searching its bucket
+        return false;
+    }
+
+    @Override
+    public int pop()
+    {
+        if (size == 0)
+            return -1;
+
+        findLowest();
+
+        int entry = heads[lowest];
+        heads[lowest] = links[entry];
+        links[entry] = freeEntry;
+        freeEntry = entry;
+        size--;
+
+        return cells[entry];
+    }
+
+    @Override
+    public float peekCost()
+    {
+        findLowest();
+        return baseCost + lowest;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(heads, -1);
+        baseCost = 0;
+        lowest = 0;
+        freeEntry = -1;
+        entryCount = 0;
+        size = 0;
+    }
+
+    /**
+     * Advance the lowest bucket index to the first non-empty bucket, which must exist
+     */
+    private void findLowest()
+    {
+        while (heads[lowest] < 0)
+            lowest++;
+    }
+
+    /**
+     * Move every bucket up by the specified number of buckets, lowering the base cost to match
+     * 
+     * @param shift
+     */
+    private void shiftBuckets(int shift)
+    {
+        int[] shifted = new int[heads.length + shift];
+        Arrays.fill(shifted, 0, shift, -1);
+        System.arraycopy(heads, 0, shifted, shift, heads.length);
+        heads = shifted;
+        baseCost -= shift;
+        lowest += shift;
+    }
+
+    /**
+     * Copy the array into a new array of at least the specified length, filling the new elements with the specified
+     * value
+     * 
+     * @param array
+     * @param minLength
+     * @param fill
+     * @return grown array
+     */
+    private static int[] grow(int[] array, int minLength, int fill)
+    {
+        int[] grown = new int[Math.max(minLength, array.length * 2)];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        Arrays.fill(grown, array.length, grown.length, fill);
+        return grown;
+    }
+}
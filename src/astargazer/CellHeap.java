@@ -0,0 +1,281 @@
+package astargazer;
+
+import java.util.Arrays;
+
+/**
+ * A minimum heap of map cell indexes ordered by an associated cost, and then by a tie break among cells of the same
+ * cost, stored in primitive arrays so that pushing and popping cells does not allocate any objects once the heap has
+ * grown to its working size. A heap constructed for a number of cells also keeps the position of each cell, so the cost
+ * of a cell can be lowered in place instead of pushing it again
+ * 
+ * @author Matt Yanos
+ */
+public class CellHeap implements CellQueue
+{
+    /**
+     * The cell indexes in heap order
+     */
+    private int[] cells;
+
+    /**
+     * The cost of each cell, parallel to the cells array
+     */
+    private float[] costs;
+
+    /**
+     * The tie break of each cell, parallel to the cells array
+     */
+    private double[] tieBreaks;
+
+    /**
+     * The position of each cell in the heap or -1, indexed by cell, or null if positions are not kept
+     */
+    private final int[] positions;
+
+    /**
+     * The number of cells in the heap
+     */
+    private int size;
+
+    /**
+     * Constructs an empty heap
+     */
+    public CellHeap()
+    {
+        this(64);
+    }
+
+    /**
+     * Constructs an empty heap with the specified initial capacity
+     * 
+     * @param capacity
+     */
+    public CellHeap(int capacity)
+    {
+        this(capacity, 0);
+    }
+
+    /**
+     * Constructs an empty heap with the specified initial capacity that keeps the position of every cell below the
+     * specified number, so their costs can be lowered with decreaseCost(). Each of those cells may only be in the heap
+     * once at a time
+     * 
+     * @param capacity
+     * @param cellCount
+     *            the number of cells to keep positions for, or 0 to not keep positions
+     */
+    public CellHeap(int capacity, int cellCount)
+    {
+        this.cells = new int[Math.max(1, capacity)];
+        this.costs = new float[cells.length];
+        this.tieBreaks = new double[cells.length];
+        this.positions = cellCount > 0 ? new int[cellCount] : null;
+        if (positions != null)
+        {
+            Arrays.fill(positions, -1);
+        }
+    }
+
+    /**
+     * Get the number of cells this heap keeps positions for
+     * 
+     * @return cell count, or 0 if positions are not kept
+     */
+    public int getCellCount()
+    {
+        return positions == null ? 0 : positions.length;
+    }
+
+    /**
+     * The size of the heap
+     * 
+     * @return The number of cells in the heap
+     */
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Whether the heap contains any cells
+     * 
+     * @return Whether the heap contains any cells
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Add a cell to the heap
+     * 
+     * @param cell
+     * @param cost
+     */
+    @Override
+    public void push(int cell, float cost)
+    {
+        push(cell, cost, 0);
+    }
+
+    /**
+     * Add a cell to the heap, ahead of the cells of the same cost with a larger tie break
+     * 
+     * @param cell
+     * @param cost
+     * @param tieBreak
+     */
+    @Override
+    public void push(int cell, float cost, double tieBreak)
+    {
+        if (size == cells.length)
+        {
+            int[] growCells = new int[cells.length * 2];
+            float[] growCosts = new float[growCells.length];
+            double[] growTieBreaks = new double[growCells.length];
+            System.arraycopy(cells, 0, growCells, 0, size);
+            System.arraycopy(costs, 0, growCosts, 0, size);
+            System.arraycopy(tieBreaks, 0, growTieBreaks, 0, size);
+            cells = growCells;
+            costs = growCosts;
+            tieBreaks = growTieBreaks;
+        }
+
+        siftUp(size++, cell, cost, tieBreak);
+    }
+
+    @Override
+    public boolean decreaseCost(int cell, float cost, double tieBreak)
+    {
+        if (positions == null || cell >= positions.length || positions[cell] < 0)
+            return false;
+
+        siftUp(positions[cell], cell, cost, tieBreak);
+        return true;
+    }
+
+    /**
+     * Percolate a cell up from the specified position until its parent is no greater, moving each greater parent down
+     * 
+     * @param i
+     *            the position of the cell, which is a hole to be filled
+     * @param cell
+     * @param cost
+     * @param tieBreak
+     */
+    private void siftUp(int i, int cell, float cost, double tieBreak)
+    {
+        while (i > 0)
+        {
+            int parent = (i - 1) / 2;
+            if (costs[parent] < cost || (costs[parent] == cost && tieBreaks[parent] <= tieBreak))
+                break;
+            move(parent, i);
+            i = parent;
+        }
+        set(i, cell, cost, tieBreak);
+    }
+
+    /**
+     * Move the cell at one position of the heap to another
+     */
+    private void move(int from, int to)
+    {
+        set(to, cells[from], costs[from], tieBreaks[from]);
+    }
+
+    /**
+     * Put a cell at the specified position of the heap
+     */
+    private void set(int i, int cell, float cost, double tieBreak)
+    {
+        cells[i] = cell;
+        costs[i] = cost;
+        tieBreaks[i] = tieBreak;
+        if (positions != null && cell < positions.length)
+        {
+            positions[cell] = i;
+        }
+    }
+
+    /**
+     * Get the cost of the minimum cell without removing it
+     * 
+     * @return cost
+     */
+    @Override
+    public float peekCost()
+    {
+        return costs[0];
+    }
+
+    /**
+     * Removes and returns the minimum cost cell of the heap or -1 if the heap is empty
+     * 
+     * @return cell
+     */
+    @Override
+    public int pop()
+    {
+        if (size == 0)
+            return -1;
+
+        int value = cells[0];
+        size--;
+        if (positions != null && value < positions.length)
+        {
+            positions[value] = -1;
+        }
+        if (size == 0)
+            return value;
+
+        // Move the last cell to the root and percolate it down
+        int cell = cells[size];
+        float cost = costs[size];
+        double tieBreak = tieBreaks[size];
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < size)
+        {
+            if (child + 1 < size && (costs[child + 1] < costs[child] || (costs[child + 1] == costs[child] && tieBreaks[child + 1] < tieBreaks[child])))
+                child++;
+            if (cost < costs[child] || (cost == costs[child] && tieBreak <= tieBreaks[child]))
+                break;
+            move(child, i);
+            i = child;
+        }
+        set(i, cell, cost, tieBreak);
+
+        return value;
+    }
+
+    /**
+     * Get the cell at position i in the underlying array, for iterating over the heap in no particular order
+     * 
+     * @param i
+     * @return cell
+     */
+    public int get(int i)
+    {
+        return cells[i];
+    }
+
+    /**
+     * Empty the heap
+     */
+    @Override
+    public void clear()
+    {
+        if (positions != null)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (cells[i] < positions.length)
+                    positions[cells[i]] = -1;
+            }
+        }
+        size = 0;
+    }
+}
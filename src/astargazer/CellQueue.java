@@ -0,0 +1,73 @@
+package astargazer;
+
+/**
+ * A priority queue of map cell indexes that returns the cell with the minimum cost first, used as the open set of the
+ * search algorithms
+ * 
+ * @author Matt Yanos
+ */
+public interface CellQueue
+{
+    /**
+     * Add a cell to the queue
+     * 
+     * @param cell
+     * @param cost
+     */
+    public void push(int cell, float cost);
+
+    /**
+     * Add a cell to the queue, ahead of the cells of the same cost with a larger tie break where the queue supports it
+     * 
+     * @param cell
+     * @param cost
+     * @param tieBreak
+     *            see TieBreakEnum.getTieBreak()
+     */
+    public void push(int cell, float cost, double tieBreak);
+
+    /**
+     * Lower the cost of a cell already in the queue in place, if the queue can find it
+     * 
+     * @param cell
+     * @param cost
+     *            no more than its current cost
+     * @param tieBreak
+     * @return whether the cell was found and updated, otherwise the caller pushes the cell again and skips the entry
+     *         with the old cost when it is popped
+     */
+    public boolean decreaseCost(int cell, float cost, double tieBreak);
+
+    /**
+     * Removes and returns the minimum cost cell of the queue or -1 if the queue is empty
+     * 
+     * @return cell
+     */
+    public int pop();
+
+    /**
+     * Get the cost of the minimum cell without removing it
+     * 
+     * @return cost
+     */
+    public float peekCost();
+
+    /**
+     * The size of the queue
+     * 
+     * @return The number of cells in the queue
+     */
+    public int size();
+
+    /**
+     * Whether the queue contains any cells
+     * 
+     * @return Whether the queue contains any cells
+     */
+    public boolean isEmpty();
+
+    /**
+     * Empty the queue
+     */
+    public void clear();
+}
@@ -0,0 +1,142 @@
+package astargazer;
+
+import java.util.Arrays;
+
+/**
+ * Assigns each map cell index that is added a compact slot number, counting up from 0 in the order the cells are added.
+ * The path finding algorithm stores its per cell values by slot on maps too large to allocate an array entry for every
+ * tile, so its memory grows with the number of cells it reaches instead of the size of the map. The cells are kept in an
+ * open addressing hash table of primitive ints
+ * 
+ * @author Matt Yanos
+ */
+public class CellSlotMap
+{
+    /**
+     * The cell in each position of the hash table, or -1 if the position is empty
+     */
+    private int[] keys;
+
+    /**
+     * The slot of the cell in each position of the hash table
+     */
+    private int[] slots;
+
+    /**
+     * The number of cells that have been added
+     */
+    private int size;
+
+    /**
+     * Constructs an empty map
+     */
+    public CellSlotMap()
+    {
+        this.keys = new int[64];
+        this.slots = new int[keys.length];
+        Arrays.fill(keys, -1);
+    }
+
+    /**
+     * Get the slot of the specified cell, or -1 if the cell has not been added
+     * 
+     * @param cell
+     * @return slot
+     */
+    public int get(int cell)
+    {
+        int mask = keys.length - 1;
+        for (int i = hash(cell) & mask; keys[i] >= 0; i = (i + 1) & mask)
+        {
+            if (keys[i] == cell)
+                return slots[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Get the slot of the specified cell, adding the cell with the next slot if it has not been added
+     * 
+     * @param cell
+     * @return slot
+     */
+    public int add(int cell)
+    {
+        int mask = keys.length - 1;
+        int i = hash(cell) & mask;
+        for (; keys[i] >= 0; i = (i + 1) & mask)
+        {
+            if (keys[i] == cell)
+                return slots[i];
+        }
+
+        keys[i] = cell;
+        slots[i] = size;
+        size++;
+
+        // Keep the table at most half full so the probe sequences stay short
+        if (size * 2 > keys.length)
+        {
+            rehash(keys.length * 2);
+        }
+        return size - 1;
+    }
+
+    /**
+     * The number of cells that have been added, which is also the next slot to be assigned
+     * 
+     * @return size
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Remove every cell
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, -1);
+        size = 0;
+    }
+
+    /**
+     * Move every cell into a hash table of the specified capacity
+     * 
+     * @param capacity
+     *            a power of two
+     */
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new int[capacity];
+        slots = new int[capacity];
+        Arrays.fill(keys, -1);
+
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldKeys[j] < 0)
+                continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (keys[i] >= 0)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            slots[i] = oldSlots[j];
+        }
+    }
+
+    /**
+     * Scramble the bits of a cell index so that neighboring cells spread across the hash table
+     * 
+     * @param cell
+     * @return hash
+     */
+    private static int hash(int cell)
+    {
+        int h = cell * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,578 @@
+package astargazer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import astargazer.map.TileMap;
+import astargazer.map.WeightedPoint;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * Plans paths for a batch of agents sharing one map with the least sum of costs and no collisions, using conflict-based
+ * search (CBS). Every node of a high-level constraint tree holds a path for each agent that obeys the constraints on
+ * the path from the root, found by a ConstrainedPathFinder. The node with the least sum of costs is checked for the
+ * first tick two agents collide, either on one tile or by swapping tiles, and is split into two children that each
+ * forbid one of the two agents that move, replanning only that agent. The first node without a conflict is optimal.
+ * 
+ * Expanding a node is dominated by its two low level searches, so the cheapest nodes are expanded in batches of up to
+ * the parallelism of a ForkJoinPool, each with its own ConstrainedPathFinder. A node is only accepted as the solution
+ * when it is the cheapest node left, so the batches do not change which solution is found
+ * 
+ * @author Matt Yanos
+ */
+public class ConflictBasedSearch
+{
+    /**
+     * The default number of high-level nodes expanded before the search gives up
+     */
+    public static final int DEFAULT_MAX_NODES = 50000;
+
+    /**
+     * The map the agents move on
+     */
+    private final TileMap map;
+
+    /**
+     * The means for determining step costs
+     */
+    private final HeuristicScheme heuristic;
+
+    /**
+     * The means for determining valid neighbors
+     */
+    private final NeighborSelector neighborSelector;
+
+    /**
+     * The pool expanding the high-level nodes
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The low level search and conflict table of each thread
+     */
+    private final ThreadLocal<Worker> worker = new ThreadLocal<Worker>()
+    {
+        @Override
+        protected Worker initialValue()
+        {
+            return new Worker(new ConstrainedPathFinder(map, heuristic, neighborSelector));
+        }
+    };
+
+    /**
+     * The flow field toward each goal cell, kept across calls to solve() so agents sharing a goal share a field
+     */
+    private final Map<Integer, FlowField> flowFields = new HashMap<Integer, FlowField>();
+
+    /**
+     * The number of high-level nodes expanded before the search gives up
+     */
+    private int maxNodes = DEFAULT_MAX_NODES;
+
+    // The start, goal, and flow field toward the goal of each agent of the current search
+    private int[] startCells;
+    private int[] goalCells;
+    private FlowField[] fields;
+
+    private StatusEnum status;
+
+    private boolean nodeLimitReached;
+
+    private float sumOfCosts;
+
+    private int expandedNodes;
+
+    private int generatedNodes;
+
+    /**
+     * Construct a ConflictBasedSearch for agents on the specified map
+     * 
+     * @param map
+     * @param heuristic
+     *            the means for determining step costs
+     * @param neighborSelector
+     *            the means for determining valid neighbors
+     * @param pool
+     *            the pool to expand the high-level nodes on
+     */
+    public ConflictBasedSearch(TileMap map, HeuristicScheme heuristic, NeighborSelector neighborSelector, ForkJoinPool pool)
+    {
+        this.map = map;
+        this.heuristic = heuristic;
+        this.neighborSelector = neighborSelector;
+        this.pool = pool;
+    }
+
+    /**
+     * Set the number of high-level nodes expanded before the search gives up
+     * 
+     * @param maxNodes
+     */
+    public void setMaxNodes(int maxNodes)
+    {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Plan paths for every agent from its start to its goal. The path of each agent holds one point per tick from its
+     * start, including the ticks it waits, and ends at the tick it reaches its goal for good, after which it stays
+     * there. The status is COMPLETED_FOUND if collision free paths were found, or COMPLETED_NOT_FOUND if a goal cannot
+     * be reached or the node limit was reached, in which case each path holds only its start. The two can be told apart
+     * with isNodeLimitReached()
+     * 
+     * @param starts
+     *            the start of each agent
+     * @param goals
+     *            the goal of each agent, in the same order
+     * @return the path of each agent, in the same order
+     */
+    public List<List<WeightedPoint>> solve(List<WeightedPoint> starts, List<WeightedPoint> goals)
+    {
+        if (starts.size() != goals.size())
+            throw new IllegalArgumentException(starts.size() + " starts for " + goals.size() + " goals");
+
+        final int agents = starts.size();
+        startCells = new int[agents];
+        goalCells = new int[agents];
+        fields = new FlowField[agents];
+        for (int a = 0; a < agents; a++)
+        {
+            startCells[a] = map.getIndex(starts.get(a).getRow(), starts.get(a).getCol());
+            goalCells[a] = map.getIndex(goals.get(a).getRow(), goals.get(a).getCol());
+            fields[a] = getFlowField(goals.get(a).getRow(), goals.get(a).getCol());
+        }
+
+        status = StatusEnum.RUNNING;
+        nodeLimitReached = false;
+        sumOfCosts = 0.0f;
+        expandedNodes = 0;
+        generatedNodes = 1;
+
+        Node root = new Node(null, -1, -1, -1, -1);
+        root.paths = new int[agents][];
+        root.costs = new float[agents];
+        ConstrainedPathFinder finder = worker.get().finder;
+        finder.clearConstraints();
+        for (int a = 0; a < agents && root.paths != null; a++)
+        {
+            root.paths[a] = finder.findPath(startCells[a], goalCells[a], fields[a]);
+            if (root.paths[a] == null)
+            {
+                root.paths = null;
+                break;
+            }
+            root.costs[a] = finder.getCost();
+            root.cost += root.costs[a];
+        }
+
+        Node solution = null;
+        if (root.paths != null)
+        {
+            findConflict(root, worker.get().occupied);
+            solution = search(root);
+        }
+
+        List<List<WeightedPoint>> paths = new ArrayList<List<WeightedPoint>>(agents);
+        for (int a = 0; a < agents; a++)
+        {
+            List<WeightedPoint> path = new ArrayList<WeightedPoint>();
+            if (solution == null)
+            {
+                path.add(new WeightedPoint(starts.get(a).getRow(), starts.get(a).getCol()));
+            }
+            else
+            {
+                for (int cell : solution.paths[a])
+                {
+                    path.add(new WeightedPoint(map.getRow(cell), map.getCol(cell)));
+                }
+            }
+            paths.add(path);
+        }
+
+        status = solution == null ? StatusEnum.COMPLETED_NOT_FOUND : StatusEnum.COMPLETED_FOUND;
+        sumOfCosts = solution == null ? 0.0f : solution.cost;
+        return paths;
+    }
+
+    /**
+     * Expand the constraint tree from the specified root until the cheapest node has no conflict
+     * 
+     * @param root
+     * @return the solution, or null if the node limit was reached first
+     */
+    private Node search(Node root)
+    {
+        Heap<Node> openSet = new Heap<Node>(false);
+        openSet.push(root);
+
+        int nextId = 1;
+        List<Node> batch = new ArrayList<Node>();
+        while (!openSet.isEmpty() && expandedNodes < maxNodes)
+        {
+            // Take the cheapest nodes with conflicts, stopping at a node without one, which is the solution only once it is cheapest
+            batch.clear();
+            while (batch.size() < pool.getParallelism() && !openSet.isEmpty())
+            {
+                if (!openSet.peek().hasConflict())
+                {
+                    if (batch.isEmpty())
+                        return openSet.peek();
+                    break;
+                }
+                batch.add(openSet.pop());
+            }
+
+            pool.invoke(new ExpandTask(this, batch, 0, batch.size()));
+            expandedNodes += batch.size();
+
+            // Children are numbered in batch order so that ties are broken the same way on any number of threads
+            for (Node node : batch)
+            {
+                for (Node child : node.children)
+                {
+                    if (child != null)
+                    {
+                        child.id = nextId++;
+                        openSet.push(child);
+                        generatedNodes++;
+                    }
+                }
+                node.children = null;
+            }
+        }
+        nodeLimitReached = !openSet.isEmpty();
+        return null;
+    }
+
+    /**
+     * Split the specified node on its conflict, replanning the constrained agent of each child on this thread
+     * 
+     * @param node
+     */
+    private void expand(Node node)
+    {
+        Worker w = worker.get();
+        node.children = new Node[2];
+        for (int side = 0; side < 2; side++)
+        {
+            Node child;
+            if (node.conflictFrom < 0)
+            {
+                // Neither agent may be on the tile at that tick
+                child = new Node(node, side == 0 ? node.conflictA : node.conflictB, -1, node.conflictTo, node.conflictTick);
+            }
+            else if (side == 0)
+            {
+                child = new Node(node, node.conflictA, node.conflictFrom, node.conflictTo, node.conflictTick);
+            }
+            else
+            {
+                // The other agent is making the opposite step
+                child = new Node(node, node.conflictB, node.conflictTo, node.conflictFrom, node.conflictTick);
+            }
+
+            int agent = child.agent;
+            w.finder.clearConstraints();
+            for (Node n = child; n.parent != null; n = n.parent)
+            {
+                if (n.agent != agent)
+                    continue;
+                if (n.constraintFrom < 0)
+                    w.finder.addVertexConstraint(n.constraintCell, n.constraintTick);
+                else
+                    w.finder.addEdgeConstraint(n.constraintFrom, n.constraintCell, n.constraintTick);
+            }
+
+            int[] path = w.finder.findPath(startCells[agent], goalCells[agent], fields[agent]);
+            if (path == null)
+                continue;
+
+            child.paths = node.paths.clone();
+            child.paths[agent] = path;
+            child.costs = node.costs.clone();
+            child.costs[agent] = w.finder.getCost();
+            child.cost = node.cost - node.costs[agent] + child.costs[agent];
+            findConflict(child, w.occupied);
+            node.children[side] = child;
+        }
+    }
+
+    /**
+     * Find the first tick at which two agents of the specified node collide and record it in the node
+     * 
+     * @param node
+     * @param occupied
+     *            a table to fill with the cell of every agent at every tick up to the conflict
+     */
+    private static void findConflict(Node node, ReservationTable occupied)
+    {
+        int[][] paths = node.paths;
+        int ticks = 0;
+        for (int[] path : paths)
+        {
+            ticks = Math.max(ticks, path.length);
+        }
+
+        occupied.clear();
+        for (int t = 0; t < ticks; t++)
+        {
+            for (int a = 0; a < paths.length; a++)
+            {
+                int cell = getCell(paths[a], t);
+                if (!occupied.reserve(cell, t, a))
+                {
+                    node.setConflict(occupied.getAgent(cell, t), a, -1, cell, t);
+                    return;
+                }
+
+                // Two agents may not pass through each other by swapping tiles
+                int prev = getCell(paths[a], t - 1);
+                if (t > 0 && prev != cell)
+                {
+                    int other = occupied.getAgent(cell, t - 1);
+                    if (other >= 0 && other != a && getCell(paths[other], t) == prev)
+                    {
+                        node.setConflict(a, other, prev, cell, t);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the cell of an agent at the specified tick, where it stays at the end of its path once it is done
+     * 
+     * @param path
+     * @param tick
+     * @return cell
+     */
+    private static int getCell(int[] path, int tick)
+    {
+        return path[Math.max(0, Math.min(tick, path.length - 1))];
+    }
+
+    /**
+     * Get the flow field toward the specified goal, generating it the first time that goal is asked for
+     * 
+     * @param goalRow
+     * @param goalCol
+     * @return flow field
+     */
+    private FlowField getFlowField(int goalRow, int goalCol)
+    {
+        Integer goal = map.getIndex(goalRow, goalCol);
+        FlowField field = flowFields.get(goal);
+        if (field == null)
+        {
+            field = new FlowField(map, heuristic, neighborSelector);
+            field.generate(goalRow, goalCol);
+            flowFields.put(goal, field);
+        }
+        return field;
+    }
+
+    /**
+     * Get the status of the last call to solve()
+     * 
+     * @return status
+     */
+    public StatusEnum getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Whether the last call to solve() gave up at the node limit, rather than finding that there are no collision free
+     * paths
+     * 
+     * @return nodeLimitReached
+     */
+    public boolean isNodeLimitReached()
+    {
+        return nodeLimitReached;
+    }
+
+    /**
+     * Get the sum of the path costs of every agent found by the last call to solve(), counting each tick an agent waits
+     * before it reaches its goal for good
+     * 
+     * @return sum of costs
+     */
+    public float getSumOfCosts()
+    {
+        return sumOfCosts;
+    }
+
+    /**
+     * Get the number of high-level nodes expanded by the last call to solve()
+     * 
+     * @return expanded nodes
+     */
+    public int getExpandedNodes()
+    {
+        return expandedNodes;
+    }
+
+    /**
+     * Get the number of high-level nodes generated by the last call to solve()
+     * 
+     * @return generated nodes
+     */
+    public int getGeneratedNodes()
+    {
+        return generatedNodes;
+    }
+
+    /**
+     * A node of the constraint tree, holding the constraint added to its parent and the resulting path of every agent
+     */
+    private static class Node implements Comparable<Node>
+    {
+        private final Node parent;
+
+        /**
+         * The agent constrained by this node, or -1 at the root
+         */
+        private final int agent;
+
+        /**
+         * The cell the constrained step comes from, or -1 for a vertex constraint
+         */
+        private final int constraintFrom;
+
+        private final int constraintCell;
+
+        private final int constraintTick;
+
+        /**
+         * The number of constraints from the root
+         */
+        private final int depth;
+
+        private int[][] paths;
+
+        private float[] costs;
+
+        private float cost;
+
+        /**
+         * The order the node was generated in, for breaking ties
+         */
+        private int id;
+
+        // The first conflict, in which agent A steps from conflictFrom onto conflictTo at conflictTick, and agent B
+        // either stands on conflictTo or steps the other way, with conflictFrom -1 for a vertex conflict
+        private int conflictA = -1;
+        private int conflictB;
+        private int conflictFrom;
+        private int conflictTo;
+        private int conflictTick;
+
+        /**
+         * The children made by expanding the node, until they are pushed onto the open set
+         */
+        private Node[] children;
+
+        public Node(Node parent, int agent, int constraintFrom, int constraintCell, int constraintTick)
+        {
+            this.parent = parent;
+            this.agent = agent;
+            this.constraintFrom = constraintFrom;
+            this.constraintCell = constraintCell;
+            this.constraintTick = constraintTick;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        private void setConflict(int a, int b, int from, int to, int tick)
+        {
+            conflictA = a;
+            conflictB = b;
+            conflictFrom = from;
+            conflictTo = to;
+            conflictTick = tick;
+        }
+
+        private boolean hasConflict()
+        {
+            return conflictA >= 0;
+        }
+
+        @Override
+        public int compareTo(Node other)
+        {
+            if (cost != other.cost)
+                return cost < other.cost ? -1 : 1;
+
+            // Deeper nodes are closer to resolving every conflict
+            if (depth != other.depth)
+                return other.depth - depth;
+            return id - other.id;
+        }
+    }
+
+    /**
+     * Expands the nodes of a batch from first up to but not including last, splitting the batch in half until a task
+     * has one node
+     */
+    private static class ExpandTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final ConflictBasedSearch search;
+
+        private final List<Node> batch;
+
+        private final int first;
+
+        private final int last;
+
+        public ExpandTask(ConflictBasedSearch search, List<Node> batch, int first, int last)
+        {
+            this.search = search;
+            this.batch = batch;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1)
+            {
+                int middle = (first + last) >>> 1;
+                invokeAll(new ExpandTask(search, batch, first, middle), new ExpandTask(search, batch, middle, last));
+                return;
+            }
+
+            for (int i = first; i < last; i++)
+            {
+                search.expand(batch.get(i));
+            }
+        }
+    }
+
+    /**
+     * The per thread state of the search
+     */
+    private static class Worker
+    {
+        private final ConstrainedPathFinder finder;
+
+        /**
+         * The cell of every agent at every tick, filled while looking for conflicts
+         */
+        private final ReservationTable occupied = new ReservationTable();
+
+        private Worker(ConstrainedPathFinder finder)
+        {
+            this.finder = finder;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package astargazer;
+
+import java.util.Arrays;
+
+import astargazer.map.TileMap;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborBuffer;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * Finds the cheapest path of a single agent through (row, col, tick) states that obeys a set of constraints, as the low
+ * level search of ConflictBasedSearch. A vertex constraint keeps the agent off a cell at one tick, and an edge
+ * constraint keeps it from stepping between two cells in one tick. Each tick the agent either steps to a neighbor given
+ * by the NeighborSelector or waits in place, and the path ends once the agent can stay at its goal for good.
+ * 
+ * No constraint applies after the last constrained tick, so every state after it is the same as the state of the same
+ * cell one tick after it. Those states share one slot, which keeps the search finite even when the goal cannot be
+ * reached. The agent is guided by the true distance to its goal from a FlowField, which stays admissible under any
+ * constraints. A tick is one step, so neighbors that are not adjacent, like those of the jump point selector, are
+ * ignored
+ * 
+ * @author Matt Yanos
+ */
+public class ConstrainedPathFinder
+{
+    /**
+     * The cost of waiting one tick
+     */
+    public static final float WAIT_COST = 1.0f;
+
+    /**
+     * The map the agent moves on
+     */
+    private final TileMap map;
+
+    /**
+     * The means for determining step costs
+     */
+    private final HeuristicScheme heuristic;
+
+    /**
+     * The means for determining valid neighbors
+     */
+    private final NeighborSelector neighborSelector;
+
+    /**
+     * The vertex constraints, each reserved for agent 0
+     */
+    private final ReservationTable vertexConstraints = new ReservationTable();
+
+    // The edge constraints, each forbidding a step from one cell onto another arriving at a tick
+    private int[] edgeFroms = new int[8];
+    private int[] edgeTos = new int[8];
+    private int[] edgeTicks = new int[8];
+    private int edgeCount;
+
+    /**
+     * The last tick of any constraint, or -1 without constraints
+     */
+    private int lastConstrainedTick;
+
+    // The states of the search by slot, keyed by cell * (lastConstrainedTick + 2) + the tick, up to one past the last constrained tick
+    private final CellSlotMap stateSlots = new CellSlotMap();
+    private int[] stateCells = new int[64];
+    private int[] stateTicks = new int[64];
+    private float[] stateCosts = new float[64];
+    private int[] statePrevs = new int[64];
+    private boolean[] stateClosed = new boolean[64];
+
+    /**
+     * States waiting to be expanded, by slot
+     */
+    private final CellHeap openSet = new CellHeap();
+
+    /**
+     * Reusable buffer the neighbor selector writes the neighbors of the expanded tile into
+     */
+    private final NeighborBuffer neighbors = new NeighborBuffer();
+
+    /**
+     * The cost of the last path found
+     */
+    private float cost;
+
+    /**
+     * The number of states expanded by the last search
+     */
+    private int expanded;
+
+    /**
+     * Construct a ConstrainedPathFinder for an agent on the specified map, without any constraints
+     * 
+     * @param map
+     * @param heuristic
+     *            the means for determining step costs
+     * @param neighborSelector
+     *            the means for determining valid neighbors
+     */
+    public ConstrainedPathFinder(TileMap map, HeuristicScheme heuristic, NeighborSelector neighborSelector)
+    {
+        this.map = map;
+        this.heuristic = heuristic;
+        this.neighborSelector = neighborSelector;
+        clearConstraints();
+    }
+
+    /**
+     * Remove every constraint
+     */
+    public void clearConstraints()
+    {
+        vertexConstraints.clear();
+        edgeCount = 0;
+        lastConstrainedTick = -1;
+    }
+
+    /**
+     * Keep the agent off the specified cell at the specified tick
+     * 
+     * @param cell
+     *            see TileMap.getIndex()
+     * @param tick
+     */
+    public void addVertexConstraint(int cell, int tick)
+    {
+        vertexConstraints.reserve(cell, tick, 0);
+        lastConstrainedTick = Math.max(lastConstrainedTick, tick);
+    }
+
+    /**
+     * Keep the agent from stepping from one cell onto another, arriving at the specified tick
+     * 
+     * @param from
+     *            see TileMap.getIndex()
+     * @param to
+     *            see TileMap.getIndex()
+     * @param tick
+     */
+    public void addEdgeConstraint(int from, int to, int tick)
+    {
+        if (edgeCount == edgeFroms.length)
+        {
+            edgeFroms = Arrays.copyOf(edgeFroms, edgeCount * 2);
+            edgeTos = Arrays.copyOf(edgeTos, edgeCount * 2);
+            edgeTicks = Arrays.copyOf(edgeTicks, edgeCount * 2);
+        }
+        edgeFroms[edgeCount] = from;
+        edgeTos[edgeCount] = to;
+        edgeTicks[edgeCount] = tick;
+        edgeCount++;
+        lastConstrainedTick = Math.max(lastConstrainedTick, tick);
+    }
+
+    /**
+     * Find the cheapest path from the start to the goal that obeys the constraints
+     * 
+     * @param start
+     *            see TileMap.getIndex()
+     * @param goal
+     *            see TileMap.getIndex()
+     * @param field
+     *            the flow field toward the goal
+     * @return the cell the agent holds at each tick, from the start at tick 0 to the tick it reaches the goal for good,
+     *         or null if there is no such path
+     */
+    public int[] findPath(int start, int goal, FlowField field)
+    {
+        // Every tick after the last constrained tick shares the slot of the tick after it
+        final int horizon = lastConstrainedTick + 1;
+        if ((long)map.getRows() * map.getCols() * (horizon + 1) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Constraints up to tick " + lastConstrainedTick + " are too many for a " + map.getRows() + "x" + map.getCols() + " map");
+
+        // The agent cannot stop at the goal before its last vertex constraint there
+        int goalTick = 0;
+        for (int t = lastConstrainedTick; t > 0; t--)
+        {
+            if (vertexConstraints.getAgent(goal, t) >= 0)
+            {
+                goalTick = t + 1;
+                break;
+            }
+        }
+
+        stateSlots.clear();
+        openSet.clear();
+        expanded = 0;
+
+        float startCost = field.getDistance(map.getRow(start), map.getCol(start));
+        if (startCost == Float.POSITIVE_INFINITY || vertexConstraints.getAgent(start, 0) >= 0)
+            return null;
+
+        int end = -1;
+        openSet.push(addState(start, 0, 0.0f, -1, horizon), startCost);
+        while (!openSet.isEmpty())
+        {
+            int slot = openSet.pop();
+            if (stateClosed[slot])
+                continue;
+            stateClosed[slot] = true;
+            expanded++;
+
+            int cell = stateCells[slot];
+            if (cell == goal && stateTicks[slot] >= goalTick)
+            {
+                end = slot;
+                break;
+            }
+
+            tryMove(slot, cell, WAIT_COST, horizon, field);
+
+            int row = map.getRow(cell);
+            int col = map.getCol(cell);
+            int count = neighborSelector.getNeighbors(map, row, col, heuristic, neighbors);
+            for (int i = 0; i < count; i++)
+            {
+                int next = neighbors.getCell(i);
+                int nextRow = map.getRow(next);
+                int nextCol = map.getCol(next);
+                if (TileMap.getDirection(nextRow - row, nextCol - col) < 0)
+                    continue;
+
+                tryMove(slot, next, neighbors.getCost(i) * map.getCost(nextRow, nextCol), horizon, field);
+            }
+        }
+
+        if (end < 0)
+            return null;
+
+        cost = stateCosts[end];
+        int[] path = new int[stateTicks[end] + 1];
+        for (int slot = end; slot >= 0; slot = statePrevs[slot])
+        {
+            path[stateTicks[slot]] = stateCells[slot];
+        }
+        return path;
+    }
+
+    /**
+     * Push the state of moving from the specified state onto the specified cell in the next tick, unless a constraint
+     * forbids it or the state was already reached for less
+     * 
+     * @param from
+     *            the slot of the state being expanded
+     * @param next
+     *            the cell to move onto, which is the same cell when waiting
+     * @param stepCost
+     * @param horizon
+     *            the first tick after the last constrained tick
+     * @param field
+     *            the flow field toward the goal
+     */
+    private void tryMove(int from, int next, float stepCost, int horizon, FlowField field)
+    {
+        int cell = stateCells[from];
+        int tick = stateTicks[from] + 1;
+        if (tick <= lastConstrainedTick)
+        {
+            if (vertexConstraints.getAgent(next, tick) >= 0)
+                return;
+            for (int i = 0; i < edgeCount; i++)
+            {
+                if (edgeTicks[i] == tick && edgeFroms[i] == cell && edgeTos[i] == next)
+                    return;
+            }
+        }
+
+        float toCost = field.getDistance(map.getRow(next), map.getCol(next));
+        if (toCost == Float.POSITIVE_INFINITY)
+            return;
+
+        float fromCost = stateCosts[from] + stepCost;
+        int slot = stateSlots.get(next * (horizon + 1) + Math.min(tick, horizon));
+        if (slot >= 0)
+        {
+            if (stateClosed[slot] || fromCost >= stateCosts[slot])
+                return;
+            stateCosts[slot] = fromCost;
+            stateTicks[slot] = tick;
+            statePrevs[slot] = from;
+        }
+        else
+        {
+            slot = addState(next, tick, fromCost, from, horizon);
+        }
+        openSet.push(slot, fromCost + toCost);
+    }
+
+    /**
+     * Add a state to the search, growing the state arrays as needed
+     * 
+     * @param cell
+     * @param tick
+     * @param fromCost
+     * @param prev
+     *            the slot of the previous state, or -1
+     * @param horizon
+     *            the first tick after the last constrained tick
+     * @return slot
+     */
+    private int addState(int cell, int tick, float fromCost, int prev, int horizon)
+    {
+        int slot = stateSlots.add(cell * (horizon + 1) + Math.min(tick, horizon));
+        if (slot == stateCells.length)
+        {
+            int capacity = slot * 2;
+            stateCells = Arrays.copyOf(stateCells, capacity);
+            stateTicks = Arrays.copyOf(stateTicks, capacity);
+            stateCosts = Arrays.copyOf(stateCosts, capacity);
+            statePrevs = Arrays.copyOf(statePrevs, capacity);
+            stateClosed = Arrays.copyOf(stateClosed, capacity);
+        }
+        stateCells[slot] = cell;
+        stateTicks[slot] = tick;
+        stateCosts[slot] = fromCost;
+        statePrevs[slot] = prev;
+        stateClosed[slot] = false;
+        return slot;
+    }
+
+    /**
+     * Get the cost of the last path found
+     * 
+     * @return cost
+     */
+    public float getCost()
+    {
+        return cost;
+    }
+
+    /**
+     * Get the number of states expanded by the last search
+     * 
+     * @return expanded
+     */
+    public int getExpanded()
+    {
+        return expanded;
+    }
+}
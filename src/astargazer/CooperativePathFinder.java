@@ -0,0 +1,515 @@
+package astargazer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import astargazer.map.TileMap;
+import astargazer.map.WeightedPoint;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborBuffer;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * Plans collision free paths for a batch of agents sharing one map with windowed hierarchical cooperative A* (WHCA*).
+ * Each agent in turn searches the space of (row, col, tick) states for its next window of ticks, stepping to any
+ * neighbor given by the NeighborSelector or waiting in place, and reserves the tiles it will hold in a ReservationTable
+ * so the agents after it plan around them. No agent may enter a tile another agent holds at the same tick, and no two
+ * agents may swap tiles in a single tick.
+ * 
+ * Each agent is guided by the true distance to its goal on the empty map, taken from a FlowField, so the search within
+ * the window is short and the plan at the end of the window still heads the right way. Once every agent has planned,
+ * they all follow their plans for half a window, then the reservations are cleared and every agent plans again with
+ * the next agent in the priority order going first, so that no agent is always left to work around all of the others.
+ * An agent boxed in by the agents before it is moved to the front of the order and the window is planned again.
+ * 
+ * A tick is one step, so only neighbors adjacent to a tile are used, and neighbors that are not adjacent, like those of
+ * the jump point selector, are ignored. Like any prioritized planner this is not complete, and agents may never reach
+ * goals that keep them waiting on each other
+ * 
+ * @author Matt Yanos
+ */
+public class CooperativePathFinder
+{
+    /**
+     * The default number of ticks each agent plans ahead
+     */
+    public static final int DEFAULT_WINDOW = 16;
+
+    /**
+     * The cost of waiting one tick anywhere except at the goal, where it is free
+     */
+    private static final float WAIT_COST = 1.0f;
+
+    /**
+     * The map the agents move on
+     */
+    private final TileMap map;
+
+    /**
+     * The means for determining step costs
+     */
+    private final HeuristicScheme heuristic;
+
+    /**
+     * The means for determining valid neighbors
+     */
+    private final NeighborSelector neighborSelector;
+
+    /**
+     * The number of ticks each agent plans ahead
+     */
+    private int window;
+
+    /**
+     * The number of ticks after which the agents stop, or 0 to pick a limit from the distances to the goals
+     */
+    private int maxTicks;
+
+    /**
+     * The tiles held by every agent during the current window
+     */
+    private final ReservationTable reservations = new ReservationTable();
+
+    /**
+     * The flow field toward each goal cell, kept across calls to solve() so agents sharing a goal share a field
+     */
+    private final Map<Integer, FlowField> flowFields = new HashMap<Integer, FlowField>();
+
+    private StatusEnum status;
+
+    // The space-time search of one agent keeps its states by slot, keyed by cell * (window + 1) + the ticks into the window
+    private final CellSlotMap stateSlots = new CellSlotMap();
+    private int[] stateCells = new int[64];
+    private int[] stateTicks = new int[64];
+    private float[] stateCosts = new float[64];
+    private int[] statePrevs = new int[64];
+    private boolean[] stateClosed = new boolean[64];
+
+    /**
+     * States waiting to be expanded, by slot
+     */
+    private final CellHeap openSet = new CellHeap();
+
+    /**
+     * Reusable buffer the neighbor selector writes the neighbors of the expanded tile into
+     */
+    private final NeighborBuffer neighbors = new NeighborBuffer();
+
+    /**
+     * Construct a CooperativePathFinder for agents on the specified map
+     * 
+     * @param map
+     * @param heuristic
+     *            the means for determining step costs
+     * @param neighborSelector
+     *            the means for determining valid neighbors
+     */
+    public CooperativePathFinder(TileMap map, HeuristicScheme heuristic, NeighborSelector neighborSelector)
+    {
+        this.map = map;
+        this.heuristic = heuristic;
+        this.neighborSelector = neighborSelector;
+        setWindow(DEFAULT_WINDOW);
+    }
+
+    /**
+     * Set the number of ticks each agent plans ahead. A longer window lets agents see conflicts further off at the cost
+     * of a larger search per agent
+     * 
+     * @param window
+     *            at least 2
+     */
+    public void setWindow(int window)
+    {
+        if (window < 2)
+            throw new IllegalArgumentException("The window must be at least 2 ticks, not " + window);
+        if ((long)map.getRows() * map.getCols() * (window + 1) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("A window of " + window + " ticks is too long for a " + map.getRows() + "x" + map.getCols() + " map");
+
+        this.window = window;
+    }
+
+    /**
+     * Get the number of ticks each agent plans ahead
+     * 
+     * @return window
+     */
+    public int getWindow()
+    {
+        return window;
+    }
+
+    /**
+     * Set the number of ticks after which the agents stop if they have not all reached their goals
+     * 
+     * @param maxTicks
+     *            or 0 to pick a limit from the distances to the goals
+     */
+    public void setMaxTicks(int maxTicks)
+    {
+        this.maxTicks = Math.max(0, maxTicks);
+    }
+
+    /**
+     * Get the status of the last call to solve()
+     * 
+     * @return status
+     */
+    public StatusEnum getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Get the reservations of the last window planned
+     * 
+     * @return reservations
+     */
+    public ReservationTable getReservations()
+    {
+        return reservations;
+    }
+
+    /**
+     * Plan paths for every agent from its start to its goal. The path of each agent holds one point per tick from its
+     * start, including the ticks it waits, and ends at the last tick it arrives at its goal. The status is
+     * COMPLETED_FOUND if every agent reached its goal, or COMPLETED_NOT_FOUND if a goal cannot be reached or the agents
+     * ran out of ticks, in which case each path ends where its agent stopped
+     * 
+     * @param starts
+     *            the start of each agent
+     * @param goals
+     *            the goal of each agent, in the same order
+     * @return the path of each agent, in the same order
+     */
+    public List<List<WeightedPoint>> solve(List<WeightedPoint> starts, List<WeightedPoint> goals)
+    {
+        if (starts.size() != goals.size())
+            throw new IllegalArgumentException(starts.size() + " starts for " + goals.size() + " goals");
+
+        final int agents = starts.size();
+        int[] positions = new int[agents];
+        int[] goalCells = new int[agents];
+        FlowField[] fields = new FlowField[agents];
+        List<List<WeightedPoint>> paths = new ArrayList<List<WeightedPoint>>(agents);
+
+        status = StatusEnum.RUNNING;
+        float longest = 0.0f;
+        for (int a = 0; a < agents; a++)
+        {
+            WeightedPoint start = starts.get(a);
+            WeightedPoint goal = goals.get(a);
+            positions[a] = map.getIndex(start.getRow(), start.getCol());
+            goalCells[a] = map.getIndex(goal.getRow(), goal.getCol());
+            fields[a] = getFlowField(goal.getRow(), goal.getCol());
+
+            List<WeightedPoint> path = new ArrayList<WeightedPoint>();
+            path.add(new WeightedPoint(start.getRow(), start.getCol()));
+            paths.add(path);
+
+            if (!fields[a].isReachable(start.getRow(), start.getCol()))
+            {
+                status = StatusEnum.COMPLETED_NOT_FOUND;
+            }
+            longest = Math.max(longest, fields[a].getDistance(start.getRow(), start.getCol()));
+        }
+        if (status != StatusEnum.RUNNING)
+            return paths;
+
+        // Every step costs at least 1, so the longest distance bounds the steps of an agent that is never held up
+        final int tickLimit = maxTicks > 0 ? maxTicks : (int)Math.min(Integer.MAX_VALUE / 2, 4L * (long)Math.ceil(longest) + 2L * agents * window);
+
+        final int interval = window / 2;
+        int[] order = new int[agents];
+        for (int a = 0; a < agents; a++)
+        {
+            order[a] = a;
+        }
+        int[][] plans = new int[agents][];
+        int[] arrivals = new int[agents];
+        for (int tick = 0; ; tick += interval)
+        {
+            boolean arrived = true;
+            for (int a = 0; a < agents; a++)
+            {
+                arrived &= positions[a] == goalCells[a];
+            }
+            if (arrived)
+            {
+                status = StatusEnum.COMPLETED_FOUND;
+                break;
+            }
+            if (tick >= tickLimit)
+            {
+                status = StatusEnum.COMPLETED_NOT_FOUND;
+                break;
+            }
+
+            // An agent boxed in by the reservations of the agents before it goes first and the window is planned again
+            boolean planned = false;
+            for (int attempt = 0; attempt < agents && !planned; attempt++)
+            {
+                int stuck = planAll(order, positions, goalCells, tick, fields, plans);
+                if (stuck < 0)
+                {
+                    planned = true;
+                }
+                else
+                {
+                    int i = 0;
+                    while (order[i] != stuck)
+                        i++;
+                    System.arraycopy(order, 0, order, 1, i);
+                    order[0] = stuck;
+                }
+            }
+            if (!planned)
+            {
+                // No order was found for this window, so every agent holds its tile, which can never collide
+                for (int a = 0; a < agents; a++)
+                {
+                    plans[a] = new int[window + 1];
+                    Arrays.fill(plans[a], positions[a]);
+                }
+            }
+
+            for (int a = 0; a < agents; a++)
+            {
+                for (int t = 1; t <= interval; t++)
+                {
+                    int cell = plans[a][t];
+                    paths.get(a).add(new WeightedPoint(map.getRow(cell), map.getCol(cell)));
+                    if (cell != positions[a] && cell == goalCells[a])
+                    {
+                        arrivals[a] = tick + t;
+                    }
+                    positions[a] = cell;
+                }
+            }
+
+            // The first agent goes last in the next window
+            int first = order[0];
+            System.arraycopy(order, 1, order, 0, agents - 1);
+            order[agents - 1] = first;
+        }
+
+        // Drop the ticks each agent spent waiting at its goal for the others
+        for (int a = 0; a < agents; a++)
+        {
+            List<WeightedPoint> path = paths.get(a);
+            int end = positions[a] == goalCells[a] ? arrivals[a] + 1 : path.size();
+            path.subList(end, path.size()).clear();
+        }
+        return paths;
+    }
+
+    /**
+     * Plan the next window of every agent in the specified order, reserving the tiles of each plan before planning the
+     * next agent
+     * 
+     * @param order
+     * @param positions
+     *            the cell of each agent at the start of the window
+     * @param goalCells
+     * @param tick
+     *            the tick at the start of the window
+     * @param fields
+     *            the flow field toward the goal of each agent
+     * @param plans
+     *            filled with the plan of each agent, see planWindow()
+     * @return -1, or the first agent that could not plan the whole window around the agents before it
+     */
+    private int planAll(int[] order, int[] positions, int[] goalCells, int tick, FlowField[] fields, int[][] plans)
+    {
+        // Every agent holds its current tile at the start of the window
+        reservations.clear();
+        for (int a = 0; a < order.length; a++)
+        {
+            reservations.reserve(positions[a], tick, a);
+        }
+
+        for (int a : order)
+        {
+            plans[a] = planWindow(a, positions[a], goalCells[a], tick, fields[a]);
+            if (plans[a] == null)
+                return a;
+
+            for (int t = 1; t <= window; t++)
+            {
+                reservations.reserve(plans[a][t], tick + t, a);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the flow field toward the specified goal, generating it the first time that goal is asked for
+     * 
+     * @param goalRow
+     * @param goalCol
+     * @return flow field
+     */
+    private FlowField getFlowField(int goalRow, int goalCol)
+    {
+        Integer goal = map.getIndex(goalRow, goalCol);
+        FlowField field = flowFields.get(goal);
+        if (field == null)
+        {
+            field = new FlowField(map, heuristic, neighborSelector);
+            field.generate(goalRow, goalCol);
+            flowFields.put(goal, field);
+        }
+        return field;
+    }
+
+    /**
+     * Search the (row, col, tick) states of one agent for the cheapest way to spend the next window of ticks around the
+     * reservations already made, ending as close to its goal as possible
+     * 
+     * @param agent
+     * @param start
+     *            the cell the agent holds at the start of the window
+     * @param goal
+     * @param tick
+     *            the tick at the start of the window
+     * @param field
+     *            the flow field toward the goal
+     * @return the cell the agent holds at each tick of the window, from 0 to the window, or null if every way through
+     *         the window runs into a reservation
+     */
+    private int[] planWindow(int agent, int start, int goal, int tick, FlowField field)
+    {
+        stateSlots.clear();
+        openSet.clear();
+
+        int end = -1;
+        openSet.push(addState(start, 0, 0.0f, -1), field.getDistance(map.getRow(start), map.getCol(start)));
+        while (!openSet.isEmpty())
+        {
+            int slot = openSet.pop();
+            if (stateClosed[slot])
+                continue;
+            stateClosed[slot] = true;
+
+            int cell = stateCells[slot];
+            int dt = stateTicks[slot];
+
+            if (dt == window)
+            {
+                end = slot;
+                break;
+            }
+
+            tryMove(agent, slot, cell, cell == goal ? 0.0f : WAIT_COST, tick, field);
+
+            int row = map.getRow(cell);
+            int col = map.getCol(cell);
+            int count = neighborSelector.getNeighbors(map, row, col, heuristic, neighbors);
+            for (int i = 0; i < count; i++)
+            {
+                int next = neighbors.getCell(i);
+                int nextRow = map.getRow(next);
+                int nextCol = map.getCol(next);
+                if (TileMap.getDirection(nextRow - row, nextCol - col) < 0)
+                    continue;
+
+                tryMove(agent, slot, next, neighbors.getCost(i) * map.getCost(nextRow, nextCol), tick, field);
+            }
+        }
+
+        if (end < 0)
+            return null;
+
+        int[] plan = new int[window + 1];
+        for (int slot = end; slot >= 0; slot = statePrevs[slot])
+        {
+            plan[stateTicks[slot]] = stateCells[slot];
+        }
+        return plan;
+    }
+
+    /**
+     * Push the state of moving from the specified state onto the specified cell in the next tick, unless another agent
+     * holds that cell or is moving the other way, or the state was already reached for less
+     * 
+     * @param agent
+     * @param from
+     *            the slot of the state being expanded
+     * @param next
+     *            the cell to move onto, which is the same cell when waiting
+     * @param stepCost
+     * @param tick
+     *            the tick at the start of the window
+     * @param field
+     *            the flow field toward the goal
+     */
+    private void tryMove(int agent, int from, int next, float stepCost, int tick, FlowField field)
+    {
+        int cell = stateCells[from];
+        int dt = stateTicks[from] + 1;
+        int nextTick = tick + dt;
+        if (!reservations.isFree(next, nextTick, agent))
+            return;
+
+        // Two agents may not pass through each other by swapping tiles
+        if (next != cell)
+        {
+            int other = reservations.getAgent(next, nextTick - 1);
+            if (other >= 0 && other != agent && reservations.getAgent(cell, nextTick) == other)
+                return;
+        }
+
+        float toCost = field.getDistance(map.getRow(next), map.getCol(next));
+        if (toCost == Float.POSITIVE_INFINITY)
+            return;
+
+        float fromCost = stateCosts[from] + stepCost;
+        int slot = stateSlots.get(next * (window + 1) + dt);
+        if (slot >= 0)
+        {
+            if (stateClosed[slot] || fromCost >= stateCosts[slot])
+                return;
+            stateCosts[slot] = fromCost;
+            statePrevs[slot] = from;
+        }
+        else
+        {
+            slot = addState(next, dt, fromCost, from);
+        }
+        openSet.push(slot, fromCost + toCost);
+    }
+
+    /**
+     * Add a state to the search, growing the state arrays as needed
+     * 
+     * @param cell
+     * @param dt
+     *            the ticks into the window
+     * @param fromCost
+     * @param prev
+     *            the slot of the previous state, or -1
+     * @return slot
+     */
+    private int addState(int cell, int dt, float fromCost, int prev)
+    {
+        int slot = stateSlots.add(cell * (window + 1) + dt);
+        if (slot == stateCells.length)
+        {
+            int capacity = slot * 2;
+            stateCells = Arrays.copyOf(stateCells, capacity);
+            stateTicks = Arrays.copyOf(stateTicks, capacity);
+            stateCosts = Arrays.copyOf(stateCosts, capacity);
+            statePrevs = Arrays.copyOf(statePrevs, capacity);
+            stateClosed = Arrays.copyOf(stateClosed, capacity);
+        }
+        stateCells[slot] = cell;
+        stateTicks[slot] = dt;
+        stateCosts[slot] = fromCost;
+        statePrevs[slot] = prev;
+        stateClosed[slot] = false;
+        return slot;
+    }
+}
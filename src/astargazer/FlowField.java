@@ -0,0 +1,310 @@
+package astargazer;
+
+import java.util.Arrays;
+
+import astargazer.map.TileMap;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborBuffer;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * A flow field toward a single goal, built by running Dijkstra's algorithm outward from the goal over the whole map.
+ * Every tile stores its distance to the goal and the direction of the next step toward it, so any number of agents
+ * heading for the same goal can each follow the field one step at a time without running their own search.
+ * 
+ * Only neighbors adjacent to a tile can be expressed as a direction, so neighbors that are not adjacent, like those of
+ * the jump point selector, are ignored. The step cost between two tiles is expected to be the same in both directions
+ * before it is weighted by the terrain cost of the tile being stepped onto.
+ * 
+ * @author Matt Yanos
+ */
+public class FlowField
+{
+    /**
+     * The direction stored for a tile that cannot reach the goal, or for the goal itself
+     */
+    public static final byte NO_DIRECTION = -1;
+
+    /**
+     * The map the flow field covers
+     */
+    private final TileMap map;
+
+    /**
+     * The means for determining step costs
+     */
+    private final HeuristicScheme heuristic;
+
+    /**
+     * The means for determining valid neighbors
+     */
+    private final NeighborSelector neighborSelector;
+
+    /**
+     * The goal cell, or -1 if the field has not been generated
+     */
+    private int goal;
+
+    /**
+     * The cost to reach the goal from each cell, or positive infinity if it cannot be reached, indexed by
+     * TileMap.getIndex()
+     */
+    private final float[] distances;
+
+    /**
+     * The direction of the next step toward the goal from each cell (see TileMap.DIRECTION_NORTH), indexed by
+     * TileMap.getIndex()
+     */
+    private final byte[] directions;
+
+    /**
+     * Cells waiting to be expanded, ordered by their distance to the goal
+     */
+    private final CellQueue openSet;
+
+    /**
+     * Reusable buffer the neighbor selector writes the neighbors of the expanded cell into
+     */
+    private final NeighborBuffer neighbors = new NeighborBuffer();
+
+    /**
+     * Stack of cells used while invalidating a region, allocated on the first update
+     */
+    private int[] pending;
+
+    /**
+     * Construct a FlowField for the specified map. Call generate() to build it toward a goal
+     * 
+     * @param map
+     * @param heuristic
+     *            the means for determining step costs
+     * @param neighborSelector
+     *            the means for determining valid neighbors
+     */
+    public FlowField(TileMap map, HeuristicScheme heuristic, NeighborSelector neighborSelector)
+    {
+        this.map = map;
+        this.heuristic = heuristic;
+        this.neighborSelector = neighborSelector;
+        this.goal = -1;
+        this.distances = new float[map.getRows() * map.getCols()];
+        this.directions = new byte[distances.length];
+
+        // Distances only ever grow from the goal, so whole number step costs can use a bucket queue
+        this.openSet = heuristic.isIntegral() ? new CellBucketQueue() : new CellHeap();
+    }
+
+    /**
+     * Build the whole flow field toward the specified goal
+     * 
+     * @param goalRow
+     * @param goalCol
+     */
+    public void generate(int goalRow, int goalCol)
+    {
+        goal = map.getIndex(goalRow, goalCol);
+
+        Arrays.fill(distances, Float.POSITIVE_INFINITY);
+        Arrays.fill(directions, NO_DIRECTION);
+
+        openSet.clear();
+        if (map.isTraversable(goalRow, goalCol))
+        {
+            distances[goal] = 0.0f;
+            openSet.push(goal, 0.0f);
+        }
+        expand();
+    }
+
+    /**
+     * Rebuild the part of the flow field affected by changes to the traversable tiles or terrain costs in the specified
+     * rectangle. Every tile whose route to the goal passed through the rectangle is recalculated from the unaffected
+     * tiles around it, and any shorter routes opened up by the changes are spread through the rest of the field
+     * 
+     * @param top
+     *            the first row of the changed rectangle
+     * @param left
+     *            the first column of the changed rectangle
+     * @param bottom
+     *            the last row of the changed rectangle
+     * @param right
+     *            the last column of the changed rectangle
+     */
+    public void update(int top, int left, int bottom, int right)
+    {
+        top = Math.max(0, top);
+        left = Math.max(0, left);
+        bottom = Math.min(map.getRows() - 1, bottom);
+        right = Math.min(map.getCols() - 1, right);
+
+        if (goal < 0)
+        {
+            // Nothing has been generated yet
+            return;
+        }
+
+        final int goalRow = map.getRow(goal);
+        final int goalCol = map.getCol(goal);
+        if (top <= goalRow && goalRow <= bottom && left <= goalCol && goalCol <= right)
+        {
+            // Everything depends on the goal tile
+            generate(goalRow, goalCol);
+            return;
+        }
+
+        if (pending == null)
+        {
+            pending = new int[distances.length];
+        }
+
+        // Invalidate the changed tiles, marking them with a NaN distance while they are gathered
+        int count = 0;
+        for (int r = top; r <= bottom; r++)
+        {
+            for (int c = left; c <= right; c++)
+            {
+                int cell = map.getIndex(r, c);
+                distances[cell] = Float.NaN;
+                pending[count++] = cell;
+            }
+        }
+
+        // Invalidate every tile whose next step leads into an invalidated tile
+        int gathered = 0;
+        while (gathered < count)
+        {
+            int cell = pending[gathered++];
+            int row = map.getRow(cell);
+            int col = map.getCol(cell);
+            for (int d = 0; d < TileMap.DIRECTION_ROWS.length; d++)
+            {
+                int r = row + TileMap.DIRECTION_ROWS[d];
+                int c = col + TileMap.DIRECTION_COLS[d];
+                if (r < 0 || c < 0 || r >= map.getRows() || c >= map.getCols())
+                    continue;
+                int upstream = map.getIndex(r, c);
+                if (!Float.isNaN(distances[upstream]) && directions[upstream] == TileMap.getDirection(row - r, col - c))
+                {
+                    distances[upstream] = Float.NaN;
+                    pending[count++] = upstream;
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            distances[pending[i]] = Float.POSITIVE_INFINITY;
+            directions[pending[i]] = NO_DIRECTION;
+        }
+
+        // Seed the search with the reachable tiles bordering the invalidated tiles, whose distances are still valid
+        openSet.clear();
+        for (int i = 0; i < count; i++)
+        {
+            int row = map.getRow(pending[i]);
+            int col = map.getCol(pending[i]);
+            for (int d = 0; d < TileMap.DIRECTION_ROWS.length; d++)
+            {
+                int r = row + TileMap.DIRECTION_ROWS[d];
+                int c = col + TileMap.DIRECTION_COLS[d];
+                if (r < 0 || c < 0 || r >= map.getRows() || c >= map.getCols())
+                    continue;
+                int border = map.getIndex(r, c);
+                if (distances[border] != Float.POSITIVE_INFINITY)
+                {
+                    openSet.push(border, distances[border]);
+                }
+            }
+        }
+        expand();
+    }
+
+    /**
+     * Run Dijkstra's algorithm from the cells on the open set until every reachable cell has its shortest distance
+     */
+    private void expand()
+    {
+        while (!openSet.isEmpty())
+        {
+            float distance = openSet.peekCost();
+            int cell = openSet.pop();
+            if (distance > distances[cell])
+            {
+                // A shorter route to this cell was already expanded
+                continue;
+            }
+
+            int row = map.getRow(cell);
+            int col = map.getCol(cell);
+
+            // Agents step from the neighbors onto this tile, so its terrain cost applies to every step
+            int terrainCost = map.getCost(row, col);
+
+            int count = neighborSelector.getNeighbors(map, row, col, heuristic, neighbors);
+            for (int i = 0; i < count; i++)
+            {
+                int next = neighbors.getCell(i);
+                int nextRow = map.getRow(next);
+                int nextCol = map.getCol(next);
+                int direction = TileMap.getDirection(row - nextRow, col - nextCol);
+                if (direction < 0 || !map.isTraversable(nextRow, nextCol))
+                    continue;
+
+                float nextDistance = distance + neighbors.getCost(i) * terrainCost;
+                if (nextDistance < distances[next])
+                {
+                    distances[next] = nextDistance;
+                    directions[next] = (byte)direction;
+                    openSet.push(next, nextDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the map the flow field covers
+     * 
+     * @return map
+     */
+    public TileMap getMap()
+    {
+        return map;
+    }
+
+    /**
+     * Get the cost to reach the goal from the specified tile, or positive infinity if it cannot be reached
+     * 
+     * @param row
+     * @param col
+     * @return distance
+     */
+    public float getDistance(int row, int col)
+    {
+        return distances[map.getIndex(row, col)];
+    }
+
+    /**
+     * Get the direction of the next step toward the goal from the specified tile (see TileMap.DIRECTION_NORTH), or
+     * NO_DIRECTION if the tile is the goal or cannot reach it
+     * 
+     * @param row
+     * @param col
+     * @return direction
+     */
+    public byte getDirection(int row, int col)
+    {
+        return directions[map.getIndex(row, col)];
+    }
+
+    /**
+     * Whether the goal can be reached from the specified tile
+     * 
+     * @param row
+     * @param col
+     * @return reachable
+     */
+    public boolean isReachable(int row, int col)
+    {
+        return distances[map.getIndex(row, col)] != Float.POSITIVE_INFINITY;
+    }
+}
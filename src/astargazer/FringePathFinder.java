@@ -0,0 +1,292 @@
+package astargazer;
+
+import java.util.Arrays;
+
+import astargazer.map.TileMap;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * Fringe Search, which visits the same tiles as IDA* but keeps the fringe of each pass so the next pass starts from it
+ * instead of from the start. The fringe is held in two plain lists instead of a priority queue: the now list of tiles
+ * to visit in this pass, and the later list of tiles whose total cost (f = g + h) was over the threshold. A visited tile
+ * within the threshold is expanded and its neighbors go on the front of the now list, and once the now list is empty
+ * the threshold is raised to the cheapest total on the later list, which becomes the next now list. Pushing and popping
+ * the ends of an array never sorts anything, which is what makes each visit cheap.
+ * 
+ * Each tile reached is cached with its cheapest from cost (g) and the tile before it, which are needed to tell a cheaper
+ * way to a tile apart and to trace the path back. A tile reached again for less goes on the now list again, and its
+ * older list entry is skipped when it comes up. The cache only grows with the number of tiles reached, and a search
+ * gives up once it would hold more than the maximum number of tiles
+ * 
+ * @author Matt Yanos
+ */
+public class FringePathFinder extends BoundedPathFinder
+{
+    /**
+     * The maximum number of tiles cached, unless set otherwise
+     */
+    public static final int DEFAULT_MAX_CELLS = 1 << 20;
+
+    /**
+     * The maximum number of tiles cached
+     */
+    private int maxCells = DEFAULT_MAX_CELLS;
+
+    // The cache of every tile reached by slot, holding the cell, its from cost (g), its to cost (h), the slot before it,
+    // and the list entry that is current for it, or 0 if it is on neither list
+    private final CellSlotMap cellSlots = new CellSlotMap();
+    private int[] slotCells = new int[64];
+    private float[] slotFromCosts = new float[64];
+    private float[] slotToCosts = new float[64];
+    private int[] slotPrevs = new int[64];
+    private int[] slotEntries = new int[64];
+
+    /**
+     * The number of list entries added by the current search, which numbers each entry
+     */
+    private int entryCount;
+
+    // The now and later lists of slots, each with the number of the entry
+    private int[] nowSlots = new int[64];
+    private int[] nowEntries = new int[64];
+    private int nowSize;
+    private int[] laterSlots = new int[64];
+    private int[] laterEntries = new int[64];
+    private int laterSize;
+
+    /**
+     * Construct a Fringe Search on the specified map
+     * 
+     * @param map
+     * @param heuristic
+     *            the means for determining distances
+     * @param neighborSelector
+     *            the means for determining valid neighbors
+     */
+    public FringePathFinder(TileMap map, HeuristicScheme heuristic, NeighborSelector neighborSelector)
+    {
+        super(map, heuristic, neighborSelector);
+    }
+
+    /**
+     * Set the maximum number of tiles cached, each taking about 32 bytes
+     * 
+     * @param maxCells
+     */
+    public void setMaxCells(int maxCells)
+    {
+        this.maxCells = maxCells;
+    }
+
+    @Override
+    public int[] findPath(int start, int goal)
+    {
+        final int goalRow = map.getRow(goal);
+        final int goalCol = map.getCol(goal);
+
+        expanded = 0;
+        iterations = 0;
+        status = StatusEnum.COMPLETED_NOT_FOUND;
+        cellSlots.clear();
+        entryCount = 0;
+        nowSize = 0;
+        laterSize = 0;
+        if (!map.isTraversable(map.getRow(start), map.getCol(start)) || !map.isTraversable(goalRow, goalCol))
+            return null;
+
+        int startSlot = addSlot(start, 0.0f, estimate(start, goalRow, goalCol), -1);
+        pushNow(startSlot);
+
+        float threshold = slotToCosts[startSlot];
+        while (nowSize > 0)
+        {
+            iterations++;
+            float nextThreshold = Float.POSITIVE_INFINITY;
+            while (nowSize > 0)
+            {
+                nowSize--;
+                int slot = nowSlots[nowSize];
+                if (slotEntries[slot] != nowEntries[nowSize])
+                {
+                    // The tile was reached again for less since this entry was added
+                    continue;
+                }
+
+                float total = slotFromCosts[slot] + slotToCosts[slot];
+                if (total > threshold)
+                {
+                    nextThreshold = Math.min(nextThreshold, total);
+                    pushLater(slot, nowEntries[nowSize]);
+                    continue;
+                }
+
+                int cell = slotCells[slot];
+                if (cell == goal)
+                {
+                    cost = slotFromCosts[slot];
+                    status = StatusEnum.COMPLETED_FOUND;
+                    return tracePath(slot);
+                }
+
+                if (expanded == maxExpansions)
+                    return null;
+
+                slotEntries[slot] = 0;
+                expanded++;
+                if (!expand(slot, goalRow, goalCol))
+                    return null;
+            }
+
+            // The later list becomes the now list, visited from its first entry to keep the order of the last pass
+            threshold = nextThreshold;
+            for (int i = laterSize - 1; i >= 0; i--)
+            {
+                pushEntry(laterSlots[i], laterEntries[i]);
+            }
+            laterSize = 0;
+        }
+        return null;
+    }
+
+    /**
+     * Put every neighbor of the specified slot that was not reached for less onto the now list
+     * 
+     * @param slot
+     * @param goalRow
+     * @param goalCol
+     * @return false if the cache is full
+     */
+    private boolean expand(int slot, int goalRow, int goalCol)
+    {
+        int cell = slotCells[slot];
+        int count = neighborSelector.getNeighbors(map, map.getRow(cell), map.getCol(cell), heuristic, neighbors);
+        for (int i = 0; i < count; i++)
+        {
+            int next = neighbors.getCell(i);
+            int nextRow = map.getRow(next);
+            int nextCol = map.getCol(next);
+
+            // The step cost is weighted by the terrain cost of the tile being stepped onto
+            float fromCost = slotFromCosts[slot] + neighbors.getCost(i) * map.getCost(nextRow, nextCol);
+            int nextSlot = cellSlots.get(next);
+            if (nextSlot >= 0)
+            {
+                if (fromCost >= slotFromCosts[nextSlot])
+                    continue;
+                slotFromCosts[nextSlot] = fromCost;
+                slotPrevs[nextSlot] = slot;
+            }
+            else
+            {
+                if (cellSlots.size() == maxCells)
+                    return false;
+                nextSlot = addSlot(next, fromCost, heuristic.distance(nextRow, nextCol, goalRow, goalCol), slot);
+            }
+            pushNow(nextSlot);
+        }
+        return true;
+    }
+
+    /**
+     * Add a tile to the cache, growing the slot arrays as needed
+     * 
+     * @param cell
+     * @param fromCost
+     * @param toCost
+     * @param prev
+     *            the slot before it, or -1
+     * @return slot
+     */
+    private int addSlot(int cell, float fromCost, float toCost, int prev)
+    {
+        int slot = cellSlots.add(cell);
+        if (slot == slotCells.length)
+        {
+            int capacity = slot * 2;
+            slotCells = Arrays.copyOf(slotCells, capacity);
+            slotFromCosts = Arrays.copyOf(slotFromCosts, capacity);
+            slotToCosts = Arrays.copyOf(slotToCosts, capacity);
+            slotPrevs = Arrays.copyOf(slotPrevs, capacity);
+            slotEntries = Arrays.copyOf(slotEntries, capacity);
+        }
+        slotCells[slot] = cell;
+        slotFromCosts[slot] = fromCost;
+        slotToCosts[slot] = toCost;
+        slotPrevs[slot] = prev;
+        slotEntries[slot] = 0;
+        return slot;
+    }
+
+    /**
+     * Add a new entry for the specified slot to the front of the now list, replacing any entry it already has
+     * 
+     * @param slot
+     */
+    private void pushNow(int slot)
+    {
+        entryCount++;
+        slotEntries[slot] = entryCount;
+        pushEntry(slot, entryCount);
+    }
+
+    /**
+     * Add an entry to the front of the now list
+     * 
+     * @param slot
+     * @param entry
+     */
+    private void pushEntry(int slot, int entry)
+    {
+        if (nowSize == nowSlots.length)
+        {
+            nowSlots = Arrays.copyOf(nowSlots, nowSize * 2);
+            nowEntries = Arrays.copyOf(nowEntries, nowSize * 2);
+        }
+        nowSlots[nowSize] = slot;
+        nowEntries[nowSize] = entry;
+        nowSize++;
+    }
+
+    /**
+     * Add an entry to the end of the later list
+     * 
+     * @param slot
+     * @param entry
+     */
+    private void pushLater(int slot, int entry)
+    {
+        if (laterSize == laterSlots.length)
+        {
+            laterSlots = Arrays.copyOf(laterSlots, laterSize * 2);
+            laterEntries = Arrays.copyOf(laterEntries, laterSize * 2);
+        }
+        laterSlots[laterSize] = slot;
+        laterEntries[laterSize] = entry;
+        laterSize++;
+    }
+
+    /**
+     * Trace the cached tiles back from the specified slot to the start
+     * 
+     * @param slot
+     * @return the cells of the path from the start to the tile of the slot
+     */
+    private int[] tracePath(int slot)
+    {
+        int length = 0;
+        for (int s = slot; s >= 0; s = slotPrevs[s])
+            length++;
+
+        int[] path = new int[length];
+        for (int s = slot; s >= 0; s = slotPrevs[s])
+            path[--length] = slotCells[s];
+        return path;
+    }
+
+    @Override
+    public String getLabel()
+    {
+        return "Fringe Search";
+    }
+}
@@ -0,0 +1,145 @@
+package astargazer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import astargazer.map.TileMap;
+import astargazer.map.heuristic.HeuristicScheme;
+
+/**
+ * The heuristic distance from every tile of a map to one goal, computed once so that repeated searches toward that goal
+ * look the estimate up instead of calculating it for every neighbor they reach. The rows of the table are filled in
+ * parallel on a ForkJoinPool when it is constructed, and it never changes afterward, so one table can be shared by any
+ * number of PathFinders searching at the same time. A table only applies to the heuristic it was built with, and a
+ * PathFinder ignores it for any other heuristic or goal
+ * 
+ * @author Matt Yanos
+ */
+public class HeuristicTable
+{
+    /**
+     * The number of rows filled by a single task
+     */
+    private static final int ROWS_PER_TASK = 16;
+
+    private final HeuristicScheme heuristic;
+
+    private final int rows;
+
+    private final int cols;
+
+    private final int goalRow;
+
+    private final int goalCol;
+
+    /**
+     * The heuristic distance from each cell to the goal, indexed by TileMap.getIndex()
+     */
+    private final float[] distances;
+
+    /**
+     * Build the table toward the goal of the specified map on the common pool
+     * 
+     * @param map
+     * @param heuristic
+     */
+    public HeuristicTable(TileMap map, HeuristicScheme heuristic)
+    {
+        this(map, heuristic, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build the table toward the goal of the specified map on the specified pool
+     * 
+     * @param map
+     * @param heuristic
+     * @param pool
+     *            the pool to fill the rows of the table on
+     */
+    public HeuristicTable(TileMap map, HeuristicScheme heuristic, ForkJoinPool pool)
+    {
+        this.heuristic = heuristic;
+        this.rows = map.getRows();
+        this.cols = map.getCols();
+        this.goalRow = map.getGoal().getRow();
+        this.goalCol = map.getGoal().getCol();
+        if ((long)rows * cols > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("A " + rows + "x" + cols + " map is too large for a heuristic table");
+
+        this.distances = new float[rows * cols];
+        pool.invoke(new FillTask(0, rows));
+    }
+
+    /**
+     * Whether this table holds the distances of the specified heuristic toward the goal of the specified map
+     * 
+     * @param map
+     * @param heuristic
+     * @return covers
+     */
+    public boolean covers(TileMap map, HeuristicScheme heuristic)
+    {
+        return heuristic == this.heuristic && map.getRows() == rows && map.getCols() == cols &&
+               map.getGoal().getRow() == goalRow && map.getGoal().getCol() == goalCol;
+    }
+
+    /**
+     * Get the heuristic distance from the specified cell to the goal
+     * 
+     * @param cell
+     *            see TileMap.getIndex()
+     * @return distance
+     */
+    public float getDistance(int cell)
+    {
+        return distances[cell];
+    }
+
+    /**
+     * Get the heuristic the table was built with
+     * 
+     * @return heuristic
+     */
+    public HeuristicScheme getHeuristic()
+    {
+        return heuristic;
+    }
+
+    /**
+     * Fills the rows of the table from first up to but not including last, splitting the rows in half until a task has
+     * few enough
+     */
+    private class FillTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int first;
+
+        private final int last;
+
+        public FillTask(int first, int last)
+        {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > ROWS_PER_TASK)
+            {
+                int middle = (first + last) >>> 1;
+                invokeAll(new FillTask(first, middle), new FillTask(middle, last));
+                return;
+            }
+
+            for (int r = first; r < last; r++)
+            {
+                for (int c = 0, cell = r * cols; c < cols; c++, cell++)
+                {
+                    distances[cell] = heuristic.distance(r, c, goalRow, goalCol);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package astargazer;
+
+import java.util.Arrays;
+
+import astargazer.map.TileMap;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * Iterative deepening A* (IDA*), which runs a depth first search from the start that skips any tile whose total cost is
+ * over a threshold, raising the threshold to the cheapest skipped total after each pass until the goal is reached. Only
+ * the tiles on the current path and their neighbors are kept, so the memory grows with the length of the path instead
+ * of the number of tiles reached.
+ * 
+ * A grid has many paths to each tile, which a plain depth first search walks again and again. A fixed size transposition
+ * table remembers the cheapest from cost (g) each tile was reached at in the current pass, and a tile reached again for
+ * no less is skipped because everything past it was already searched. Tiles that share an entry of the table replace
+ * each other, which only costs repeated work, so the table can be as small as the memory allows, or left out entirely
+ * 
+ * @author Matt Yanos
+ */
+public class IterativeDeepeningPathFinder extends BoundedPathFinder
+{
+    /**
+     * The number of entries of the transposition table, unless set otherwise
+     */
+    public static final int DEFAULT_TABLE_SIZE = 1 << 16;
+
+    // The transposition table, holding the cell, its cheapest from cost, and the pass it was reached in for each entry
+    private int[] tableCells;
+    private float[] tableCosts;
+    private int[] tablePasses;
+
+    /**
+     * The number of passes run by every search so far, which stamps the table entries of the current pass
+     */
+    private int pass;
+
+    /**
+     * The least the threshold is raised by after each pass
+     */
+    private float thresholdStep;
+
+    // The depth first stack, holding the cell, its from cost, and the range of its neighbors left to search at each depth
+    private int[] stackCells = new int[64];
+    private float[] stackCosts = new float[64];
+    private int[] stackNext = new int[64];
+    private int[] stackEnd = new int[64];
+
+    // The neighbors of every tile on the stack, with the neighbors of each depth after those of the depth before it
+    private int[] neighborCells = new int[512];
+    private float[] neighborCosts = new float[512];
+
+    /**
+     * Construct an IDA* search on the specified map with a transposition table of the default size
+     * 
+     * @param map
+     * @param heuristic
+     *            the means for determining distances
+     * @param neighborSelector
+     *            the means for determining valid neighbors
+     */
+    public IterativeDeepeningPathFinder(TileMap map, HeuristicScheme heuristic, NeighborSelector neighborSelector)
+    {
+        super(map, heuristic, neighborSelector);
+        setTableSize(DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * Set the number of entries of the transposition table, rounded up to a power of 2, each taking 12 bytes. A size of
+     * 0 searches without a table
+     * 
+     * @param size
+     */
+    public void setTableSize(int size)
+    {
+        if (size < 0 || size > 1 << 30)
+            throw new IllegalArgumentException("Invalid table size " + size);
+
+        int capacity = size == 0 ? 0 : 1;
+        while (capacity < size)
+            capacity <<= 1;
+        tableCells = new int[capacity];
+        tableCosts = new float[capacity];
+        tablePasses = new int[capacity];
+        pass = 0;
+    }
+
+    /**
+     * Set the least the threshold is raised by after each pass. With costs like the Euclidean distance nearly every path
+     * has a different total, so raising the threshold only to the cheapest skipped total takes a pass for each of them.
+     * Raising it by at least the step bounds the number of passes, and the path found costs less than the step more
+     * than the shortest path. A step of 0, the default, always finds the shortest path
+     * 
+     * @param thresholdStep
+     */
+    public void setThresholdStep(float thresholdStep)
+    {
+        this.thresholdStep = thresholdStep;
+    }
+
+    /**
+     * Get the number of entries of the transposition table
+     * 
+     * @return size
+     */
+    public int getTableSize()
+    {
+        return tableCells.length;
+    }
+
+    @Override
+    public int[] findPath(int start, int goal)
+    {
+        final int goalRow = map.getRow(goal);
+        final int goalCol = map.getCol(goal);
+
+        expanded = 0;
+        iterations = 0;
+        status = StatusEnum.COMPLETED_NOT_FOUND;
+        if (!map.isTraversable(map.getRow(start), map.getCol(start)) || !map.isTraversable(goalRow, goalCol))
+            return null;
+
+        if (start == goal)
+        {
+            cost = 0.0f;
+            status = StatusEnum.COMPLETED_FOUND;
+            return new int[] { start };
+        }
+
+        float threshold = estimate(start, goalRow, goalCol);
+        while (threshold != Float.POSITIVE_INFINITY)
+        {
+            iterations++;
+            float nextThreshold = Float.POSITIVE_INFINITY;
+
+            // A table entry is only used in the pass it was written in, so every pass starts with an empty table
+            pass++;
+            record(start, 0.0f);
+
+            int depth = 0;
+            push(0, start, 0.0f);
+
+            while (depth >= 0)
+            {
+                if (stackNext[depth] == stackEnd[depth])
+                {
+                    // Every neighbor of this tile was searched
+                    depth--;
+                    continue;
+                }
+
+                int i = stackNext[depth]++;
+                int cell = neighborCells[i];
+                float fromCost = stackCosts[depth] + neighborCosts[i];
+                float total = fromCost + estimate(cell, goalRow, goalCol);
+                if (total > threshold)
+                {
+                    nextThreshold = Math.min(nextThreshold, total);
+                    continue;
+                }
+
+                if (cell == goal)
+                {
+                    cost = fromCost;
+                    status = StatusEnum.COMPLETED_FOUND;
+                    int[] path = Arrays.copyOf(stackCells, depth + 2);
+                    path[depth + 1] = goal;
+                    return path;
+                }
+
+                if (!record(cell, fromCost))
+                    continue;
+
+                if (expanded == maxExpansions)
+                    return null;
+
+                depth++;
+                push(depth, cell, fromCost);
+            }
+
+            threshold = Math.max(nextThreshold, threshold + thresholdStep);
+        }
+        return null;
+    }
+
+    /**
+     * Expand a cell onto the stack at the specified depth, adding its neighbors after those of the depth before it
+     * 
+     * @param depth
+     * @param cell
+     * @param fromCost
+     */
+    private void push(int depth, int cell, float fromCost)
+    {
+        if (depth == stackCells.length)
+        {
+            int capacity = depth * 2;
+            stackCells = Arrays.copyOf(stackCells, capacity);
+            stackCosts = Arrays.copyOf(stackCosts, capacity);
+            stackNext = Arrays.copyOf(stackNext, capacity);
+            stackEnd = Arrays.copyOf(stackEnd, capacity);
+        }
+
+        int row = map.getRow(cell);
+        int col = map.getCol(cell);
+        int count = neighborSelector.getNeighbors(map, row, col, heuristic, neighbors);
+        int first = depth == 0 ? 0 : stackEnd[depth - 1];
+        if (first + count > neighborCells.length)
+        {
+            int capacity = Math.max(first + count, neighborCells.length * 2);
+            neighborCells = Arrays.copyOf(neighborCells, capacity);
+            neighborCosts = Arrays.copyOf(neighborCosts, capacity);
+        }
+
+        int end = first;
+        int prev = depth == 0 ? -1 : stackCells[depth - 1];
+        for (int i = 0; i < count; i++)
+        {
+            int next = neighbors.getCell(i);
+            if (next == prev)
+                continue;
+
+            // The step cost is weighted by the terrain cost of the tile being stepped onto
+            neighborCells[end] = next;
+            neighborCosts[end] = neighbors.getCost(i) * map.getCost(map.getRow(next), map.getCol(next));
+            end++;
+        }
+
+        stackCells[depth] = cell;
+        stackCosts[depth] = fromCost;
+        stackNext[depth] = first;
+        stackEnd[depth] = end;
+        expanded++;
+    }
+
+    /**
+     * Record that a cell was reached at the specified from cost in the current pass
+     * 
+     * @param cell
+     * @param fromCost
+     * @return false if the cell was already reached in this pass for no more, so searching past it again is wasted
+     */
+    private boolean record(int cell, float fromCost)
+    {
+        if (tableCells.length == 0)
+            return true;
+
+        int hash = cell * 0x9E3779B9;
+        int entry = (hash ^ hash >>> 16) & (tableCells.length - 1);
+        if (tablePasses[entry] == pass && tableCells[entry] == cell && tableCosts[entry] <= fromCost)
+            return false;
+
+        tableCells[entry] = cell;
+        tableCosts[entry] = fromCost;
+        tablePasses[entry] = pass;
+        return true;
+    }
+
+    @Override
+    public String getLabel()
+    {
+        return "IDA*";
+    }
+}
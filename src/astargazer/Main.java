@@ -1,6 +1,10 @@
 package astargazer;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 import astargazer.gui.Window;
+import astargazer.server.PathServer;
 
 /**
  * Run the A* Gazer Algorithm Visualizer
@@ -10,12 +14,25 @@ import astargazer.gui.Window;
 public class Main
 {
     /**
-     * Run the A* Gazer Algorithm Visualizer program
+     * Run the A* Gazer Algorithm Visualizer program, the path finding server when the first argument is "server", or
+     * the multi-agent benchmark when it is "benchmark"
      * 
      * @param args
+     * @throws IOException
      */
-    public static void main(String[] args)
+    public static void main(String[] args) throws IOException
     {
+        if (args.length > 0 && "server".equals(args[0]))
+        {
+            PathServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && "benchmark".equals(args[0]))
+        {
+            MultiAgentBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         new Window();
     }
 }
\ No newline at end of file
@@ -0,0 +1,697 @@
+package astargazer;
+
+import java.util.Arrays;
+
+import astargazer.map.TileMap;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * Simplified memory-bounded A* (SMA*), which searches like A* within a fixed number of nodes that is allocated once and
+ * never grows. Each node is a tile with the node before it, so the nodes in memory form a tree from the start. When a
+ * new node is needed and every node is taken, the worst leaf (the highest total cost (f = g + h), and the shallowest of
+ * those) is pruned, and its parent remembers the cheapest total of the children it forgot. A node with forgotten children
+ * stays on the open set at that total, so when nothing cheaper is left it is expanded again to regenerate them. The
+ * total of every expanded node is backed up to the cheapest total of its children, both in memory and forgotten, so a
+ * part of the map that was searched and found to lead nowhere cheaper is forgotten at its higher total and not searched
+ * again until nothing cheaper is left.
+ * 
+ * A tile is kept in memory at most once, at the cheapest from cost (g) found so far, and a cheaper way to it takes the
+ * node over, pruning whatever was searched past it. The shortest path is found when it fits within the maximum number
+ * of nodes, and otherwise the shortest of the paths that do fit, since a tile the memory cannot hold the path to is
+ * never put on the open set
+ * 
+ * @author Matt Yanos
+ */
+public class MemoryBoundedPathFinder extends BoundedPathFinder
+{
+    /**
+     * The maximum number of nodes, unless set otherwise
+     */
+    public static final int DEFAULT_MAX_NODES = 1 << 16;
+
+    // The nodes by index, holding the cell, from cost (g), backed up total cost (f), the cheapest total of the children
+    // left to generate and a bit for each of them by neighbor index, the parent and the neighbor index of the node among
+    // the neighbors of the parent, the depth, the number of children in memory, and the first child and siblings of each.
+    // A node that was never expanded has all of its children left to generate at its own total
+    private int[] nodeCells;
+    private float[] nodeFromCosts;
+    private float[] nodeTotals;
+    private float[] nodeForgotten;
+    private int[] nodeForgottenBits;
+    private int[] nodeParents;
+    private int[] nodeNeighborIndexes;
+    private int[] nodeDepths;
+    private int[] nodeChildCounts;
+    private int[] nodeFirstChildren;
+    private int[] nodeNextSiblings;
+    private int[] nodePrevSiblings;
+
+    /**
+     * The first free node, with the rest linked through nodeNextSiblings, or -1 if every node is taken
+     */
+    private int freeNode;
+
+    // The node of each cell in memory, in an open addressing hash table of cells with linear probing, -1 if empty
+    private int[] tableCells;
+    private int[] tableNodes;
+
+    /**
+     * The nodes with children left to generate, the cheapest of those children first
+     */
+    private NodeHeap openSet;
+
+    /**
+     * The nodes without children in memory, the worst first
+     */
+    private NodeHeap leaves;
+
+    /**
+     * Scratch stack for pruning the nodes past a node
+     */
+    private int[] pruneStack;
+
+    /**
+     * The node being expanded, which is never pruned
+     */
+    private int expanding;
+
+    /**
+     * The number of nodes pruned by the last search
+     */
+    private long pruned;
+
+    /**
+     * Construct an SMA* search on the specified map with the default maximum number of nodes
+     * 
+     * @param map
+     * @param heuristic
+     *            the means for determining distances
+     * @param neighborSelector
+     *            the means for determining valid neighbors
+     */
+    public MemoryBoundedPathFinder(TileMap map, HeuristicScheme heuristic, NeighborSelector neighborSelector)
+    {
+        super(map, heuristic, neighborSelector);
+        setMaxNodes(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Set the maximum number of nodes, allocating every node up front at about 100 bytes each
+     * 
+     * @param maxNodes
+     *            at least 2
+     */
+    public void setMaxNodes(int maxNodes)
+    {
+        if (maxNodes < 2 || maxNodes > 1 << 28)
+            throw new IllegalArgumentException("Invalid maximum number of nodes " + maxNodes);
+
+        nodeCells = new int[maxNodes];
+        nodeFromCosts = new float[maxNodes];
+        nodeTotals = new float[maxNodes];
+        nodeForgotten = new float[maxNodes];
+        nodeForgottenBits = new int[maxNodes];
+        nodeParents = new int[maxNodes];
+        nodeNeighborIndexes = new int[maxNodes];
+        nodeDepths = new int[maxNodes];
+        nodeChildCounts = new int[maxNodes];
+        nodeFirstChildren = new int[maxNodes];
+        nodeNextSiblings = new int[maxNodes];
+        nodePrevSiblings = new int[maxNodes];
+        pruneStack = new int[maxNodes];
+
+        int capacity = Integer.highestOneBit(maxNodes) << 2;
+        tableCells = new int[capacity];
+        tableNodes = new int[capacity];
+
+        openSet = new NodeHeap(maxNodes, nodeForgotten, false);
+        leaves = new NodeHeap(maxNodes, nodeTotals, true);
+    }
+
+    /**
+     * Get the maximum number of nodes
+     * 
+     * @return max nodes
+     */
+    public int getMaxNodes()
+    {
+        return nodeCells.length;
+    }
+
+    /**
+     * Get the number of nodes pruned by the last search
+     * 
+     * @return pruned
+     */
+    public long getPruned()
+    {
+        return pruned;
+    }
+
+    @Override
+    public int[] findPath(int start, int goal)
+    {
+        final int goalRow = map.getRow(goal);
+        final int goalCol = map.getCol(goal);
+
+        expanded = 0;
+        iterations = 0;
+        pruned = 0;
+        status = StatusEnum.COMPLETED_NOT_FOUND;
+        if (!map.isTraversable(map.getRow(start), map.getCol(start)) || !map.isTraversable(goalRow, goalCol))
+            return null;
+
+        // Every node starts out free
+        for (int node = 0; node < nodeCells.length; node++)
+        {
+            nodeNextSiblings[node] = node + 1;
+        }
+        nodeNextSiblings[nodeCells.length - 1] = -1;
+        freeNode = 0;
+        Arrays.fill(tableCells, -1);
+        openSet.clear();
+        leaves.clear();
+        expanding = -1;
+
+        int root = allocate(start, 0.0f, estimate(start, goalRow, goalCol), -1, -1);
+        openSet.add(root);
+        leaves.add(root);
+
+        while (!openSet.isEmpty())
+        {
+            int node = openSet.peek();
+            if (nodeCells[node] == goal)
+            {
+                cost = nodeFromCosts[node];
+                status = StatusEnum.COMPLETED_FOUND;
+                int[] path = new int[nodeDepths[node] + 1];
+                for (int n = node; n >= 0; n = nodeParents[n])
+                {
+                    path[nodeDepths[n]] = nodeCells[n];
+                }
+                return path;
+            }
+
+            if (expanded == maxExpansions)
+                return null;
+
+            openSet.remove(node);
+            leaves.remove(node);
+            expanded++;
+            expand(node, goalRow, goalCol);
+        }
+        return null;
+    }
+
+    /**
+     * Generate every neighbor of the specified node that is left to generate and not already in memory for less, pruning
+     * the worst leaves to make room, then put the node back on the open set if it forgot any of them. A neighbor that was
+     * skipped because it was in memory for less is not regenerated, since the node it was skipped for covers it
+     * 
+     * @param node
+     * @param goalRow
+     * @param goalCol
+     */
+    private void expand(int node, int goalRow, int goalCol)
+    {
+        expanding = node;
+        float total = nodeForgotten[node];
+        int forgottenBits = nodeForgottenBits[node];
+        nodeForgotten[node] = Float.POSITIVE_INFINITY;
+        nodeForgottenBits[node] = 0;
+
+        int cell = nodeCells[node];
+        int parentCell = nodeParents[node] < 0 ? -1 : nodeCells[nodeParents[node]];
+        int count = neighborSelector.getNeighbors(map, map.getRow(cell), map.getCol(cell), heuristic, neighbors);
+        for (int i = 0; i < count; i++)
+        {
+            int next = neighbors.getCell(i);
+            if (next == parentCell || (forgottenBits & getNeighborBit(i)) == 0)
+                continue;
+
+            // The step cost is weighted by the terrain cost of the tile being stepped onto, and a child never costs less
+            // in total than its parent
+            int nextRow = map.getRow(next);
+            int nextCol = map.getCol(next);
+            float fromCost = nodeFromCosts[node] + neighbors.getCost(i) * map.getCost(nextRow, nextCol);
+            float nextTotal = Math.max(total, fromCost + heuristic.distance(nextRow, nextCol, goalRow, goalCol));
+
+            int child = find(next);
+            if (child >= 0)
+            {
+                if (nodeFromCosts[child] <= fromCost)
+                    continue;
+
+                // A cheaper way to a tile in memory, so whatever was searched past it is out of date
+                int oldParent = nodeParents[child];
+                openSet.remove(child);
+                leaves.remove(child);
+                pruneDescendants(child);
+                detach(child);
+                requeue(oldParent);
+                attach(child, node, i, fromCost, nextTotal);
+                openSet.add(child);
+                leaves.add(child);
+                continue;
+            }
+
+            if (freeNode < 0)
+            {
+                // Prune the worst leaf, unless this child would be worse still, in which case it is forgotten instead.
+                // Without any leaf every node is on the path to this one, so the path to the child cannot fit at all
+                if (leaves.isEmpty())
+                    continue;
+
+                int worst = leaves.peek();
+                if (!isBetter(nextTotal, nodeDepths[node] + 1, nodeTotals[worst], nodeDepths[worst]))
+                {
+                    nodeForgotten[node] = Math.min(nodeForgotten[node], nextTotal);
+                    nodeForgottenBits[node] |= getNeighborBit(i);
+                    continue;
+                }
+                prune(worst);
+            }
+
+            child = allocate(next, fromCost, nextTotal, node, i);
+            openSet.add(child);
+            leaves.add(child);
+        }
+
+        expanding = -1;
+        requeue(node);
+    }
+
+    /**
+     * Back up the total of a node whose children changed to the cheapest total of them, and of each of its ancestors in
+     * turn while theirs change, then put the node back on the open set if it has forgotten children and on the leaves if
+     * it has no children in memory. Nothing is done for the node being expanded, which is requeued once it is done
+     * 
+     * @param node
+     */
+    private void requeue(int node)
+    {
+        if (node == expanding)
+            return;
+
+        openSet.remove(node);
+        leaves.remove(node);
+        nodeTotals[node] = getBackedUpTotal(node);
+        if (nodeForgotten[node] != Float.POSITIVE_INFINITY)
+        {
+            openSet.add(node);
+        }
+        if (nodeChildCounts[node] == 0)
+        {
+            // A leaf with nothing left to generate is a dead end, which is the worst leaf and pruned first
+            leaves.add(node);
+        }
+
+        // The ancestors have children, so they are not leaves and their totals do not order either heap
+        for (int n = nodeParents[node]; n >= 0 && n != expanding; n = nodeParents[n])
+        {
+            float total = getBackedUpTotal(n);
+            if (total == nodeTotals[n])
+                break;
+            nodeTotals[n] = total;
+        }
+    }
+
+    /**
+     * Get the cheapest total of the children of a node, both in memory and left to generate
+     * 
+     * @param node
+     * @return total, or infinity if the node has no children left
+     */
+    private float getBackedUpTotal(int node)
+    {
+        float total = nodeForgotten[node];
+        for (int child = nodeFirstChildren[node]; child >= 0; child = nodeNextSiblings[child])
+        {
+            total = Math.min(total, nodeTotals[child]);
+        }
+        return total;
+    }
+
+    /**
+     * Free a leaf, passing its total cost back to its parent as a forgotten child
+     * 
+     * @param leaf
+     */
+    private void prune(int leaf)
+    {
+        int parent = nodeParents[leaf];
+        float total = nodeTotals[leaf];
+        openSet.remove(leaf);
+        leaves.remove(leaf);
+        detach(leaf);
+        release(leaf);
+        pruned++;
+
+        nodeForgotten[parent] = Math.min(nodeForgotten[parent], total);
+        nodeForgottenBits[parent] |= getNeighborBit(nodeNeighborIndexes[leaf]);
+        requeue(parent);
+    }
+
+    /**
+     * Free every node past the specified node, without passing their costs back
+     * 
+     * @param node
+     */
+    private void pruneDescendants(int node)
+    {
+        int size = 0;
+        for (int child = nodeFirstChildren[node]; child >= 0; child = nodeNextSiblings[child])
+        {
+            pruneStack[size++] = child;
+        }
+        while (size > 0)
+        {
+            int n = pruneStack[--size];
+            for (int child = nodeFirstChildren[n]; child >= 0; child = nodeNextSiblings[child])
+            {
+                pruneStack[size++] = child;
+            }
+            openSet.remove(n);
+            leaves.remove(n);
+            release(n);
+        }
+        nodeFirstChildren[node] = -1;
+        nodeChildCounts[node] = 0;
+    }
+
+    /**
+     * Take a free node for a cell, as a child of the specified parent
+     * 
+     * @param cell
+     * @param fromCost
+     * @param total
+     * @param parent
+     *            the parent node, or -1
+     * @param neighborIndex
+     *            the index of the cell among the neighbors of the parent
+     * @return node
+     */
+    private int allocate(int cell, float fromCost, float total, int parent, int neighborIndex)
+    {
+        int node = freeNode;
+        freeNode = nodeNextSiblings[node];
+        nodeCells[node] = cell;
+        nodeChildCounts[node] = 0;
+        nodeFirstChildren[node] = -1;
+        attach(node, parent, neighborIndex, fromCost, total);
+
+        int entry = hash(cell);
+        while (tableCells[entry] >= 0)
+        {
+            entry = (entry + 1) & (tableCells.length - 1);
+        }
+        tableCells[entry] = cell;
+        tableNodes[entry] = node;
+        return node;
+    }
+
+    /**
+     * Return a node without children in memory to the free nodes
+     * 
+     * @param node
+     */
+    private void release(int node)
+    {
+        // Remove the cell from the hash table, shifting back any later cells of the same run that belong before the gap
+        int mask = tableCells.length - 1;
+        int gap = hash(nodeCells[node]);
+        while (tableCells[gap] != nodeCells[node])
+        {
+            gap = (gap + 1) & mask;
+        }
+        int entry = gap;
+        while (true)
+        {
+            entry = (entry + 1) & mask;
+            if (tableCells[entry] < 0)
+                break;
+            int home = hash(tableCells[entry]);
+            if (((entry - home) & mask) >= ((entry - gap) & mask))
+            {
+                tableCells[gap] = tableCells[entry];
+                tableNodes[gap] = tableNodes[entry];
+                gap = entry;
+            }
+        }
+        tableCells[gap] = -1;
+
+        nodeNextSiblings[node] = freeNode;
+        freeNode = node;
+    }
+
+    /**
+     * Link a node in as the first child of the specified parent
+     * 
+     * @param node
+     * @param parent
+     *            the parent node, or -1
+     * @param neighborIndex
+     *            the index of the node among the neighbors of the parent
+     * @param fromCost
+     * @param total
+     */
+    private void attach(int node, int parent, int neighborIndex, float fromCost, float total)
+    {
+        nodeFromCosts[node] = fromCost;
+        nodeTotals[node] = total;
+        nodeForgotten[node] = total;
+        nodeForgottenBits[node] = -1;
+        nodeParents[node] = parent;
+        nodeNeighborIndexes[node] = neighborIndex;
+        nodePrevSiblings[node] = -1;
+        if (parent < 0)
+        {
+            nodeDepths[node] = 0;
+            nodeNextSiblings[node] = -1;
+            return;
+        }
+
+        nodeDepths[node] = nodeDepths[parent] + 1;
+        nodeNextSiblings[node] = nodeFirstChildren[parent];
+        if (nodeFirstChildren[parent] >= 0)
+        {
+            nodePrevSiblings[nodeFirstChildren[parent]] = node;
+        }
+        nodeFirstChildren[parent] = node;
+        nodeChildCounts[parent]++;
+    }
+
+    /**
+     * Unlink a node from the children of its parent, which has to be requeued after
+     * 
+     * @param node
+     */
+    private void detach(int node)
+    {
+        int parent = nodeParents[node];
+        int prev = nodePrevSiblings[node];
+        int next = nodeNextSiblings[node];
+        if (prev >= 0)
+        {
+            nodeNextSiblings[prev] = next;
+        }
+        else
+        {
+            nodeFirstChildren[parent] = next;
+        }
+        if (next >= 0)
+        {
+            nodePrevSiblings[next] = prev;
+        }
+
+        nodeChildCounts[parent]--;
+    }
+
+    /**
+     * Get the node of the specified cell
+     * 
+     * @param cell
+     * @return node, or -1 if the cell is not in memory
+     */
+    private int find(int cell)
+    {
+        int entry = hash(cell);
+        while (tableCells[entry] >= 0)
+        {
+            if (tableCells[entry] == cell)
+                return tableNodes[entry];
+            entry = (entry + 1) & (tableCells.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Get the home entry of a cell in the hash table
+     * 
+     * @param cell
+     * @return entry
+     */
+    private int hash(int cell)
+    {
+        int hash = cell * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & (tableCells.length - 1);
+    }
+
+    /**
+     * Get the bit of the forgotten children for the specified neighbor index. The neighbors past the first 31 share the
+     * last bit, so forgetting one of them regenerates all of them
+     * 
+     * @param neighborIndex
+     * @return bit
+     */
+    private static int getNeighborBit(int neighborIndex)
+    {
+        return 1 << Math.min(neighborIndex, 31);
+    }
+
+    /**
+     * Whether a node of the first total and depth comes off the open set before one of the second: the cheaper total,
+     * and the deeper of equal totals
+     */
+    private static boolean isBetter(float total, int depth, float otherTotal, int otherDepth)
+    {
+        return total < otherTotal || (total == otherTotal && depth > otherDepth);
+    }
+
+    @Override
+    public String getLabel()
+    {
+        return "SMA*";
+    }
+
+    /**
+     * A binary heap of nodes that knows the position of each node, so any node can be removed. It orders the nodes by a
+     * cost and their depth, either the best first or the worst first
+     */
+    private class NodeHeap
+    {
+        private final int[] nodes;
+
+        /**
+         * The cost of each node, which must not change while the node is in the heap
+         */
+        private final float[] costs;
+
+        /**
+         * The position of each node in the heap, or -1 if it is not in the heap
+         */
+        private final int[] positions;
+
+        private final boolean worstFirst;
+
+        private int size;
+
+        NodeHeap(int capacity, float[] costs, boolean worstFirst)
+        {
+            this.nodes = new int[capacity];
+            this.costs = costs;
+            this.positions = new int[capacity];
+            this.worstFirst = worstFirst;
+            Arrays.fill(positions, -1);
+        }
+
+        void clear()
+        {
+            for (int i = 0; i < size; i++)
+            {
+                positions[nodes[i]] = -1;
+            }
+            size = 0;
+        }
+
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        int peek()
+        {
+            return nodes[0];
+        }
+
+        void add(int node)
+        {
+            if (positions[node] >= 0)
+                return;
+            nodes[size] = node;
+            positions[node] = size;
+            siftUp(size++);
+        }
+
+        void remove(int node)
+        {
+            int i = positions[node];
+            if (i < 0)
+                return;
+            positions[node] = -1;
+            size--;
+            if (i == size)
+                return;
+
+            int moved = nodes[size];
+            nodes[i] = moved;
+            positions[moved] = i;
+            siftUp(i);
+            if (positions[moved] == i)
+            {
+                siftDown(i);
+            }
+        }
+
+        /**
+         * Whether the node at position i comes before the node at position j
+         */
+        private boolean before(int i, int j)
+        {
+            int a = nodes[i];
+            int b = nodes[j];
+            if (worstFirst)
+                return isBetter(costs[b], nodeDepths[b], costs[a], nodeDepths[a]);
+            return isBetter(costs[a], nodeDepths[a], costs[b], nodeDepths[b]);
+        }
+
+        private void siftUp(int i)
+        {
+            while (i > 0)
+            {
+                int parent = (i - 1) >> 1;
+                if (!before(i, parent))
+                    break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i)
+        {
+            while (true)
+            {
+                int first = i;
+                int left = 2 * i + 1;
+                if (left < size && before(left, first))
+                    first = left;
+                if (left + 1 < size && before(left + 1, first))
+                    first = left + 1;
+                if (first == i)
+                    break;
+                swap(i, first);
+                i = first;
+            }
+        }
+
+        private void swap(int i, int j)
+        {
+            int node = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = node;
+            positions[nodes[i]] = i;
+            positions[nodes[j]] = j;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package astargazer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import astargazer.map.TileMap;
+import astargazer.map.WeightedPoint;
+import astargazer.map.generator.GenerationScheme;
+import astargazer.map.generator.MapGenerator;
+import astargazer.map.generator.MapManager;
+import astargazer.map.heuristic.HeuristicManhattan;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborFourDirections;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * Compares ConflictBasedSearch with CooperativePathFinder on every built-in map generator for growing numbers of
+ * agents moving in four directions, printing one row per generator and agent count. A conflict-based search that gives
+ * up at the node limit is shown as NODE_LIMIT_REACHED
+ * 
+ * @author Matt Yanos
+ */
+public class MultiAgentBenchmark
+{
+    /**
+     * The numbers of agents planned for on each map
+     */
+    public static final int[] AGENT_COUNTS = { 2, 5, 10, 20, 50, 100 };
+
+    /**
+     * The number of high-level nodes each conflict-based search may expand
+     */
+    public static final int MAX_NODES = 2000;
+
+    /**
+     * Run the benchmark
+     * 
+     * @param args
+     *            [rows cols [seed]], 32 by 32 with seed 1 by default
+     */
+    public static void main(String[] args)
+    {
+        int rows = args.length >= 2 ? Integer.parseInt(args[0]) : 32;
+        int cols = args.length >= 2 ? Integer.parseInt(args[1]) : 32;
+        int seed = args.length >= 3 ? Integer.parseInt(args[2]) : 1;
+
+        HeuristicScheme heuristic = new HeuristicManhattan();
+        NeighborSelector neighborSelector = new NeighborFourDirections();
+        ForkJoinPool pool = new ForkJoinPool();
+
+        System.out.println("Generator    Agents  CBS Status           Cost    Nodes  ms       WHCA* Status         Cost    ms");
+        for (GenerationScheme scheme : MapGenerator.getAllGenerators())
+        {
+            TileMap map = MapManager.getInstance().generate(seed, rows, cols, (MapGenerator)scheme);
+
+            // Agents are only placed on tiles connected to the start of the map, so every goal can be reached
+            FlowField reachable = new FlowField(map, heuristic, neighborSelector);
+            reachable.generate(map.getStart().getRow(), map.getStart().getCol());
+            List<Integer> cells = new ArrayList<Integer>();
+            for (int cell = 0; cell < rows * cols; cell++)
+            {
+                if (reachable.isReachable(map.getRow(cell), map.getCol(cell)))
+                    cells.add(cell);
+            }
+
+            for (int agents : AGENT_COUNTS)
+            {
+                if (agents > cells.size())
+                    break;
+
+                Random rnd = new Random(seed * 31 + agents);
+                List<WeightedPoint> starts = pickPoints(map, cells, agents, rnd);
+                List<WeightedPoint> goals = pickPoints(map, cells, agents, rnd);
+
+                ConflictBasedSearch cbs = new ConflictBasedSearch(map, heuristic, neighborSelector, pool);
+                cbs.setMaxNodes(MAX_NODES);
+                long cbsStart = System.nanoTime();
+                cbs.solve(starts, goals);
+                long cbsTime = System.nanoTime() - cbsStart;
+
+                // Giving up at the node limit is not the same as there being no collision free paths
+                String cbsStatus = cbs.isNodeLimitReached() ? "NODE_LIMIT_REACHED" : cbs.getStatus().toString();
+
+                CooperativePathFinder whca = new CooperativePathFinder(map, heuristic, neighborSelector);
+                long whcaStart = System.nanoTime();
+                List<List<WeightedPoint>> paths = whca.solve(starts, goals);
+                long whcaTime = System.nanoTime() - whcaStart;
+
+                // Every step and wait costs 1 on these maps, so the cost of a path is its number of ticks
+                int whcaCost = 0;
+                for (List<WeightedPoint> path : paths)
+                {
+                    whcaCost += path.size() - 1;
+                }
+
+                System.out.println(String.format("%-12s %6d  %-20s %6.0f %8d %5d    %-20s %6d %5d", scheme.getLabel(), agents,
+                                                 cbsStatus, cbs.getSumOfCosts(), cbs.getExpandedNodes(), cbsTime / 1000000,
+                                                 whca.getStatus(), whcaCost, whcaTime / 1000000));
+            }
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Pick the specified number of different points from the specified cells
+     * 
+     * @param map
+     * @param cells
+     * @param count
+     * @param rnd
+     * @return points
+     */
+    private static List<WeightedPoint> pickPoints(TileMap map, List<Integer> cells, int count, Random rnd)
+    {
+        List<Integer> remaining = new ArrayList<Integer>(cells);
+        List<WeightedPoint> points = new ArrayList<WeightedPoint>(count);
+        for (int i = 0; i < count; i++)
+        {
+            int cell = remaining.remove(rnd.nextInt(remaining.size()));
+            points.add(new WeightedPoint(map.getRow(cell), map.getCol(cell)));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,36 @@
+package astargazer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event sampling the size of the open and closed sets every SAMPLE_INTERVAL expansions of a
+ * search. It is disabled unless a recording enables it, so when it is off a search only checks whether it is enabled at each sample point
+ * 
+ * @author Matt Yanos
+ */
+@Name("astargazer.OpenSetSample")
+@Label("Open Set Sample")
+@Category("AStarGazer")
+@Description("The size of the open and closed sets part way through a search")
+@Enabled(false)
+public class OpenSetSampleEvent extends Event
+{
+    /**
+     * The number of expansions between samples
+     */
+    public static final int SAMPLE_INTERVAL = 1024;
+
+    @Label("Map Seed")
+    public int mapSeed;
+
+    @Label("Open Set Size")
+    public int openSetSize;
+
+    @Label("Closed Set Size")
+    public int closedSetSize;
+}
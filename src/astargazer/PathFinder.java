@@ -1,15 +1,16 @@
 package astargazer;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Random;
 
 import astargazer.map.TileMap;
 import astargazer.map.WeightedPoint;
 import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborBuffer;
 import astargazer.map.neighbor.NeighborSelector;
+import astargazer.map.smoothing.PathSmoother;
 
 /**
  * Uses the A* path finding algorithm to determine the optimal path between two points on a map
@@ -29,32 +30,123 @@ public class PathFinder
     private TileMap map;
 
     /**
-     * Tail of path being built by running this algorithm
+     * Cell value for a tile that has not been reached by the algorithm
      */
-    private WeightedPoint tail;
+    private static final byte CELL_UNSEEN = 0;
 
     /**
-     * Cursor point
+     * Cell value for a tile that is on the open set
      */
-    private WeightedPoint cursor;
+    private static final byte CELL_OPEN = 1;
 
     /**
-     * Points that have yet to be visited stored as a min-heap based on the point cost (Note that this "set" is actually
-     * a heap, so a manual test for whether the point being added should be used prior to calling push().) The heap is
-     * used for the open set to quickly return the point with the minimum cost.
+     * Cell value for a tile that is on the closed set
      */
-    private Heap<WeightedPoint> openSet;
+    private static final byte CELL_CLOSED = 2;
 
     /**
-     * Points that have already been visited
+     * The number of tiles above which the per cell values are stored by slot instead of in arrays covering every tile
      */
-    private Set<WeightedPoint> closedSet;
+    private static final int DENSE_CELL_LIMIT = 1 << 22;
+
+    /**
+     * Tail cell of path being built by running this algorithm
+     */
+    private int tail;
+
+    /**
+     * Cursor cell, or -1 if the algorithm has not yet started
+     */
+    private int cursor;
+
+    /**
+     * Cursor point, built from the cursor cell only when it is requested
+     */
+    private WeightedPoint cursorPoint;
+
+    /**
+     * Cells that have yet to be visited stored in a priority queue based on the cell cost. A cell is only pushed once,
+     * so the cell states are used to test whether a cell is already on the open set
+     */
+    private CellQueue openSet;
+
+    /**
+     * The number of cells that have already been visited
+     */
+    private int closedCount;
+
+    /**
+     * The slot of each cell that has been reached on a map with more than DENSE_CELL_LIMIT tiles, or null if the per
+     * cell values are indexed by TileMap.getIndex() directly
+     */
+    private CellSlotMap cellSlots;
+
+    /**
+     * Whether each cell is unseen, open, or closed, indexed by getSlot()
+     */
+    private byte[] cellStates;
+
+    /**
+     * The cost from the start to have reached each cell (g), indexed by getSlot()
+     */
+    private float[] fromCosts;
+
+    /**
+     * The estimated cost to go from each cell to the goal (h), indexed by getSlot()
+     */
+    private float[] toCosts;
+
+    /**
+     * The previous cell on the path from the start to each cell, or -1, indexed by getSlot()
+     */
+    private int[] prevCells;
+
+    /**
+     * Reusable buffer the neighbor selector writes the neighbors of the cursor into
+     */
+    private final NeighborBuffer neighbors = new NeighborBuffer();
+
+    /**
+     * Performance counters for the current search
+     */
+    private final SearchStats stats = new SearchStats();
+
+    /**
+     * Flight recorder event for the current search, begun at the first step and committed when the search completes, or
+     * null if the search has not started or has already been recorded
+     */
+    private SearchEvent searchEvent;
+
+    /**
+     * Whether to record a trace of each search
+     */
+    private boolean recordTrace;
+
+    /**
+     * The trace of the current search, or null if traces are not being recorded
+     */
+    private SearchTrace trace;
+
+    /**
+     * Random number generator used to shuffle the neighbors of the cursor
+     */
+    private final Random shuffler = new Random();
 
     /**
      * The means for determining distances
      */
     private HeuristicScheme heuristic;
 
+    /**
+     * The heuristic distances toward the goal set with setHeuristicTable(), or null
+     */
+    private HeuristicTable heuristicTable;
+
+    /**
+     * The heuristic table when it covers the current map and heuristic, otherwise null
+     */
+    private HeuristicTable activeHeuristicTable;
+
     /**
      * The means for determining valid neighbors
      */
@@ -70,6 +162,42 @@ public class PathFinder
      */
     private boolean shuffle;
 
+    /**
+     * Whether to search with Theta*, linking each neighbor straight to the parent of the cursor when there is a line of
+     * sight between them so that the path may turn at any angle
+     */
+    private boolean anyAngle;
+
+    /**
+     * How the open set orders cells with the same total cost (f)
+     */
+    private TieBreakEnum tieBreak = TieBreakEnum.NONE;
+
+    /**
+     * Whether to put a closed cell back on the open set when a cheaper way to reach it is found
+     */
+    private boolean reopenClosed;
+
+    /**
+     * The heap kept for the open set across searches on maps of the same size, which keeps the position of every cell
+     */
+    private CellHeap indexedHeap;
+
+    /**
+     * Whether to stop as soon as the goal is pushed onto the open set instead of when it is popped
+     */
+    private boolean goalOnGeneration;
+
+    /**
+     * The number of cells pushed onto the open set by the current search, for the last in, first out tie break
+     */
+    private long pushCount;
+
+    /**
+     * The smoothing stages applied in order by getSmoothedPath()
+     */
+    private PathSmoother[] pathSmoothers = new PathSmoother[0];
+
     /**
      * Whether the initial step of the algorithm has been taken, 
      * used to set the tail node and push the start onto the open set
@@ -113,7 +241,11 @@ public class PathFinder
      */
     public WeightedPoint getCursor()
     {
-        return cursor;
+        if (cursorPoint == null && cursor >= 0)
+        {
+            cursorPoint = getPoint(cursor);
+        }
+        return cursorPoint;
     }
 
     /**
@@ -125,25 +257,145 @@ public class PathFinder
     }
 
     /**
-     * Get the open set which contains points that have yet to be visited stored as a min-heap based on the point cost
-     * (Note that this "set" is actually a heap, so a manual test for whether the point being added should be used prior
-     * to calling push().) The heap is used for the open set to quickly return the point with the minimum cost.
+     * Get the performance counters of the current search, which are cleared when the PathFinder is reset
+     * 
+     * @return stats
+     */
+    public SearchStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Get the trace recorded of the current search, or null if traces are not being recorded
      * 
-     * @return the openSet
+     * @return trace
      */
-    public Heap<WeightedPoint> getOpenSet()
+    public SearchTrace getTrace()
     {
-        return openSet;
+        return trace;
     }
 
     /**
-     * Get the Closed Set
+     * Get the number of points on the open set, which contains points that have yet to be visited
      * 
-     * @return the closedSet
+     * @return open set size
      */
-    public Set<WeightedPoint> getClosedSet()
+    public int getOpenSetSize()
     {
-        return closedSet;
+        return openSet.size();
+    }
+
+    /**
+     * Get the number of points on the closed set, which contains points that have already been visited
+     * 
+     * @return closed set size
+     */
+    public int getClosedSetSize()
+    {
+        return closedCount;
+    }
+
+    /**
+     * Whether the specified tile is on the open set
+     * 
+     * @param row
+     * @param col
+     * @return open
+     */
+    public boolean isOpen(int row, int col)
+    {
+        return getState(map.getIndex(row, col)) == CELL_OPEN;
+    }
+
+    /**
+     * Whether the specified tile is on the closed set
+     * 
+     * @param row
+     * @param col
+     * @return closed
+     */
+    public boolean isClosed(int row, int col)
+    {
+        return getState(map.getIndex(row, col)) == CELL_CLOSED;
+    }
+
+    /**
+     * Get a point for the specified tile holding the costs calculated for it so far by the algorithm
+     * 
+     * @param row
+     * @param col
+     * @return point
+     */
+    public WeightedPoint getPoint(int row, int col)
+    {
+        return getPoint(map.getIndex(row, col));
+    }
+
+    /**
+     * Get a point for the specified cell holding the costs calculated for it so far by the algorithm
+     * 
+     * @param cell
+     * @return point
+     */
+    private WeightedPoint getPoint(int cell)
+    {
+        WeightedPoint wp = new WeightedPoint(map.getRow(cell), map.getCol(cell));
+        int slot = getSlot(cell);
+        if (slot >= 0 && cellStates[slot] != CELL_UNSEEN)
+        {
+            wp.setFromCost(fromCosts[slot]);
+            wp.setToCost(toCosts[slot]);
+        }
+        return wp;
+    }
+
+    /**
+     * Get the index of the specified cell in the per cell arrays, or -1 if the cell has not been reached on a map that
+     * stores its per cell values by slot
+     * 
+     * @param cell
+     * @return slot
+     */
+    private int getSlot(int cell)
+    {
+        return cellSlots == null ? cell : cellSlots.get(cell);
+    }
+
+    /**
+     * Get the index of the specified cell in the per cell arrays, assigning it a new slot (and growing the arrays to fit
+     * it) if it has not been reached on a map that stores its per cell values by slot
+     * 
+     * @param cell
+     * @return slot
+     */
+    private int addSlot(int cell)
+    {
+        if (cellSlots == null)
+            return cell;
+
+        int slot = cellSlots.add(cell);
+        if (slot == cellStates.length)
+        {
+            int capacity = cellStates.length * 2;
+            cellStates = Arrays.copyOf(cellStates, capacity);
+            fromCosts = Arrays.copyOf(fromCosts, capacity);
+            toCosts = Arrays.copyOf(toCosts, capacity);
+            prevCells = Arrays.copyOf(prevCells, capacity);
+        }
+        return slot;
+    }
+
+    /**
+     * Get whether the specified cell is unseen, open, or closed
+     * 
+     * @param cell
+     * @return state
+     */
+    private byte getState(int cell)
+    {
+        int slot = getSlot(cell);
+        return slot < 0 ? CELL_UNSEEN : cellStates[slot];
     }
 
     /**
@@ -154,6 +406,27 @@ public class PathFinder
     public void setHeuristic(HeuristicScheme heuristic)
     {
         this.heuristic = heuristic;
+
+        // A table of the distances of another heuristic no longer applies
+        if (heuristicTable != null && heuristicTable.getHeuristic() != heuristic)
+        {
+            heuristicTable = null;
+        }
+        activeHeuristicTable = heuristicTable != null && heuristicTable.covers(map, heuristic) ? heuristicTable : null;
+    }
+
+    /**
+     * Set a table of the heuristic distances toward the goal to look up instead of calculating each estimate. The table
+     * is used by every search whose map has the same size and goal and whose heuristic is the one the table was built
+     * with, and is dropped when the heuristic is changed to another one
+     * 
+     * @param heuristicTable
+     *            or null to calculate every estimate
+     */
+    public void setHeuristicTable(HeuristicTable heuristicTable)
+    {
+        this.heuristicTable = heuristicTable;
+        setHeuristic(heuristic);
     }
 
     /**
@@ -186,6 +459,74 @@ public class PathFinder
         this.shuffle = shuffle;
     }
 
+    /**
+     * Set whether to search with Theta*, linking each neighbor straight to the parent of the cursor when there is a line
+     * of sight between them, which finds near shortest paths that turn at any angle instead of zig-zagging along the
+     * neighbor directions
+     * 
+     * @param anyAngle
+     */
+    public void setAnyAngle(boolean anyAngle)
+    {
+        this.anyAngle = anyAngle;
+    }
+
+    /**
+     * Set how the open set orders cells with the same total cost (f). Takes effect from the next search
+     * 
+     * @param tieBreak
+     */
+    public void setTieBreak(TieBreakEnum tieBreak)
+    {
+        this.tieBreak = tieBreak;
+    }
+
+    /**
+     * Set whether to put a closed cell back on the open set when a cheaper way to reach it is found. A consistent
+     * heuristic never finds one, but an inconsistent one like the squared Euclidean distance can, and reopening the
+     * cell passes the cheaper cost on to everything reached through it at the price of expanding it again
+     * 
+     * @param reopenClosed
+     */
+    public void setReopenClosed(boolean reopenClosed)
+    {
+        this.reopenClosed = reopenClosed;
+    }
+
+    /**
+     * Set whether to stop as soon as the goal is pushed onto the open set instead of waiting until it is popped. This
+     * saves expanding every cell as cheap as the goal, but the path is only the shortest when every step costs the same,
+     * as with four directional movement over tiles of one terrain cost
+     * 
+     * @param goalOnGeneration
+     */
+    public void setGoalOnGeneration(boolean goalOnGeneration)
+    {
+        this.goalOnGeneration = goalOnGeneration;
+    }
+
+    /**
+     * Set the smoothing stages applied in order to the paths returned by getSmoothedPath()
+     * 
+     * @param pathSmoothers
+     *            the stages, or an empty array to leave paths as they were found
+     */
+    public void setPathSmoothers(PathSmoother[] pathSmoothers)
+    {
+        this.pathSmoothers = pathSmoothers;
+    }
+
+    /**
+     * Set whether to record a trace of every expansion of each search, which can be saved and replayed without running
+     * the search again. Takes effect from the next search
+     * 
+     * @param recordTrace
+     */
+    public void setRecordTrace(boolean recordTrace)
+    {
+        this.recordTrace = recordTrace;
+    }
+
     /**
      * Construct the PathFinder
      * 
@@ -229,17 +570,76 @@ public class PathFinder
     {
         this.map = map;
 
-        this.cursor = null;
+        this.tail = -1;
+        this.cursor = -1;
+        this.cursorPoint = null;
 
-        this.heuristic = heuristic;
         this.neighborSelector = neighborSelector;
+        setHeuristic(heuristic);
 
         this.initialStep = true;
 
         this.status = StatusEnum.RUNNING;
+        this.stats.reset();
+        this.searchEvent = null;
+        this.trace = null;
+
+        final int cellCount = map.getRows() * map.getCols();
+        this.openSet = new CellHeap();
+        this.closedCount = 0;
+
+        // On a huge map only the cells that are reached get a slot, so memory follows the area the search explores
+        final boolean sparse = cellCount > DENSE_CELL_LIMIT;
+        if (sparse && cellSlots != null)
+        {
+            // Keep the grown arrays of the last search, every slot is given a state as it is assigned
+            cellSlots.clear();
+        }
+        else if (!sparse && cellSlots == null && cellStates != null && cellStates.length == cellCount)
+        {
+            // Keep the arrays of the last search on a map of the same size. The other values of a cell are only read
+            // once it has been reached, so only the states need to be cleared
+            Arrays.fill(cellStates, CELL_UNSEEN);
+        }
+        else
+        {
+            this.cellSlots = sparse ? new CellSlotMap() : null;
+            final int slotCount = sparse ? 64 : cellCount;
+            this.cellStates = new byte[slotCount];
+            this.fromCosts = new float[slotCount];
+            this.toCosts = new float[slotCount];
+            this.prevCells = new int[slotCount];
+        }
+    }
 
-        this.openSet = new Heap<WeightedPoint>();
-        this.closedSet = new HashSet<WeightedPoint>();
+    /**
+     * Create the open set for the selected heuristic. When every cost is a whole number and the total cost never
+     * decreases along a path, a bucket queue pushes and pops in constant time, otherwise a binary heap is used. The heap
+     * keeps the position of each cell so a cheaper way to reach an open cell lowers its cost in place, except on maps
+     * too large to index every cell, where the cell is pushed again instead
+     * 
+     * @return openSet
+     */
+    private CellQueue createOpenSet()
+    {
+        // The buckets always pop cells of equal cost last in, first out, so other tie breaks need the heap. Straight
+        // line costs of Theta* are not whole numbers
+        boolean integral = heuristic != null && heuristic.isIntegral() && !anyAngle;
+        boolean monotone = dijkstra || (heuristic != null && heuristic.isConsistent());
+        boolean lifo = tieBreak == TieBreakEnum.NONE || tieBreak == TieBreakEnum.LIFO;
+        if (integral && monotone && lifo)
+            return new CellBucketQueue();
+
+        final int cellCount = map.getRows() * map.getCols();
+        if (cellCount > DENSE_CELL_LIMIT)
+            return new CellHeap();
+
+        if (indexedHeap == null || indexedHeap.getCellCount() != cellCount)
+        {
+            indexedHeap = new CellHeap(64, cellCount);
+        }
+        indexedHeap.clear();
+        return indexedHeap;
     }
 
     /**
@@ -250,7 +650,13 @@ public class PathFinder
      */
     public void step()
     {
+        long wallStart = System.nanoTime();
+        long cpuStart = SearchStats.getThreadCpuTime();
+
         status = stepInternal();
+
+        stats.addTime(System.nanoTime() - wallStart, SearchStats.getThreadCpuTime() - cpuStart);
+        commitSearchEvent();
     }
 
     /**
@@ -263,78 +669,223 @@ public class PathFinder
     {
         if (initialStep)
         {
-            this.tail = map.getStart();
-            this.openSet.push(map.getStart());
+            this.searchEvent = new SearchEvent();
+            this.searchEvent.begin();
+
+            this.openSet = createOpenSet();
+            int start = map.getIndex(map.getStart().getRow(), map.getStart().getCol());
+            int startSlot = addSlot(start);
+            this.tail = start;
+            this.fromCosts[startSlot] = map.getStart().getFromCost();
+            this.toCosts[startSlot] = 0;
+            this.prevCells[startSlot] = -1;
+            this.cellStates[startSlot] = CELL_OPEN;
+            if (recordTrace)
+            {
+                this.trace = new SearchTrace(map.getRows(), map.getCols(), map.getSeed(), start,
+                                             map.getIndex(map.getGoal().getRow(), map.getGoal().getCol()), fromCosts[startSlot]);
+            }
+            this.pushCount = 0;
+            this.openSet.push(start, fromCosts[startSlot], tieBreak.getTieBreak(fromCosts[startSlot], 0, pushCount++));
+            stats.countPush(openSet.size());
             initialStep = false;
         }
 
         if (status != StatusEnum.RUNNING)
             return status;
 
-        cursor = openSet.pop(); // Pull the cursor off the open set min-heap
-        if (cursor == null)
-        {
-            // The open set was empty, so although we have not reached the goal, there are no more points to investigate
-            return StatusEnum.COMPLETED_NOT_FOUND;
-        }
-
-        while (closedSet.contains(cursor) || !map.isTraversable(cursor))
+        cursorPoint = null;
+        do
         {
-            // The cursor is in the closed set (meaning it was already investigated) or the cursor point is non traversable on the map
-            cursor = openSet.pop();
-            if (cursor == null)
+            if (openSet.isEmpty())
             {
+                // The open set was empty, so although we have not reached the goal, there are no more points to investigate
+                cursor = -1;
                 return StatusEnum.COMPLETED_NOT_FOUND;
             }
+
+            // Pull the cursor off the open set priority queue, skipping it if it is in the closed set (meaning it was
+            // already investigated), if it was pushed again since at a lower cost, or if it is non traversable on the map
+            float cost = openSet.peekCost();
+            cursor = openSet.pop();
+            stats.countPop();
+            int slot = getSlot(cursor);
+            if (cellStates[slot] == CELL_OPEN && cost <= fromCosts[slot] + toCosts[slot] && map.isTraversable(map.getRow(cursor), map.getCol(cursor)))
+                break;
+        } while (true);
+
+        if (trace != null)
+        {
+            trace.beginStep(cursor);
         }
 
+        final int cursorRow = map.getRow(cursor);
+        final int cursorCol = map.getCol(cursor);
+
         // The goal has been reached, the path is complete
-        if (cursor.equals(map.getGoal()))
+        final WeightedPoint goal = map.getGoal();
+        if (cursorRow == goal.getRow() && cursorCol == goal.getCol())
         {
             tail = cursor; // Set the member tail to be used in the reconstruction done in getPath()
+            if (trace != null)
+            {
+                trace.endStep();
+            }
             return StatusEnum.COMPLETED_FOUND;
         }
 
         // Add the cursor point to the closed set
-        closedSet.add(cursor);
+        final int cursorSlot = getSlot(cursor);
+        cellStates[cursorSlot] = CELL_CLOSED;
+        closedCount++;
+
+        if (closedCount % OpenSetSampleEvent.SAMPLE_INTERVAL == 0)
+        {
+            sampleOpenSet();
+        }
+
+        // Get the neighboring cells and the cost to step to each of them
+        final int count = neighborSelector.getNeighbors(map, cursorRow, cursorCol, heuristic, neighbors);
+        stats.countExpansion(count);
+
+        if (shuffle)
+        {
+            // Shuffle the neighbors to randomize the order of testing nodes with the same cost value
+            neighbors.shuffle(shuffler);
+        }
 
-        // Get the list of neighboring points
-        List<WeightedPoint> neighbors = neighborSelector.getNeighbors(map, cursor, heuristic);
+        // With Theta* the neighbors may be linked to the parent of the cursor instead of the cursor
+        final int parent = anyAngle ? prevCells[cursorSlot] : -1;
 
-        // Link the neighbors to the cursor (for backtracking the path when the goal is reached) and calculate their weight
-        for (WeightedPoint wp : neighbors)
+        // Link the neighbors to the cursor (for backtracking the path when the goal is reached), calculate their weight,
+        // and put them on the open set
+        for (int i = 0; i < count; i++)
         {
-            if (map.isTraversable(wp.getRow(), wp.getCol()) && !closedSet.contains(wp))
+            int cell = neighbors.getCell(i);
+            int row = map.getRow(cell);
+            int col = map.getCol(cell);
+            byte state = getState(cell);
+            if ((state != CELL_CLOSED || reopenClosed) && map.isTraversable(row, col))
             {
-                wp.setFromCost(cursor.getFromCost() + heuristic.distance(cursor, wp));
+                // The step cost is weighted by the terrain cost of the tile being stepped onto
+                float fromCost = fromCosts[cursorSlot] + neighbors.getCost(i) * map.getCost(row, col);
+                int prev = cursor;
 
-                if (dijkstra)
+                if (parent >= 0)
+                {
+                    stats.countLineOfSightCheck();
+                    float lineCost = map.getLineCost(map.getRow(parent), map.getCol(parent), row, col);
+                    if (lineCost >= 0 && fromCosts[getSlot(parent)] + lineCost <= fromCost)
+                    {
+                        fromCost = fromCosts[getSlot(parent)] + lineCost;
+                        prev = parent;
+                    }
+                }
+
+                int slot = addSlot(cell);
+                if (state != CELL_UNSEEN)
+                {
+                    // Already reached, so only update it if this is a cheaper way to reach it
+                    if (fromCost >= fromCosts[slot])
+                        continue;
+                    if (state == CELL_CLOSED)
+                    {
+                        stats.countReopening();
+                        closedCount--;
+                    }
+                }
+                else if (dijkstra)
                 {
-                    wp.setToCost(0);
+                    toCosts[slot] = 0;
                 }
                 else
                 {
-                    wp.setToCost(heuristic.distance(wp, map.getGoal()));
+                    // Scale the distance by the cheapest terrain so the estimate never exceeds the real cost
+                    float distance = activeHeuristicTable != null ? activeHeuristicTable.getDistance(cell) : heuristic.distance(row, col, goal.getRow(), goal.getCol());
+                    toCosts[slot] = distance * map.getMinCost();
+                    stats.countHeuristicCall();
+                }
+                fromCosts[slot] = fromCost;
+                prevCells[slot] = prev;
+
+                cellStates[slot] = CELL_OPEN;
+                double tie = tieBreak.getTieBreak(fromCosts[slot], toCosts[slot], pushCount++);
+                if (state != CELL_OPEN || !openSet.decreaseCost(cell, fromCosts[slot] + toCosts[slot], tie))
+                {
+                    // A cell the open set cannot update is pushed again, and the more expensive entry is skipped when popped
+                    openSet.push(cell, fromCosts[slot] + toCosts[slot], tie);
+                    stats.countPush(openSet.size());
+                }
+                if (trace != null)
+                {
+                    trace.addPush(cell, prev, fromCosts[slot], toCosts[slot]);
+                }
+
+                if (goalOnGeneration && row == goal.getRow() && col == goal.getCol())
+                {
+                    tail = cell;
+                    if (trace != null)
+                    {
+                        trace.endStep();
+                    }
+                    return StatusEnum.COMPLETED_FOUND;
                 }
-                wp.setPrev(cursor);
             }
         }
 
-        if (shuffle)
+        if (trace != null)
         {
-            // Shuffle the neighbors to randomize the order of testing nodes with the same cost value
-            Collections.shuffle( neighbors );
+            trace.endStep();
         }
-        Collections.sort( neighbors );
 
-        // Put the neighbors on the open set
-        for (WeightedPoint wp : neighbors)
+        return StatusEnum.RUNNING;
+    }
+
+    /**
+     * Record the size of the open and closed sets if the flight recorder sample event is enabled
+     */
+    private void sampleOpenSet()
+    {
+        OpenSetSampleEvent sample = new OpenSetSampleEvent();
+        if (sample.isEnabled())
         {
-            if (!openSet.contains(wp))
-                openSet.push(wp);
+            sample.mapSeed = map.getSeed();
+            sample.openSetSize = openSet.size();
+            sample.closedSetSize = closedCount;
+            sample.commit();
         }
+    }
 
-        return StatusEnum.RUNNING;
+    /**
+     * Commit the flight recorder event for the search if the search has just completed
+     */
+    private void commitSearchEvent()
+    {
+        if (searchEvent == null || status == StatusEnum.RUNNING)
+            return;
+
+        searchEvent.end();
+        if (searchEvent.shouldCommit())
+        {
+            searchEvent.mapSeed = map.getSeed();
+            searchEvent.mapRows = map.getRows();
+            searchEvent.mapCols = map.getCols();
+            searchEvent.startRow = map.getStart().getRow();
+            searchEvent.startCol = map.getStart().getCol();
+            searchEvent.goalRow = map.getGoal().getRow();
+            searchEvent.goalCol = map.getGoal().getCol();
+            searchEvent.heuristic = heuristic == null ? null : heuristic.getLabel();
+            searchEvent.neighborSelector = neighborSelector == null ? null : neighborSelector.getLabel();
+            searchEvent.dijkstra = dijkstra;
+            searchEvent.status = status.name();
+            searchEvent.expanded = stats.getExpanded();
+            searchEvent.generated = stats.getGenerated();
+            searchEvent.peakOpenSetSize = stats.getPeakOpenSetSize();
+            searchEvent.pathLength = status == StatusEnum.COMPLETED_FOUND ? getPath().size() : 0;
+            searchEvent.cpuTime = stats.getCpuTime();
+            searchEvent.commit();
+        }
+        searchEvent = null;
     }
 
     /**
@@ -345,10 +896,16 @@ public class PathFinder
      */
     public StatusEnum solve()
     {
+        long wallStart = System.nanoTime();
+        long cpuStart = SearchStats.getThreadCpuTime();
+
         while (status == StatusEnum.RUNNING)
         {
-            step();
+            status = stepInternal();
         }
+
+        stats.addTime(System.nanoTime() - wallStart, SearchStats.getThreadCpuTime() - cpuStart);
+        commitSearchEvent();
         return status;
     }
 
@@ -374,6 +931,34 @@ public class PathFinder
         return getPath(this.tail);
     }
 
+    /**
+     * Constructs the path generated by the algorithm and passes it through the smoothing stages
+     * 
+     * @return
+     *         smoothed path
+     */
+    public List<WeightedPoint> getSmoothedPath()
+    {
+        return smoothPath(getPath());
+    }
+
+    /**
+     * Passes the specified path through the smoothing stages, see setPathSmoothers()
+     * 
+     * @param path
+     *            a path from the goal back to the start found on the current map
+     * @return
+     *         smoothed path
+     */
+    public List<WeightedPoint> smoothPath(List<WeightedPoint> path)
+    {
+        for (PathSmoother smoother : pathSmoothers)
+        {
+            path = smoother.smooth(map, path);
+        }
+        return path;
+    }
+
     /**
      * Constructs and returns a List version of the linked list generated by the algorithm from the specified cursor point
      * 
@@ -382,12 +967,30 @@ public class PathFinder
      *         path
      */
     public List<WeightedPoint> getPath(WeightedPoint cursor)
+    {
+        return getPath(cursor == null ? -1 : map.getIndex(cursor.getRow(), cursor.getCol()));
+    }
+
+    /**
+     * Constructs and returns a List version of the path linked by the previous cells from the specified cell
+     * 
+     * @param cell
+     * @return
+     *         path
+     */
+    private List<WeightedPoint> getPath(int cell)
     {
         List<WeightedPoint> path = new ArrayList<WeightedPoint>();
-        while (cursor != null)
+        WeightedPoint next = null;
+        while (cell >= 0)
         {
-            path.add(path.size(), cursor);
-            cursor = cursor.getPrev();
+            WeightedPoint wp = getPoint(cell);
+            if (next != null)
+                next.setPrev(wp);
+            path.add(path.size(), wp);
+            next = wp;
+            int slot = getSlot(cell);
+            cell = slot < 0 || cellStates[slot] == CELL_UNSEEN ? -1 : prevCells[slot];
         }
         return path;
     }
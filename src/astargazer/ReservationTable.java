@@ -0,0 +1,178 @@
+package astargazer;
+
+import java.util.Arrays;
+
+/**
+ * A space-time reservation table for cooperative path finding, recording which agent will occupy each map cell at each
+ * tick. The reservations are kept in an open addressing hash table of primitive longs, each packing a cell and a tick
+ * into a single key, so a table holding the plans of many agents does not allocate an object per reservation
+ * 
+ * @author Matt Yanos
+ */
+public class ReservationTable
+{
+    /**
+     * The key of an empty position in the hash table, which no cell and tick can pack to
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * The packed cell and tick in each position of the hash table, or EMPTY
+     */
+    private long[] keys;
+
+    /**
+     * The agent holding the reservation in each position of the hash table
+     */
+    private int[] agents;
+
+    /**
+     * The number of reservations
+     */
+    private int size;
+
+    /**
+     * Constructs an empty table
+     */
+    public ReservationTable()
+    {
+        this.keys = new long[64];
+        this.agents = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Pack a cell and a tick into a single key, the tick in the high int and the cell in the low int
+     * 
+     * @param cell
+     *            see TileMap.getIndex()
+     * @param tick
+     * @return key
+     */
+    public static long pack(int cell, int tick)
+    {
+        return ((long)tick << 32) | (cell & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reserve the specified cell at the specified tick for an agent, unless another agent already holds it
+     * 
+     * @param cell
+     * @param tick
+     * @param agent
+     * @return whether the agent now holds the reservation
+     */
+    public boolean reserve(int cell, int tick, int agent)
+    {
+        long key = pack(cell, tick);
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for (; keys[i] != EMPTY; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+                return agents[i] == agent;
+        }
+
+        keys[i] = key;
+        agents[i] = agent;
+        size++;
+
+        // Keep the table at most half full so the probe sequences stay short
+        if (size * 2 > keys.length)
+        {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Get the agent holding the specified cell at the specified tick
+     * 
+     * @param cell
+     * @param tick
+     * @return agent, or -1 if the cell is not reserved at that tick
+     */
+    public int getAgent(int cell, int tick)
+    {
+        long key = pack(cell, tick);
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+                return agents[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Whether the specified agent may occupy the specified cell at the specified tick, because no other agent holds it
+     * 
+     * @param cell
+     * @param tick
+     * @param agent
+     * @return free
+     */
+    public boolean isFree(int cell, int tick, int agent)
+    {
+        int holder = getAgent(cell, tick);
+        return holder < 0 || holder == agent;
+    }
+
+    /**
+     * The number of reservations
+     * 
+     * @return size
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Remove every reservation
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Move every reservation into a hash table of the specified capacity
+     * 
+     * @param capacity
+     *            a power of two
+     */
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        int[] oldAgents = agents;
+        keys = new long[capacity];
+        agents = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldKeys[j] == EMPTY)
+                continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            agents[i] = oldAgents[j];
+        }
+    }
+
+    /**
+     * Scramble the bits of a packed key so that neighboring cells and ticks spread across the hash table
+     * 
+     * @param key
+     * @return hash
+     */
+    private static int hash(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+}
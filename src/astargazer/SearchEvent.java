@@ -0,0 +1,72 @@
+package astargazer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for one search of a PathFinder, from the first step until the search completes, so the
+ * queries behind latency spikes can be picked out in a recording along with the settings they used. When the search is
+ * stepped by the window the duration includes the time between steps
+ * 
+ * @author Matt Yanos
+ */
+@Name("astargazer.Search")
+@Label("Path Search")
+@Category("AStarGazer")
+@Description("A search for a path between the start and goal of a map")
+public class SearchEvent extends Event
+{
+    @Label("Map Seed")
+    public int mapSeed;
+
+    @Label("Map Rows")
+    public int mapRows;
+
+    @Label("Map Columns")
+    public int mapCols;
+
+    @Label("Start Row")
+    public int startRow;
+
+    @Label("Start Column")
+    public int startCol;
+
+    @Label("Goal Row")
+    public int goalRow;
+
+    @Label("Goal Column")
+    public int goalCol;
+
+    @Label("Heuristic")
+    public String heuristic;
+
+    @Label("Neighbor Selector")
+    public String neighborSelector;
+
+    @Label("Dijkstra")
+    public boolean dijkstra;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Expanded")
+    public long expanded;
+
+    @Label("Generated")
+    public long generated;
+
+    @Label("Peak Open Set Size")
+    public long peakOpenSetSize;
+
+    @Label("Path Length")
+    @Description("The number of points on the path, or 0 if no path was found")
+    public int pathLength;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long cpuTime;
+}
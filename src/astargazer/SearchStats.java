@@ -0,0 +1,223 @@
+package astargazer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Performance counters for a single search of a PathFinder, cleared whenever the PathFinder is reset and filled in as
+ * the search steps. The same instance is kept for the life of the PathFinder, so it can be registered as an MBean once
+ * and watched over JMX across every search
+ * 
+ * @author Matt Yanos
+ */
+public class SearchStats implements SearchStatsMBean
+{
+    /**
+     * Used to read the CPU time of the searching thread
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private long expanded;
+
+    private long generated;
+
+    private long pushes;
+
+    private long pops;
+
+    private long peakOpenSetSize;
+
+    private long reopenings;
+
+    private long heuristicCalls;
+
+    private long lineOfSightChecks;
+
+    private long wallTime;
+
+    private long cpuTime;
+
+    /**
+     * Clear every counter for a new search
+     */
+    void reset()
+    {
+        expanded = 0;
+        generated = 0;
+        pushes = 0;
+        pops = 0;
+        peakOpenSetSize = 0;
+        reopenings = 0;
+        heuristicCalls = 0;
+        lineOfSightChecks = 0;
+        wallTime = 0;
+        cpuTime = 0;
+    }
+
+    /**
+     * Count an expanded cell and the number of neighbors produced for it
+     * 
+     * @param neighborCount
+     */
+    void countExpansion(int neighborCount)
+    {
+        expanded++;
+        generated += neighborCount;
+    }
+
+    /**
+     * Count a push onto the open set
+     * 
+     * @param openSetSize
+     *            the size of the open set after the push
+     */
+    void countPush(int openSetSize)
+    {
+        pushes++;
+        peakOpenSetSize = Math.max(peakOpenSetSize, openSetSize);
+    }
+
+    /**
+     * Count a pop off the open set
+     */
+    void countPop()
+    {
+        pops++;
+    }
+
+    /**
+     * Count a closed cell put back on the open set
+     */
+    void countReopening()
+    {
+        reopenings++;
+    }
+
+    /**
+     * Count a distance estimate from the heuristic
+     */
+    void countHeuristicCall()
+    {
+        heuristicCalls++;
+    }
+
+    /**
+     * Count a line of sight check between two cells
+     */
+    void countLineOfSightCheck()
+    {
+        lineOfSightChecks++;
+    }
+
+    /**
+     * Add time spent searching
+     * 
+     * @param wallTime
+     *            nanoseconds
+     * @param cpuTime
+     *            nanoseconds
+     */
+    void addTime(long wallTime, long cpuTime)
+    {
+        this.wallTime += wallTime;
+        this.cpuTime += cpuTime;
+    }
+
+    /**
+     * Get the CPU time used by the current thread so far
+     * 
+     * @return nanoseconds, or 0 if the JVM cannot measure thread CPU time
+     */
+    static long getThreadCpuTime()
+    {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * Register these stats with the platform MBean server under the name astargazer:type=SearchStats,name=(name)
+     * 
+     * @param name
+     *            a name telling this PathFinder apart from any others that are registered
+     * @return the object name the stats were registered under
+     * @throws JMException
+     *             if the name is invalid or already registered
+     */
+    public ObjectName register(String name) throws JMException
+    {
+        ObjectName objectName = new ObjectName("astargazer:type=SearchStats,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getExpanded()
+    {
+        return expanded;
+    }
+
+    @Override
+    public long getGenerated()
+    {
+        return generated;
+    }
+
+    @Override
+    public long getPushes()
+    {
+        return pushes;
+    }
+
+    @Override
+    public long getPops()
+    {
+        return pops;
+    }
+
+    @Override
+    public long getPeakOpenSetSize()
+    {
+        return peakOpenSetSize;
+    }
+
+    @Override
+    public long getReopenings()
+    {
+        return reopenings;
+    }
+
+    @Override
+    public long getHeuristicCalls()
+    {
+        return heuristicCalls;
+    }
+
+    @Override
+    public long getLineOfSightChecks()
+    {
+        return lineOfSightChecks;
+    }
+
+    @Override
+    public long getWallTime()
+    {
+        return wallTime;
+    }
+
+    @Override
+    public long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "expanded=" + expanded + " generated=" + generated + " pushes=" + pushes + " pops=" + pops +
+               " peakOpen=" + peakOpenSetSize + " reopenings=" + reopenings + " heuristicCalls=" + heuristicCalls +
+               " lineOfSightChecks=" + lineOfSightChecks +
+               " wall=" + wallTime + "ns cpu=" + cpuTime + "ns";
+    }
+}
@@ -0,0 +1,59 @@
+package astargazer;
+
+/**
+ * The management interface of SearchStats, exposing the counters of the current or last search of a PathFinder over JMX
+ * 
+ * @author Matt Yanos
+ */
+public interface SearchStatsMBean
+{
+    /**
+     * @return the number of cells taken off the open set and expanded
+     */
+    public long getExpanded();
+
+    /**
+     * @return the number of neighbors produced by the neighbor selector for the expanded cells
+     */
+    public long getGenerated();
+
+    /**
+     * @return the number of cells pushed onto the open set
+     */
+    public long getPushes();
+
+    /**
+     * @return the number of cells popped off the open set, including cells skipped because they were already closed
+     */
+    public long getPops();
+
+    /**
+     * @return the largest size the open set reached
+     */
+    public long getPeakOpenSetSize();
+
+    /**
+     * @return the number of closed cells put back on the open set because a cheaper route to them was found
+     */
+    public long getReopenings();
+
+    /**
+     * @return the number of times the heuristic estimated the distance to the goal
+     */
+    public long getHeuristicCalls();
+
+    /**
+     * @return the number of line of sight checks made by an any-angle search
+     */
+    public long getLineOfSightChecks();
+
+    /**
+     * @return the wall clock time spent searching in nanoseconds
+     */
+    public long getWallTime();
+
+    /**
+     * @return the CPU time spent searching in nanoseconds, or 0 if the JVM cannot measure thread CPU time
+     */
+    public long getCpuTime();
+}
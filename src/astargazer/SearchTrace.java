@@ -0,0 +1,349 @@
+package astargazer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A compact binary recording of the expansions of one search, which TraceReplay can play back over the same map
+ * without running the search again.
+ * 
+ * Each step is the cursor cell as the difference from the cursor of the previous step, followed by every neighbor pushed
+ * onto the open set as the difference from the cursor with its from cost (g) and to cost (h), and ended with a 0. The low
+ * bit of a neighbor is set when its previous cell is not the cursor, as in an any-angle search, and the previous cell
+ * follows as the difference from the cursor. The differences are zigzag encoded so that small negative values stay small, then written as variable length integers of
+ * 7 bits per byte, so most cells take one or two bytes. Costs are written as the 4 bytes of the float.
+ * 
+ * @author Matt Yanos
+ */
+public class SearchTrace
+{
+    /**
+     * The first int of a written trace, "ASTR" in ASCII
+     */
+    public static final int MAGIC = 0x41535452;
+
+    /**
+     * The version of the trace format written by this class
+     */
+    public static final int VERSION = 2;
+
+    private final int rows;
+
+    private final int cols;
+
+    private final int seed;
+
+    private final int startCell;
+
+    private final int goalCell;
+
+    /**
+     * The from cost (g) of the start
+     */
+    private final float startCost;
+
+    /**
+     * The encoded steps
+     */
+    private byte[] data;
+
+    /**
+     * The number of bytes of data used
+     */
+    private int size;
+
+    /**
+     * The number of steps recorded
+     */
+    private int stepCount;
+
+    /**
+     * The cursor of the last step recorded
+     */
+    private int lastCursor;
+
+    /**
+     * The cursor of the step being recorded
+     */
+    private int stepCursor;
+
+    /**
+     * Construct an empty trace of a search on the specified map
+     * 
+     * @param rows
+     * @param cols
+     * @param seed
+     * @param startCell
+     *            see TileMap.getIndex()
+     * @param goalCell
+     *            see TileMap.getIndex()
+     * @param startCost
+     *            the from cost (g) of the start
+     */
+    public SearchTrace(int rows, int cols, int seed, int startCell, int goalCell, float startCost)
+    {
+        this(rows, cols, seed, startCell, goalCell, startCost, new byte[256], 0, 0);
+    }
+
+    /**
+     * Construct a trace from the encoded steps
+     */
+    private SearchTrace(int rows, int cols, int seed, int startCell, int goalCell, float startCost, byte[] data, int size, int stepCount)
+    {
+        this.rows = rows;
+        this.cols = cols;
+        this.seed = seed;
+        this.startCell = startCell;
+        this.goalCell = goalCell;
+        this.startCost = startCost;
+        this.data = data;
+        this.size = size;
+        this.stepCount = stepCount;
+        this.lastCursor = startCell;
+    }
+
+    /**
+     * Start recording a step that expands the specified cursor
+     * 
+     * @param cursor
+     */
+    void beginStep(int cursor)
+    {
+        writeVarint(zigzag(cursor - lastCursor));
+        lastCursor = cursor;
+        stepCursor = cursor;
+    }
+
+    /**
+     * Record a neighbor of the cursor pushed onto the open set
+     * 
+     * @param cell
+     * @param prev
+     *            the previous cell on the path to the neighbor
+     * @param fromCost
+     * @param toCost
+     */
+    void addPush(int cell, int prev, float fromCost, float toCost)
+    {
+        if (prev == stepCursor)
+        {
+            writeVarint(zigzag(cell - stepCursor) << 1);
+        }
+        else
+        {
+            writeVarint((zigzag(cell - stepCursor) << 1) | 1);
+            writeVarint(zigzag(prev - stepCursor));
+        }
+        writeInt(Float.floatToRawIntBits(fromCost));
+        writeInt(Float.floatToRawIntBits(toCost));
+    }
+
+    /**
+     * Finish recording the current step
+     */
+    void endStep()
+    {
+        // A neighbor is never the cursor itself, so a difference of 0 marks the end of the step
+        writeVarint(0);
+        stepCount++;
+    }
+
+    /**
+     * Map a signed integer to an unsigned one, interleaving the negative and positive values
+     */
+    private static int zigzag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Reverse zigzag()
+     */
+    static int unzigzag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Write an unsigned variable length integer, 7 bits per byte with the high bit set on every byte but the last
+     */
+    private void writeVarint(int value)
+    {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0)
+        {
+            data[size++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte)value;
+    }
+
+    /**
+     * Write a big-endian int
+     */
+    private void writeInt(int value)
+    {
+        ensureCapacity(4);
+        data[size++] = (byte)(value >>> 24);
+        data[size++] = (byte)(value >>> 16);
+        data[size++] = (byte)(value >>> 8);
+        data[size++] = (byte)value;
+    }
+
+    /**
+     * Grow the data to fit the specified number of additional bytes
+     */
+    private void ensureCapacity(int bytes)
+    {
+        if (size + bytes > data.length)
+        {
+            data = Arrays.copyOf(data, Math.max(size + bytes, data.length * 2));
+        }
+    }
+
+    /**
+     * Write the trace to the specified stream
+     * 
+     * @param stream
+     * @throws IOException
+     */
+    public void write(OutputStream stream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(rows);
+        out.writeInt(cols);
+        out.writeInt(seed);
+        out.writeInt(startCell);
+        out.writeInt(goalCell);
+        out.writeFloat(startCost);
+        out.writeInt(stepCount);
+        out.writeInt(size);
+        out.write(data, 0, size);
+        out.flush();
+    }
+
+    /**
+     * Read a trace written by write() from the specified stream
+     * 
+     * @param stream
+     * @return trace
+     * @throws IOException
+     */
+    public static SearchTrace read(InputStream stream) throws IOException
+    {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a search trace");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported search trace version " + version);
+
+        int rows = in.readInt();
+        int cols = in.readInt();
+        int seed = in.readInt();
+        int startCell = in.readInt();
+        int goalCell = in.readInt();
+        float startCost = in.readFloat();
+        int stepCount = in.readInt();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+
+        return new SearchTrace(rows, cols, seed, startCell, goalCell, startCost, data, data.length, stepCount);
+    }
+
+    /**
+     * Get the number of rows of the map searched
+     * 
+     * @return number of rows
+     */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns of the map searched
+     * 
+     * @return number of columns
+     */
+    public int getCols()
+    {
+        return cols;
+    }
+
+    /**
+     * Get the seed of the map searched
+     * 
+     * @return seed
+     */
+    public int getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Get the start cell of the search, see TileMap.getIndex()
+     * 
+     * @return start cell
+     */
+    public int getStartCell()
+    {
+        return startCell;
+    }
+
+    /**
+     * Get the goal cell of the search, see TileMap.getIndex()
+     * 
+     * @return goal cell
+     */
+    public int getGoalCell()
+    {
+        return goalCell;
+    }
+
+    /**
+     * Get the from cost (g) of the start
+     * 
+     * @return start cost
+     */
+    public float getStartCost()
+    {
+        return startCost;
+    }
+
+    /**
+     * Get the number of steps recorded
+     * 
+     * @return step count
+     */
+    public int getStepCount()
+    {
+        return stepCount;
+    }
+
+    /**
+     * Get the number of bytes used by the encoded steps
+     * 
+     * @return size
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Get the encoded steps, of which only the first getSize() bytes are used
+     * 
+     * @return data
+     */
+    byte[] getData()
+    {
+        return data;
+    }
+}
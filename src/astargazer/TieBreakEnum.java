@@ -0,0 +1,58 @@
+package astargazer;
+
+/**
+ * How the open set orders cells with the same total cost (f). On maps with large areas of equal cost the search would
+ * otherwise expand every cell on the plateau of equal f before reaching the goal, while preferring the cells furthest
+ * along their paths heads straight for it
+ * 
+ * @author Matt Yanos
+ */
+public enum TieBreakEnum
+{
+    NONE("Heap Order"), 
+    LARGER_G("Larger g"), 
+    SMALLER_H("Smaller h"), 
+    LIFO("Last In, First Out");
+
+    /**
+     * The label shown for the policy
+     */
+    private final String label;
+
+    private TieBreakEnum(String label)
+    {
+        this.label = label;
+    }
+
+    /**
+     * Get the key that orders a cell among the cells of the same total cost on the open set, smallest first
+     * 
+     * @param fromCost
+     *            the from cost (g) of the cell
+     * @param toCost
+     *            the to cost (h) of the cell
+     * @param pushCount
+     *            the number of cells pushed onto the open set before this one
+     * @return tie break
+     */
+    public double getTieBreak(float fromCost, float toCost, long pushCount)
+    {
+        switch (this)
+        {
+            case LARGER_G:
+                return -fromCost;
+            case SMALLER_H:
+                return toCost;
+            case LIFO:
+                return -pushCount;
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return label;
+    }
+}
@@ -0,0 +1,388 @@
+package astargazer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import astargazer.map.TileMap;
+import astargazer.map.WeightedPoint;
+
+/**
+ * Plays a SearchTrace back over the map it was recorded on, rebuilding the open and closed sets, the costs, and the
+ * cursor after any number of steps. Stepping forward applies the recorded step, and every value a step overwrites is
+ * kept in an undo log so stepping backward restores it, so seeking to any step only costs the steps between the current
+ * step and that one and never runs the search again
+ * 
+ * @author Matt Yanos
+ */
+public class TraceReplay
+{
+    private static final byte CELL_UNSEEN = 0;
+
+    private static final byte CELL_OPEN = 1;
+
+    private static final byte CELL_CLOSED = 2;
+
+    /**
+     * The trace being played
+     */
+    private final SearchTrace trace;
+
+    /**
+     * The map the trace was recorded on
+     */
+    private final TileMap map;
+
+    /**
+     * The offset of each step in the trace data, with the size of the data at the end
+     */
+    private final int[] stepOffsets;
+
+    /**
+     * The cursor of each step
+     */
+    private final int[] stepCursors;
+
+    /**
+     * The number of steps that have been applied
+     */
+    private int step;
+
+    /**
+     * The cursor cell of the last applied step, or -1 before the first step
+     */
+    private int cursor;
+
+    /**
+     * Whether each cell is unseen, open, or closed, indexed by TileMap.getIndex()
+     */
+    private final byte[] cellStates;
+
+    /**
+     * The from cost (g) of each cell, indexed by TileMap.getIndex()
+     */
+    private final float[] fromCosts;
+
+    /**
+     * The to cost (h) of each cell, indexed by TileMap.getIndex()
+     */
+    private final float[] toCosts;
+
+    /**
+     * The previous cell on the path to each cell, or -1, indexed by TileMap.getIndex()
+     */
+    private final int[] prevCells;
+
+    // The undo log holds the cell and its previous values for every value overwritten by the applied steps
+    private int[] undoCells = new int[64];
+    private byte[] undoStates = new byte[64];
+    private float[] undoFromCosts = new float[64];
+    private float[] undoToCosts = new float[64];
+    private int[] undoPrevCells = new int[64];
+    private int undoSize;
+
+    /**
+     * The size of the undo log before each applied step
+     */
+    private final int[] stepUndoSizes;
+
+    /**
+     * Construct a TraceReplay positioned before the first step of the trace
+     * 
+     * @param map
+     *            the map the trace was recorded on
+     * @param trace
+     */
+    public TraceReplay(TileMap map, SearchTrace trace)
+    {
+        if (map.getRows() != trace.getRows() || map.getCols() != trace.getCols())
+        {
+            throw new IllegalArgumentException("The trace was recorded on a " + trace.getRows() + "x" + trace.getCols() + " map, not " + map.getRows() + "x" + map.getCols());
+        }
+
+        this.map = map;
+        this.trace = trace;
+
+        final int cellCount = map.getRows() * map.getCols();
+        this.cellStates = new byte[cellCount];
+        this.fromCosts = new float[cellCount];
+        this.toCosts = new float[cellCount];
+        this.prevCells = new int[cellCount];
+
+        this.stepOffsets = new int[trace.getStepCount() + 1];
+        this.stepCursors = new int[trace.getStepCount()];
+        this.stepUndoSizes = new int[trace.getStepCount()];
+        indexSteps();
+
+        // Before the first step only the start is on the open set
+        this.cursor = -1;
+        int start = trace.getStartCell();
+        cellStates[start] = CELL_OPEN;
+        fromCosts[start] = trace.getStartCost();
+        prevCells[start] = -1;
+    }
+
+    /**
+     * Find the offset and cursor of every step in the trace data
+     */
+    private void indexSteps()
+    {
+        byte[] data = trace.getData();
+        int[] position = new int[] { 0 };
+        int lastCursor = trace.getStartCell();
+        for (int i = 0; i < stepCursors.length; i++)
+        {
+            stepOffsets[i] = position[0];
+            lastCursor += SearchTrace.unzigzag(readVarint(data, position));
+            stepCursors[i] = lastCursor;
+
+            int push;
+            while ((push = readVarint(data, position)) != 0)
+            {
+                // Skip the previous cell and the costs of the push
+                if ((push & 1) != 0)
+                {
+                    readVarint(data, position);
+                }
+                position[0] += 8;
+            }
+        }
+        stepOffsets[stepCursors.length] = position[0];
+    }
+
+    /**
+     * Apply the next step
+     * 
+     * @return whether there was a step to apply
+     */
+    public boolean stepForward()
+    {
+        if (step == stepCursors.length)
+            return false;
+
+        byte[] data = trace.getData();
+        int[] position = new int[] { stepOffsets[step] };
+        readVarint(data, position);
+
+        stepUndoSizes[step] = undoSize;
+        cursor = stepCursors[step];
+
+        // The search ends when the goal is popped, without closing it
+        if (cursor != trace.getGoalCell())
+        {
+            saveCell(cursor);
+            cellStates[cursor] = CELL_CLOSED;
+        }
+
+        int push;
+        while ((push = readVarint(data, position)) != 0)
+        {
+            int cell = cursor + SearchTrace.unzigzag(push >>> 1);
+            int prev = (push & 1) != 0 ? cursor + SearchTrace.unzigzag(readVarint(data, position)) : cursor;
+            saveCell(cell);
+            cellStates[cell] = CELL_OPEN;
+            fromCosts[cell] = Float.intBitsToFloat(readInt(data, position));
+            toCosts[cell] = Float.intBitsToFloat(readInt(data, position));
+            prevCells[cell] = prev;
+        }
+
+        step++;
+        return true;
+    }
+
+    /**
+     * Undo the last applied step
+     * 
+     * @return whether there was a step to undo
+     */
+    public boolean stepBackward()
+    {
+        if (step == 0)
+            return false;
+
+        step--;
+        while (undoSize > stepUndoSizes[step])
+        {
+            undoSize--;
+            int cell = undoCells[undoSize];
+            cellStates[cell] = undoStates[undoSize];
+            fromCosts[cell] = undoFromCosts[undoSize];
+            toCosts[cell] = undoToCosts[undoSize];
+            prevCells[cell] = undoPrevCells[undoSize];
+        }
+        cursor = step > 0 ? stepCursors[step - 1] : -1;
+        return true;
+    }
+
+    /**
+     * Step forward or backward until the specified number of steps have been applied
+     * 
+     * @param target
+     *            between 0 and getStepCount()
+     */
+    public void seek(int target)
+    {
+        target = Math.max(0, Math.min(stepCursors.length, target));
+        while (step < target)
+            stepForward();
+        while (step > target)
+            stepBackward();
+    }
+
+    /**
+     * Add the current values of the specified cell to the undo log
+     * 
+     * @param cell
+     */
+    private void saveCell(int cell)
+    {
+        if (undoSize == undoCells.length)
+        {
+            int capacity = undoSize * 2;
+            undoCells = Arrays.copyOf(undoCells, capacity);
+            undoStates = Arrays.copyOf(undoStates, capacity);
+            undoFromCosts = Arrays.copyOf(undoFromCosts, capacity);
+            undoToCosts = Arrays.copyOf(undoToCosts, capacity);
+            undoPrevCells = Arrays.copyOf(undoPrevCells, capacity);
+        }
+        undoCells[undoSize] = cell;
+        undoStates[undoSize] = cellStates[cell];
+        undoFromCosts[undoSize] = fromCosts[cell];
+        undoToCosts[undoSize] = toCosts[cell];
+        undoPrevCells[undoSize] = prevCells[cell];
+        undoSize++;
+    }
+
+    /**
+     * Read a variable length integer written by SearchTrace, advancing the position past it
+     */
+    private static int readVarint(byte[] data, int[] position)
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Read a big-endian int, advancing the position past it
+     */
+    private static int readInt(byte[] data, int[] position)
+    {
+        int p = position[0];
+        position[0] += 4;
+        return ((data[p] & 0xFF) << 24) | ((data[p + 1] & 0xFF) << 16) | ((data[p + 2] & 0xFF) << 8) | (data[p + 3] & 0xFF);
+    }
+
+    /**
+     * Get the number of steps that have been applied
+     * 
+     * @return step
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * Get the number of steps in the trace
+     * 
+     * @return step count
+     */
+    public int getStepCount()
+    {
+        return stepCursors.length;
+    }
+
+    /**
+     * Get the map the trace was recorded on
+     * 
+     * @return map
+     */
+    public TileMap getMap()
+    {
+        return map;
+    }
+
+    /**
+     * Whether the specified tile is on the open set after the applied steps
+     * 
+     * @param row
+     * @param col
+     * @return open
+     */
+    public boolean isOpen(int row, int col)
+    {
+        return cellStates[map.getIndex(row, col)] == CELL_OPEN;
+    }
+
+    /**
+     * Whether the specified tile is on the closed set after the applied steps
+     * 
+     * @param row
+     * @param col
+     * @return closed
+     */
+    public boolean isClosed(int row, int col)
+    {
+        return cellStates[map.getIndex(row, col)] == CELL_CLOSED;
+    }
+
+    /**
+     * Get the cursor of the last applied step, or null before the first step
+     * 
+     * @return cursor
+     */
+    public WeightedPoint getCursor()
+    {
+        return cursor < 0 ? null : getPoint(map.getRow(cursor), map.getCol(cursor));
+    }
+
+    /**
+     * Get a point for the specified tile holding its costs after the applied steps
+     * 
+     * @param row
+     * @param col
+     * @return point
+     */
+    public WeightedPoint getPoint(int row, int col)
+    {
+        WeightedPoint wp = new WeightedPoint(row, col);
+        int cell = map.getIndex(row, col);
+        if (cellStates[cell] != CELL_UNSEEN)
+        {
+            wp.setFromCost(fromCosts[cell]);
+            wp.setToCost(toCosts[cell]);
+        }
+        return wp;
+    }
+
+    /**
+     * Constructs and returns the path from the specified point back to the start after the applied steps
+     * 
+     * @param cursor
+     * @return path
+     */
+    public List<WeightedPoint> getPath(WeightedPoint cursor)
+    {
+        List<WeightedPoint> path = new ArrayList<WeightedPoint>();
+        int cell = cursor == null ? -1 : map.getIndex(cursor.getRow(), cursor.getCol());
+        WeightedPoint next = null;
+        while (cell >= 0)
+        {
+            WeightedPoint wp = getPoint(map.getRow(cell), map.getCol(cell));
+            if (next != null)
+                next.setPrev(wp);
+            path.add(wp);
+            next = wp;
+            cell = cellStates[cell] == CELL_UNSEEN ? -1 : prevCells[cell];
+        }
+        return path;
+    }
+}
@@ -23,6 +23,7 @@ import javax.swing.tree.TreeSelectionModel;
 
 import astargazer.map.heuristic.HeuristicScheme;
 import astargazer.map.neighbor.NeighborSelector;
+import astargazer.map.smoothing.PathSmoother;
 
 public class HelpPopup extends JDialog
 {
@@ -169,8 +170,14 @@ public class HelpPopup extends JDialog
                                                                    "not returning neighbors that represent impassible terrain."
                                             );
 
+        HelpNode smoothingNode = new HelpNode("Path Smoothing", "Path smoothing stages post process a path after it has been found, dropping points " + 
+                                                                "so that the path is shorter and has fewer turns to follow. The stages are applied one " + 
+                                                                "after another, each smoothing the path left by the one before it."
+                                            );
+
         top.add(heuristicNode);
         top.add(neighborNode);
+        top.add(smoothingNode);
 
         HeuristicScheme[] heuristics = HeuristicScheme.getAllHeuristics();
         NeighborSelector[] neighborSelectors = NeighborSelector.getAllNeighborSelectors();
@@ -185,6 +192,12 @@ public class HelpPopup extends JDialog
             neighborNode.add(new HelpNode(neighborSelectors[i].getLabel(), neighborSelectors[i].getExplanation()));
         }
 
+        PathSmoother[] pathSmoothers = PathSmoother.getAllPathSmoothers();
+        for (int i = 0; i < pathSmoothers.length; i++)
+        {
+            smoothingNode.add(new HelpNode(pathSmoothers[i].getLabel(), pathSmoothers[i].getExplanation()));
+        }
+
         return top;
     }
 
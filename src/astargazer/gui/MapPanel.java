@@ -8,15 +8,19 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
 import java.util.List;
 
 import javax.swing.JPanel;
+import javax.swing.Timer;
 import javax.swing.event.MouseInputListener;
 
 import astargazer.PathFinder;
+import astargazer.TraceReplay;
 import astargazer.map.TileMap;
 import astargazer.map.WeightedPoint;
 
@@ -27,6 +31,11 @@ import astargazer.map.WeightedPoint;
  */
 public class MapPanel extends JPanel implements MouseInputListener, ComponentListener
 {
+    /**
+     * The number of shades used to draw the terrain cost of the tiles
+     */
+    private static final int TERRAIN_TIERS = 5;
+
     /**
      * The PathFinder that determines the path between the start and the goal points on the tilemap
      */
@@ -97,6 +106,16 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
      */
     private int tempOffsetY;
 
+    /**
+     * The trace being replayed in place of the search of the PathFinder, or null to draw the PathFinder
+     */
+    private TraceReplay replay;
+
+    /**
+     * Timer stepping the replay while it is playing, or null if it is not playing
+     */
+    private Timer replayTimer;
+
     /**
      * Construct a MapPanel for the specified PathFinder
      * 
@@ -196,6 +215,169 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
         this.displayGrid = displayGrid;
     }
 
+    /**
+     * Set the trace to draw in place of the search of the PathFinder, or null to go back to drawing the PathFinder. The
+     * trace must have been recorded on the map of the PathFinder, and it is dropped once the PathFinder moves to another
+     * map
+     * 
+     * @param replay
+     */
+    public void setReplay(TraceReplay replay)
+    {
+        stopReplay();
+        this.replay = replay;
+        repaint();
+    }
+
+    /**
+     * Get the trace being drawn in place of the search of the PathFinder
+     * 
+     * @return replay, or null
+     */
+    public TraceReplay getReplay()
+    {
+        return getActiveReplay();
+    }
+
+    /**
+     * Get the replay if it was recorded on the map of the PathFinder, dropping it if the PathFinder has moved to another
+     * map since, whose tiles do not match the ones the replay holds
+     * 
+     * @return replay, or null
+     */
+    private TraceReplay getActiveReplay()
+    {
+        if (replay != null && replay.getMap() != pf.getMap())
+        {
+            stopReplay();
+            replay = null;
+        }
+        return replay;
+    }
+
+    /**
+     * Play the replay, stepping it on a timer until it reaches either end or is stopped
+     * 
+     * @param stepsPerTick
+     *            the number of steps to take each tick, negative to play backward
+     * @param delay
+     *            milliseconds between ticks
+     */
+    public void playReplay(final int stepsPerTick, int delay)
+    {
+        stopReplay();
+        if (getActiveReplay() == null || stepsPerTick == 0)
+            return;
+
+        replayTimer = new Timer(delay, new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                TraceReplay active = getActiveReplay();
+                if (active != null)
+                {
+                    active.seek(active.getStep() + stepsPerTick);
+                    if (active.getStep() == 0 || active.getStep() == active.getStepCount())
+                    {
+                        stopReplay();
+                    }
+                }
+                repaint();
+            }
+        });
+        replayTimer.start();
+    }
+
+    /**
+     * Stop playing the replay, leaving it at its current step
+     */
+    public void stopReplay()
+    {
+        if (replayTimer != null)
+        {
+            replayTimer.stop();
+            replayTimer = null;
+        }
+    }
+
+    /**
+     * Move the replay to the specified step
+     * 
+     * @param step
+     */
+    public void seekReplay(int step)
+    {
+        TraceReplay active = getActiveReplay();
+        if (active != null)
+        {
+            active.seek(step);
+            repaint();
+        }
+    }
+
+    /**
+     * Whether the specified tile is on the open set of the replay, or of the PathFinder if there is no replay
+     * 
+     * @param row
+     * @param col
+     * @return open
+     */
+    private boolean isOpenTile(int row, int col)
+    {
+        TraceReplay active = getActiveReplay();
+        return active != null ? active.isOpen(row, col) : pf.isOpen(row, col);
+    }
+
+    /**
+     * Whether the specified tile is on the closed set of the replay, or of the PathFinder if there is no replay
+     * 
+     * @param row
+     * @param col
+     * @return closed
+     */
+    private boolean isClosedTile(int row, int col)
+    {
+        TraceReplay active = getActiveReplay();
+        return active != null ? active.isClosed(row, col) : pf.isClosed(row, col);
+    }
+
+    /**
+     * Get the cursor of the replay, or of the PathFinder if there is no replay
+     * 
+     * @return cursor
+     */
+    private WeightedPoint getSearchCursor()
+    {
+        TraceReplay active = getActiveReplay();
+        return active != null ? active.getCursor() : pf.getCursor();
+    }
+
+    /**
+     * Get the path back from the cursor of the replay, or of the PathFinder if there is no replay, passed through the
+     * smoothing stages of the PathFinder
+     * 
+     * @return path
+     */
+    private List<WeightedPoint> getSearchPath()
+    {
+        TraceReplay active = getActiveReplay();
+        return pf.smoothPath(active != null ? active.getPath(active.getCursor()) : pf.getPath(pf.getCursor()));
+    }
+
+    /**
+     * Get a point for the specified tile holding its costs in the replay, or in the PathFinder if there is no replay
+     * 
+     * @param row
+     * @param col
+     * @return point
+     */
+    private WeightedPoint getSearchPoint(int row, int col)
+    {
+        TraceReplay active = getActiveReplay();
+        return active != null ? active.getPoint(row, col) : pf.getPoint(row, col);
+    }
+
     /**
      * Update the image of the tilemap
      */
@@ -254,6 +436,11 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
             paintGrid(g, x, y);
         }
 
+        if (pf.getMap().hasCosts())
+        {
+            paintTerrain(g, x, y);
+        }
+
         paintVisualization(g2d, x, y);
 
         paintMap(g, x, y);
@@ -263,7 +450,7 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
 
         paintGridLabels(g2d, x, y);
 
-        if (pf.getCursor() != null)
+        if (getSearchCursor() != null)
         {
             paintPath(g2d, x, y);
         }
@@ -273,9 +460,10 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
         drawPoint(g2d, pf.getGoal(), colorScheme.get(ColorScheme.COLOR_GOAL), x, y, true);
         drawPoint(g2d, pf.getGoal(), colorScheme.get(ColorScheme.COLOR_GOAL_BORDER), x, y, false);
 
-        if (pf.getCursor() != null)
+        WeightedPoint cursor = getSearchCursor();
+        if (cursor != null)
         {
-            drawPoint(g2d, pf.getCursor(), colorScheme.get(ColorScheme.COLOR_CURSOR), x, y, false);
+            drawPoint(g2d, cursor, colorScheme.get(ColorScheme.COLOR_CURSOR), x, y, false);
         }
     }
 
@@ -299,6 +487,45 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
 
     }
 
+    /**
+     * Shade the traversable tiles that have a terrain cost above the default, blending from the background color
+     * toward the block color as the cost doubles
+     * 
+     * @param g
+     * @param x the X coordinate of the upper left corner of the tilemap
+     * @param y the Y coordinate of the upper left corner of the tilemap
+     */
+    private void paintTerrain(Graphics g, int x, int y)
+    {
+        TileMap map = pf.getMap();
+
+        Color[] tierColors = new Color[TERRAIN_TIERS + 1];
+        Color background = colorScheme.get(ColorScheme.COLOR_BACKGROUND);
+        Color block = colorScheme.get(ColorScheme.COLOR_BLOCK);
+        for (int tier = 1; tier <= TERRAIN_TIERS; tier++)
+        {
+            float blend = 0.6f * tier / TERRAIN_TIERS;
+            tierColors[tier] = new Color((int)(background.getRed() + (block.getRed() - background.getRed()) * blend), 
+                                         (int)(background.getGreen() + (block.getGreen() - background.getGreen()) * blend), 
+                                         (int)(background.getBlue() + (block.getBlue() - background.getBlue()) * blend));
+        }
+
+        for (int row = 0; row < map.getRows(); row++)
+        {
+            for (int col = 0; col < map.getCols(); col++)
+            {
+                int cost = map.getCost(row, col);
+                if (cost > TileMap.DEFAULT_COST && map.isTraversable(row, col))
+                {
+                    // Costs of 2, 3-4, 5-8, 9-16, and above each get their own tier
+                    int tier = Math.min(TERRAIN_TIERS, 32 - Integer.numberOfLeadingZeros(cost - 1));
+                    g.setColor(tierColors[tier]);
+                    g.fillRect(x + col * tileWidth + getAxisLabelOffset(), y + row * tileHeight + getAxisLabelOffset(), tileWidth, tileHeight);
+                }
+            }
+        }
+    }
+
     /**
      * Draw the open and closed sets of the A* algorithm as it processes
      * 
@@ -308,14 +535,21 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
      */
     private void paintVisualization(Graphics2D g2d, int x, int y)
     {
-        List<WeightedPoint> openSet = pf.getOpenSet().getList();
-        for (WeightedPoint wp : openSet)
-        {
-            fillTile(g2d, wp, colorScheme.get(ColorScheme.COLOR_OPEN), colorScheme.get(ColorScheme.COLOR_OPEN_BORDER), x, y);
-        }
-        for (WeightedPoint wp : pf.getClosedSet())
+        TileMap map = pf.getMap();
+
+        for (int row = 0; row < map.getRows(); row++)
         {
-            fillTile(g2d, wp, colorScheme.get(ColorScheme.COLOR_CLOSED), colorScheme.get(ColorScheme.COLOR_CLOSED_BORDER), x, y);
+            for (int col = 0; col < map.getCols(); col++)
+            {
+                if (isOpenTile(row, col))
+                {
+                    fillTile(g2d, row, col, colorScheme.get(ColorScheme.COLOR_OPEN), colorScheme.get(ColorScheme.COLOR_OPEN_BORDER), x, y);
+                }
+                else if (isClosedTile(row, col))
+                {
+                    fillTile(g2d, row, col, colorScheme.get(ColorScheme.COLOR_CLOSED), colorScheme.get(ColorScheme.COLOR_CLOSED_BORDER), x, y);
+                }
+            }
         }
     }
 
@@ -390,7 +624,7 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
      */
     private void paintPath(Graphics2D g2d, int x, int y)
     {
-        List<WeightedPoint> path = pf.getPath(pf.getCursor());
+        List<WeightedPoint> path = getSearchPath();
         WeightedPoint prev = null;
         g2d.setColor(colorScheme.get(ColorScheme.COLOR_PATH));
         for (WeightedPoint wp : path)
@@ -465,16 +699,17 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
      * Fill the specified tile
      * 
      * @param g2d
-     * @param point
+     * @param row
+     * @param col
      * @param fill
      * @param border
      * @param x
      * @param y
      */
-    private void fillTile(Graphics2D g2d, WeightedPoint point, Color fill, Color border, int x, int y)
+    private void fillTile(Graphics2D g2d, int row, int col, Color fill, Color border, int x, int y)
     {
-        int dx = x + getAxisLabelOffset() + point.getCol() * tileWidth + 4;
-        int dy = y + getAxisLabelOffset() + point.getRow() * tileHeight + 4;
+        int dx = x + getAxisLabelOffset() + col * tileWidth + 4;
+        int dy = y + getAxisLabelOffset() + row * tileHeight + 4;
         int dw = tileWidth - 9;
         int dh = tileHeight - 9;
         g2d.setColor(fill);
@@ -596,32 +831,10 @@ public class MapPanel extends JPanel implements MouseInputListener, ComponentLis
         }
         else
         {
-            WeightedPoint loc = new WeightedPoint(row, col);
-
-            if (loc.equals(selectedTile))
-            {
-                List<WeightedPoint> set = pf.getOpenSet().getList();
-                for (WeightedPoint wp : set)
-                {
-                    if (wp.equals(loc))
-                    {
-                        selectedTile = wp;
-                    }
-                }
-                for (WeightedPoint wp : pf.getClosedSet())
-                {
-                    if (wp.equals(loc))
-                    {
-                        selectedTile = wp;
-                    }
-                }
-            }
-            else
-            {
-                selectedTile = loc;
-            }
+            selectedTile = getSearchPoint(row, col);
 
-            sb.setPointLabelText(selectedTile.toString() + "=" + selectedTile.getCost());
+            String terrain = pf.getMap().hasCosts() ? " x" + pf.getMap().getCost(row, col) : "";
+            sb.setPointLabelText(selectedTile.toString() + terrain + "=" + selectedTile.getCost());
         }
     }
 
@@ -21,6 +21,8 @@ public class Menu extends JMenuBar
     private static final int[] MAIN_MNOMONICS = {KeyEvent.VK_F, KeyEvent.VK_E, KeyEvent.VK_H};
 
     private static final String MENU_SEED = "Seed Map Generator";
+    private static final String MENU_SAVE_TRACE = "Save Search Trace...";
+    private static final String MENU_LOAD_TRACE = "Replay Search Trace...";
     private static final String MENU_EXIT = "Exit";
     private static final String MENU_PREFERENCES = "Preferences";
     private static final String MENU_INFO = "Information";
@@ -29,6 +31,8 @@ public class Menu extends JMenuBar
     private static final MenuComponents[][] MENU_OPTIONS = 
     {
         { new MenuComponents(MENU_SEED,  KeyEvent.VK_S, KeyStroke.getKeyStroke(KeyEvent.VK_S, Event.CTRL_MASK)), 
+          new MenuComponents(MENU_SAVE_TRACE, KeyEvent.VK_T, null), 
+          new MenuComponents(MENU_LOAD_TRACE, KeyEvent.VK_R, null), 
           new MenuComponents(MENU_EXIT,  KeyEvent.VK_X, KeyStroke.getKeyStroke(KeyEvent.VK_Q, Event.CTRL_MASK)) }, 
         { new MenuComponents(MENU_PREFERENCES, KeyEvent.VK_P, KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, Event.ALT_MASK)) }, 
         { new MenuComponents(MENU_INFO,  KeyEvent.VK_I, null),
@@ -58,6 +62,14 @@ public class Menu extends JMenuBar
             {
                 window.showSeedInput();
             }
+            else if (MENU_SAVE_TRACE.equals( ((JMenuItem)e.getSource()).getText() ))
+            {
+                window.saveTrace();
+            }
+            else if (MENU_LOAD_TRACE.equals( ((JMenuItem)e.getSource()).getText() ))
+            {
+                window.loadTrace();
+            }
             else if (MENU_EXIT.equals( ((JMenuItem)e.getSource()).getText() ))
             {
                 System.exit(0);
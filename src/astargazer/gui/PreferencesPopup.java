@@ -164,13 +164,13 @@ public class PreferencesPopup extends JDialog
     private void loadExampleMap()
     {
         int[][] mapData = new int[][] { {1, 1, 1, 1, 1, 1, 1, 1}, 
-                                        {1, 0, 0, 0, 0, 0, 0, 1}, 
+                                        {1, 0, 0, 2, 2, 0, 0, 1}, 
                                         {1, 0, 0, 0, 0, 0, 0, 1}, 
                                         {1, 0, 0, 1, 1, 0, 0, 1}, 
                                         {1, 0, 1, 1, 1, 1, 0, 1}, 
                                         {1, 0, 0, 1, 1, 0, 0, 1}, 
                                         {1, 0, 0, 0, 0, 0, 0, 1}, 
-                                        {1, 0, 0, 0, 0, 0, 0, 1}, 
+                                        {1, 0, 0, 4, 4, 0, 0, 1}, 
                                         {1, 1, 1, 1, 1, 1, 1, 1} };
         TileMap exampleMap = new TileMap(mapData, new WeightedPoint(1, 1), new WeightedPoint(mapData.length - 2, mapData[0].length - 2), 0);
         PathFinder examplePathFinder = new PathFinder(exampleMap);
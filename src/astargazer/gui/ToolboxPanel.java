@@ -10,13 +10,17 @@ import java.awt.event.ItemListener;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import astargazer.PathFinder;
+import astargazer.SearchTrace;
 import astargazer.StatusEnum;
+import astargazer.TieBreakEnum;
+import astargazer.TraceReplay;
 import astargazer.gui.component.ButtonPanel;
 import astargazer.gui.component.CheckboxPanel;
 import astargazer.gui.component.Dropdown;
@@ -29,6 +33,7 @@ import astargazer.map.generator.MapManager;
 import astargazer.map.TileMap;
 import astargazer.map.heuristic.HeuristicScheme;
 import astargazer.map.neighbor.NeighborSelector;
+import astargazer.map.smoothing.PathSmoother;
 
 /**
  * The toolbox GUI component for interacting with the algorithm
@@ -51,17 +56,24 @@ public class ToolboxPanel extends JPanel
     private final String BUTTON_TEXT_STEP = "Step";
     private final String BUTTON_TEXT_SOLVE = "Solve";
     private final String BUTTON_TEXT_RESET = "Reset";
+    private final String BUTTON_TEXT_REPLAY = "Replay Trace";
 
     private final String DROPDOWN_TEXT_HEURISTICS = "Heuristics";
     private final String DROPDOWN_TEXT_NEIGHBORS = "Neighbors";
     private final String DROPDOWN_TEXT_COLORS = "Colors";
     private final String DROPDOWN_TEXT_OBSTACLES = "Obstacles";
+    private final String DROPDOWN_TEXT_TIE_BREAK = "Tie Breaking";
 
     private final String SLIDER_TEXT_SPEED = "Solve Delay";
     private final String SLIDER_TEXT_SIZE = "Zoom";
 
     private final String CHECKBOX_TEXT_DIJKSTRA = "Full Dijkstra Search (h=0)";
     private final String CHECKBOX_TEXT_RANDOMIZE = "Randomize Equicost Nodes";
+    private final String CHECKBOX_TEXT_ANY_ANGLE = "Any-Angle Paths (Theta*)";
+    private final String CHECKBOX_TEXT_GOAL_ON_GENERATION = "Goal Test on Generation";
+    private final String CHECKBOX_TEXT_REOPEN = "Reopen Closed Nodes";
+    private final String CHECKBOX_TEXT_RECORD_TRACE = "Record Search Trace";
+    private final String CHECKBOX_TEXT_SMOOTH = "Smooth Path";
     private final String CHECKBOX_TEXT_GRID = "Show Grid";
     private final String CHECKBOX_TEXT_SWAP = "Swap Start and Goal Points";
 
@@ -118,10 +130,12 @@ public class ToolboxPanel extends JPanel
                 }
                 else if (BUTTON_TEXT_STEP.equals( ((JButton)e.getSource()).getText()) )
                 {
+                    mp.setReplay(null);
                     pf.step();
                 }
                 else if (BUTTON_TEXT_SOLVE.equals( ((JButton)e.getSource()).getText()) )
                 {
+                    mp.setReplay(null);
                     if (solveTimer.isRunning())
                     {
                         solveTimer.stop();
@@ -135,9 +149,21 @@ public class ToolboxPanel extends JPanel
                 }
                 else if (BUTTON_TEXT_RESET.equals( ((JButton)e.getSource()).getText()) )
                 {
+                    mp.setReplay(null);
                     pf.reset();
                     solveTimer.stop();
                 }
+                else if (BUTTON_TEXT_REPLAY.equals( ((JButton)e.getSource()).getText()) )
+                {
+                    if (pf.getTrace() == null)
+                    {
+                        JOptionPane.showMessageDialog(ToolboxPanel.this, "Check \"" + CHECKBOX_TEXT_RECORD_TRACE + "\" and run a search to record a trace first.");
+                    }
+                    else
+                    {
+                        replayTrace(pf.getTrace());
+                    }
+                }
                 mp.updateDrawing();
                 infoPanel.updateStats(pf);
             }
@@ -146,6 +172,7 @@ public class ToolboxPanel extends JPanel
         ButtonPanel buttonPanel = new ButtonPanel(new String[] {BUTTON_TEXT_STEP, 
                                                                 BUTTON_TEXT_SOLVE, 
                                                                 BUTTON_TEXT_RESET,
+                                                                BUTTON_TEXT_REPLAY,
                                                                 BUTTON_TEXT_GENERATE}, 
                                                                 al);
 
@@ -160,7 +187,7 @@ public class ToolboxPanel extends JPanel
             }
         });
 
-        Dropdown[] dropdowns = new Dropdown[4];
+        Dropdown[] dropdowns = new Dropdown[5];
 
         ActionListener dal = new ActionListener() {
             @Override
@@ -185,6 +212,10 @@ public class ToolboxPanel extends JPanel
                     MapManager.getInstance().setGenerator((MapGenerator)d.getSelectedItem());
                     regenerateMap(false);
                 }
+                else if (DROPDOWN_TEXT_TIE_BREAK.equals(d.getLabel()))
+                {
+                    pf.setTieBreak((TieBreakEnum)d.getSelectedItem());
+                }
             }
         };
 
@@ -194,11 +225,13 @@ public class ToolboxPanel extends JPanel
         dropdowns[1] = new Dropdown(DROPDOWN_TEXT_NEIGHBORS, NeighborSelector.getAllNeighborSelectors() );
         dropdowns[2] = colorSchemeDropdown;
         dropdowns[3] = new Dropdown(DROPDOWN_TEXT_OBSTACLES, MapGenerator.getAllGenerators() );
+        dropdowns[4] = new Dropdown(DROPDOWN_TEXT_TIE_BREAK, TieBreakEnum.values() );
 
         DropdownPanel dropdownPanel = new DropdownPanel(dropdowns, dal);
 
         pf.setHeuristic((HeuristicScheme)(dropdownPanel.getDropdowns()[0].getSelectedItem()));
         pf.setNeighborSelector((NeighborSelector)(dropdownPanel.getDropdowns()[1].getSelectedItem()));
+        pf.setTieBreak((TieBreakEnum)(dropdownPanel.getDropdowns()[4].getSelectedItem()));
 
         Slider[] sliders = new Slider[2];
 
@@ -242,6 +275,27 @@ public class ToolboxPanel extends JPanel
                 {
                     pf.setShuffle(cb.isSelected());
                 }
+                else if (CHECKBOX_TEXT_ANY_ANGLE.equals(cb.getText()))
+                {
+                    pf.setAnyAngle(cb.isSelected());
+                }
+                else if (CHECKBOX_TEXT_GOAL_ON_GENERATION.equals(cb.getText()))
+                {
+                    pf.setGoalOnGeneration(cb.isSelected());
+                }
+                else if (CHECKBOX_TEXT_REOPEN.equals(cb.getText()))
+                {
+                    pf.setReopenClosed(cb.isSelected());
+                }
+                else if (CHECKBOX_TEXT_RECORD_TRACE.equals(cb.getText()))
+                {
+                    pf.setRecordTrace(cb.isSelected());
+                }
+                else if (CHECKBOX_TEXT_SMOOTH.equals(cb.getText()))
+                {
+                    pf.setPathSmoothers(cb.isSelected() ? PathSmoother.getAllPathSmoothers() : new PathSmoother[0]);
+                    mp.updateDrawing();
+                }
                 else if (CHECKBOX_TEXT_GRID.equals(cb.getText()))
                 {
                     mp.setDisplayGrid(cb.isSelected());
@@ -257,6 +311,11 @@ public class ToolboxPanel extends JPanel
 
         CheckboxPanel checkboxPanel = new CheckboxPanel(new String[] {CHECKBOX_TEXT_DIJKSTRA, 
                                                                       CHECKBOX_TEXT_RANDOMIZE, 
+                                                                      CHECKBOX_TEXT_ANY_ANGLE, 
+                                                                      CHECKBOX_TEXT_GOAL_ON_GENERATION, 
+                                                                      CHECKBOX_TEXT_REOPEN, 
+                                                                      CHECKBOX_TEXT_RECORD_TRACE, 
+                                                                      CHECKBOX_TEXT_SMOOTH, 
                                                                       CHECKBOX_TEXT_GRID, 
                                                                       CHECKBOX_TEXT_SWAP}, 
                                                                       il);
@@ -313,6 +372,29 @@ public class ToolboxPanel extends JPanel
         infoPanel.updateStats(pf);
     }
 
+    /**
+     * Play the specified trace back in place of the search of the PathFinder, first generating the map of its seed if
+     * the PathFinder is on another map. The map is generated with the current obstacle generator, which must be the one
+     * the trace was recorded with
+     * 
+     * @param trace
+     * @throws IllegalArgumentException
+     *             if the trace was recorded on a map of another size
+     */
+    public void replayTrace(SearchTrace trace)
+    {
+        solveTimer.stop();
+        TileMap map = pf.getMap();
+        if (map.getSeed() != trace.getSeed() || map.getRows() != trace.getRows() || map.getCols() != trace.getCols())
+        {
+            regenerateMap(trace.getSeed());
+        }
+
+        mp.setReplay(new TraceReplay(pf.getMap(), trace));
+        mp.playReplay(1, solveTimer.getDelay());
+        infoPanel.updateStats(pf);
+    }
+
     /**
      * Increment the zoom
      * 
@@ -6,12 +6,22 @@ import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 
 import astargazer.PathFinder;
+import astargazer.SearchTrace;
 import astargazer.map.generator.MapManager;
 import astargazer.map.TileMap;
 
@@ -160,6 +170,75 @@ public class Window extends JFrame
         }
     }
 
+    /**
+     * Save the trace recorded of the current search to a file chosen by the user
+     */
+    public void saveTrace()
+    {
+        SearchTrace trace = pathFinder.getTrace();
+        if (trace == null)
+        {
+            JOptionPane.showMessageDialog(this, "No trace was recorded of the current search.");
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+
+        File file = chooser.getSelectedFile();
+        try
+        {
+            OutputStream stream = new BufferedOutputStream(new FileOutputStream(file));
+            try
+            {
+                trace.write(stream);
+            }
+            finally
+            {
+                stream.close();
+            }
+        }
+        catch (IOException e)
+        {
+            JOptionPane.showMessageDialog(this, "Could not save " + file + ": " + e.getMessage(), "Save Search Trace", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Replay a trace from a file chosen by the user on the map generated from its seed
+     */
+    public void loadTrace()
+    {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+
+        File file = chooser.getSelectedFile();
+        try
+        {
+            SearchTrace trace;
+            InputStream stream = new BufferedInputStream(new FileInputStream(file));
+            try
+            {
+                trace = SearchTrace.read(stream);
+            }
+            finally
+            {
+                stream.close();
+            }
+            toolPanel.replayTrace(trace);
+        }
+        catch (IOException e)
+        {
+            JOptionPane.showMessageDialog(this, "Could not read " + file + ": " + e.getMessage(), "Replay Search Trace", JOptionPane.ERROR_MESSAGE);
+        }
+        catch (IllegalArgumentException e)
+        {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Replay Search Trace", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     public void showInformation()
     {
         helpPopup.setVisible(true);
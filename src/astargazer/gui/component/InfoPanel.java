@@ -10,6 +10,7 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 
 import astargazer.PathFinder;
+import astargazer.SearchStats;
 import astargazer.map.WeightedPoint;
 
 /**
@@ -29,6 +30,11 @@ public class InfoPanel extends JPanel
      */
     DecimalFormat formatter;
 
+    /**
+     * Formatter for displaying search times on the info panel
+     */
+    DecimalFormat timeFormatter;
+
     /**
      * Constructs an InfoPanel to display information about the algorithm's process
      * 
@@ -38,6 +44,7 @@ public class InfoPanel extends JPanel
     {
         super(new GridBagLayout());
         formatter = new DecimalFormat("00.00");
+        timeFormatter = new DecimalFormat("0.000");
         info = new JLabel("Info", JLabel.LEFT);
         info.setFont(new Font(Font.MONOSPACED, Font.BOLD, 12));
         add(info, new GridBagConstraints(0, 0, 1, 1, 1.0, 1.0, 
@@ -70,12 +77,24 @@ public class InfoPanel extends JPanel
         text += WeightedPoint.toLabeledString("Start", pf.getStart()) + "<br>";
         text += WeightedPoint.toLabeledString("Goal", pf.getGoal()) + "<br>";
         text += WeightedPoint.toLabeledString("Cursor", pf.getCursor()) + "<br>";
-        text += "Open Set: " + pf.getOpenSet().size() + " points<br>";
-        text += "Closed Set: " + pf.getClosedSet().size() + " points<br>";
+        text += "Open Set: " + pf.getOpenSetSize() + " points<br>";
+        text += "Closed Set: " + pf.getClosedSetSize() + " points<br>";
         text += "Cursor Cost (f=g+h): <br>" + 
         " g (from) =  " + fromCost + "<br>" + 
         " h (to) =    " + toCost + "<br>" + 
         " f (total) = " + totalCost + "<br>";
+
+        SearchStats stats = pf.getStats();
+        text += "Search Stats: <br>" + 
+        " Expanded:  " + stats.getExpanded() + "<br>" + 
+        " Generated: " + stats.getGenerated() + "<br>" + 
+        " Push/Pop:  " + stats.getPushes() + "/" + stats.getPops() + "<br>" + 
+        " Peak Open: " + stats.getPeakOpenSetSize() + "<br>" + 
+        " Reopened:  " + stats.getReopenings() + "<br>" + 
+        " h Calls:   " + stats.getHeuristicCalls() + "<br>" + 
+        " LOS Checks:" + stats.getLineOfSightChecks() + "<br>" + 
+        " Wall (ms): " + timeFormatter.format(stats.getWallTime() / 1e6) + "<br>" + 
+        " CPU (ms):  " + timeFormatter.format(stats.getCpuTime() / 1e6) + "<br>";
         text += "</pre></html>";
         info.setText(text);
     }
@@ -0,0 +1,240 @@
+package astargazer.map;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The traversal cost of each tile of a TileMap as an unsigned byte, along with the lowest cost of any traversable tile.
+ * Like the TileGrid, the bytes are split into fixed size chunks so the layer can hand out snapshots in constant time. A
+ * snapshot shares every chunk with the layer and the layer copies a chunk the first time it is edited after a
+ * snapshot, so the costs and minimum cost of a snapshot never change. Snapshots are immutable and safe to read from any
+ * thread, but the layer itself is not
+ * 
+ * @author Matt Yanos
+ */
+class CostLayer
+{
+    /**
+     * The number of bits in the index of a tile within a chunk
+     */
+    private static final int CHUNK_SHIFT = 16;
+
+    /**
+     * The number of tiles in a chunk, 64 KB
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * The cost of each tile indexed by TileMap.getIndex(), in chunks of CHUNK_SIZE tiles. The chunks are on the heap
+     * unless the layer was read straight from a file, in which case they are views of the file until copied
+     */
+    private ByteBuffer[] chunks;
+
+    /**
+     * The number of snapshots taken when each chunk was last copied, so a chunk is only owned by this layer when it
+     * matches the number of snapshots taken so far
+     */
+    private int[] chunkGenerations;
+
+    /**
+     * The number of snapshots taken of this layer
+     */
+    private int generation;
+
+    /**
+     * Whether the chunk arrays are shared with the last snapshot and have to be copied before a chunk is replaced
+     */
+    private boolean chunksShared;
+
+    /**
+     * The lowest traversal cost of any traversable tile
+     */
+    private int minCost;
+
+    /**
+     * The number of edits made to the layer, or to the layer a snapshot was taken of when it was taken
+     */
+    private long version;
+
+    /**
+     * Whether this layer is a snapshot, which cannot be edited
+     */
+    private final boolean snapshot;
+
+    /**
+     * Construct a CostLayer of the specified number of tiles, each with the default cost
+     * 
+     * @param tileCount
+     */
+    CostLayer(int tileCount)
+    {
+        this.chunks = new ByteBuffer[(tileCount + CHUNK_SIZE - 1) >> CHUNK_SHIFT];
+        this.chunkGenerations = new int[chunks.length];
+        this.minCost = TileMap.DEFAULT_COST;
+        this.snapshot = false;
+        for (int c = 0; c < chunks.length; c++)
+        {
+            byte[] costs = new byte[Math.min(CHUNK_SIZE, tileCount - (c << CHUNK_SHIFT))];
+            Arrays.fill(costs, (byte)TileMap.DEFAULT_COST);
+            chunks[c] = ByteBuffer.wrap(costs);
+        }
+    }
+
+    /**
+     * Construct a CostLayer reading its costs from the specified buffer, which is split into chunks without copying it
+     * 
+     * @param costs
+     *            the traversal cost of each tile as an unsigned byte, indexed by TileMap.getIndex()
+     * @param minCost
+     *            the lowest traversal cost of any traversable tile
+     */
+    CostLayer(ByteBuffer costs, int minCost)
+    {
+        this.chunks = new ByteBuffer[(costs.capacity() + CHUNK_SIZE - 1) >> CHUNK_SHIFT];
+        this.chunkGenerations = new int[chunks.length];
+        this.minCost = minCost;
+        this.snapshot = false;
+        for (int c = 0; c < chunks.length; c++)
+        {
+            ByteBuffer view = costs.duplicate();
+            view.limit(Math.min(costs.capacity(), (c + 1) << CHUNK_SHIFT));
+            view.position(c << CHUNK_SHIFT);
+            chunks[c] = view.slice();
+        }
+    }
+
+    /**
+     * Construct a snapshot of the specified layer sharing its chunks
+     * 
+     * @param layer
+     */
+    private CostLayer(CostLayer layer)
+    {
+        this.chunks = layer.chunks;
+        this.minCost = layer.minCost;
+        this.version = layer.version;
+        this.snapshot = true;
+    }
+
+    /**
+     * Get the cost of the specified tile
+     * 
+     * @param i
+     *            see TileMap.getIndex()
+     * @return cost
+     */
+    int get(int i)
+    {
+        return chunks[i >>> CHUNK_SHIFT].get(i & (CHUNK_SIZE - 1)) & 0xFF;
+    }
+
+    /**
+     * Set the cost of the specified tile, lowering the minimum cost if it is cheaper
+     * 
+     * @param i
+     *            see TileMap.getIndex()
+     * @param cost
+     *            between DEFAULT_COST and MAX_COST
+     */
+    void set(int i, int cost)
+    {
+        if (snapshot)
+            throw new UnsupportedOperationException("A snapshot cannot be edited");
+
+        getOwnedChunk(i >>> CHUNK_SHIFT).put(i & (CHUNK_SIZE - 1), (byte)cost);
+        minCost = Math.min(minCost, cost);
+        version++;
+    }
+
+    /**
+     * Get the specified chunk for editing, first copying it if it is shared with a snapshot
+     * 
+     * @param c
+     * @return chunk
+     */
+    private ByteBuffer getOwnedChunk(int c)
+    {
+        if (chunkGenerations[c] == generation)
+            return chunks[c];
+
+        if (chunksShared)
+        {
+            chunks = chunks.clone();
+            chunkGenerations = chunkGenerations.clone();
+            chunksShared = false;
+        }
+        // The costs are read and written by index, so the whole chunk is copied whatever its position
+        ByteBuffer source = chunks[c].duplicate();
+        source.clear();
+        ByteBuffer copy = ByteBuffer.allocate(source.capacity());
+        copy.put(source);
+        chunks[c] = copy;
+        chunkGenerations[c] = generation;
+        return copy;
+    }
+
+    /**
+     * Take an immutable snapshot of the costs and minimum cost in constant time, see TileGrid.snapshot()
+     * 
+     * @return snapshot
+     */
+    CostLayer snapshot()
+    {
+        if (snapshot)
+            return this;
+
+        // Every chunk now belongs to the snapshot until it is copied
+        generation++;
+        chunksShared = true;
+        return new CostLayer(this);
+    }
+
+    /**
+     * Get the lowest traversal cost of any traversable tile
+     * 
+     * @return minimum cost
+     */
+    int getMinCost()
+    {
+        return minCost;
+    }
+
+    /**
+     * Set the lowest traversal cost of any traversable tile, for when tiles are made traversable or non-traversable
+     * 
+     * @param minCost
+     */
+    void setMinCost(int minCost)
+    {
+        if (snapshot)
+            throw new UnsupportedOperationException("A snapshot cannot be edited");
+
+        this.minCost = minCost;
+        version++;
+    }
+
+    /**
+     * Get the number of edits made to the layer, or for a snapshot the number made when the snapshot was taken
+     * 
+     * @return version
+     */
+    long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Get the number of bytes used to store the costs
+     * 
+     * @return bytes
+     */
+    long getMemoryUsage()
+    {
+        long bytes = 0;
+        for (ByteBuffer chunk : chunks)
+        {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,441 @@
+package astargazer.map;
+
+import java.util.Arrays;
+
+/**
+ * A compact grid of non-traversable tiles storing one bit per tile, packed row by row into an array of longs. A
+ * boolean[][] spends a byte per tile plus an array header per row, so this takes an eighth of the memory for the large
+ * maps used in load testing
+ * 
+ * The longs are split into fixed size chunks so that the grid can hand out snapshots in constant time. A snapshot shares
+ * every chunk with the grid, and the grid copies a chunk the first time it is edited after a snapshot, so a snapshot
+ * never changes while the grid keeps being edited and only the edited chunks are ever copied. Snapshots are immutable
+ * and safe to read from any thread, but the grid itself is not, so it should be edited and snapshotted on one thread
+ * 
+ * @author Matt Yanos
+ */
+public class TileGrid
+{
+    /**
+     * The number of bits in the index of a long within a chunk
+     */
+    private static final int CHUNK_SHIFT = 10;
+
+    /**
+     * The number of longs in a chunk, 8 KB holding 65536 tiles
+     */
+    private static final int CHUNK_LONGS = 1 << CHUNK_SHIFT;
+
+    /**
+     * The number of rows
+     */
+    private final int rows;
+
+    /**
+     * The number of columns
+     */
+    private final int cols;
+
+    /**
+     * The bits of the grid where a set bit is a non-traversable tile, indexed by row * cols + col, in chunks of
+     * CHUNK_LONGS longs
+     */
+    private long[][] chunks;
+
+    /**
+     * The number of snapshots taken when each chunk was last copied, so a chunk is only owned by this grid when it
+     * matches the number of snapshots taken so far
+     */
+    private int[] chunkGenerations;
+
+    /**
+     * The number of snapshots taken of this grid
+     */
+    private int generation;
+
+    /**
+     * Whether the chunk arrays are shared with the last snapshot and have to be copied before a chunk is replaced
+     */
+    private boolean chunksShared;
+
+    /**
+     * The number of edits made to the grid, or to the grid a snapshot was taken of when it was taken
+     */
+    private long version;
+
+    /**
+     * Whether this grid is a snapshot, which cannot be edited
+     */
+    private final boolean snapshot;
+
+    /**
+     * Construct a TileGrid of the specified size with every tile traversable
+     * 
+     * @param rows
+     * @param cols
+     */
+    public TileGrid(int rows, int cols)
+    {
+        this(rows, cols, null);
+
+        int longs = (getTileCount(rows, cols) + 63) / 64;
+        this.chunks = new long[(longs + CHUNK_LONGS - 1) >> CHUNK_SHIFT][];
+        this.chunkGenerations = new int[chunks.length];
+        for (int c = 0; c < chunks.length; c++)
+        {
+            chunks[c] = new long[Math.min(CHUNK_LONGS, longs - (c << CHUNK_SHIFT))];
+        }
+    }
+
+    /**
+     * Construct a TileGrid of the specified size using a copy of the specified bits. Subclasses that store their tiles
+     * some other way pass null and override isBlocked(), setBlocked(), isRowClear(), and getMemoryUsage(), and cannot
+     * take snapshots
+     * 
+     * @param rows
+     * @param cols
+     * @param bits
+     */
+    protected TileGrid(int rows, int cols, long[] bits)
+    {
+        getTileCount(rows, cols);
+
+        this.rows = rows;
+        this.cols = cols;
+        this.snapshot = false;
+        if (bits != null)
+        {
+            this.chunks = new long[(bits.length + CHUNK_LONGS - 1) >> CHUNK_SHIFT][];
+            this.chunkGenerations = new int[chunks.length];
+            for (int c = 0; c < chunks.length; c++)
+            {
+                chunks[c] = Arrays.copyOfRange(bits, c << CHUNK_SHIFT, Math.min(bits.length, (c + 1) << CHUNK_SHIFT));
+            }
+        }
+    }
+
+    /**
+     * Construct a snapshot of the specified grid sharing its chunks
+     * 
+     * @param grid
+     */
+    private TileGrid(TileGrid grid)
+    {
+        this.rows = grid.rows;
+        this.cols = grid.cols;
+        this.chunks = grid.chunks;
+        this.version = grid.version;
+        this.snapshot = true;
+    }
+
+    /**
+     * Construct a TileGrid from the specified 2D Boolean array of TRUE non-traversable tiles
+     * 
+     * @param map
+     */
+    public TileGrid(boolean[][] map)
+    {
+        this(map.length, map[0].length);
+        for (int r = 0; r < rows; r++)
+        {
+            for (int c = 0; c < cols; c++)
+            {
+                if (map[r][c])
+                {
+                    setBlocked(r, c, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the specified tile is non-traversable
+     * 
+     * @param row
+     * @param col
+     * @return blocked
+     */
+    public boolean isBlocked(int row, int col)
+    {
+        int i = row * cols + col;
+        return (chunks[i >>> (CHUNK_SHIFT + 6)][(i >> 6) & (CHUNK_LONGS - 1)] & (1L << i)) != 0;
+    }
+
+    /**
+     * Set whether the specified tile is non-traversable
+     * 
+     * @param row
+     * @param col
+     * @param blocked
+     */
+    public void setBlocked(int row, int col, boolean blocked)
+    {
+        if (snapshot)
+            throw new UnsupportedOperationException("A snapshot cannot be edited");
+
+        int i = row * cols + col;
+        long[] chunk = getOwnedChunk(i >>> (CHUNK_SHIFT + 6));
+        if (blocked)
+        {
+            chunk[(i >> 6) & (CHUNK_LONGS - 1)] |= 1L << i;
+        }
+        else
+        {
+            chunk[(i >> 6) & (CHUNK_LONGS - 1)] &= ~(1L << i);
+        }
+        version++;
+    }
+
+    /**
+     * Get the specified chunk for editing, first copying it if it is shared with a snapshot
+     * 
+     * @param c
+     * @return chunk
+     */
+    private long[] getOwnedChunk(int c)
+    {
+        if (chunkGenerations[c] == generation)
+            return chunks[c];
+
+        if (chunksShared)
+        {
+            chunks = chunks.clone();
+            chunkGenerations = chunkGenerations.clone();
+            chunksShared = false;
+        }
+        chunks[c] = chunks[c].clone();
+        chunkGenerations[c] = generation;
+        return chunks[c];
+    }
+
+    /**
+     * Take an immutable snapshot of the tiles in constant time. The snapshot shares its chunks with this grid until the
+     * grid edits them, and a snapshot of a snapshot is the snapshot itself
+     * 
+     * @return snapshot
+     */
+    public TileGrid snapshot()
+    {
+        if (snapshot)
+            return this;
+        if (chunks == null)
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot take snapshots");
+
+        // Every chunk now belongs to the snapshot until it is copied
+        generation++;
+        chunksShared = true;
+        return new TileGrid(this);
+    }
+
+    /**
+     * Whether this grid is a snapshot, which cannot be edited
+     * 
+     * @return snapshot
+     */
+    public boolean isSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Get the number of edits made to the grid, or for a snapshot the number made to the grid when the snapshot was
+     * taken, so a snapshot is out of date when its version differs from that of the grid
+     * 
+     * @return version
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Whether every tile in the specified run of columns of a row is traversable. The run is a contiguous range of bits,
+     * so it is tested a whole long at a time
+     * 
+     * @param row
+     * @param fromCol
+     * @param toCol
+     *            at least fromCol
+     * @return clear
+     */
+    public boolean isRowClear(int row, int fromCol, int toCol)
+    {
+        if (chunks == null)
+        {
+            for (int col = fromCol; col <= toCol; col++)
+            {
+                if (isBlocked(row, col))
+                    return false;
+            }
+            return true;
+        }
+
+        int first = row * cols + fromCol;
+        int last = row * cols + toCol;
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - (last & 63));
+        if (first >> 6 == last >> 6)
+            return (getLong(first >> 6) & firstMask & lastMask) == 0;
+
+        if ((getLong(first >> 6) & firstMask) != 0)
+            return false;
+        for (int w = (first >> 6) + 1; w < last >> 6; w++)
+        {
+            if (getLong(w) != 0)
+                return false;
+        }
+        return (getLong(last >> 6) & lastMask) == 0;
+    }
+
+    /**
+     * Get the long of the specified index in the packed bits
+     * 
+     * @param w
+     * @return bits
+     */
+    private long getLong(int w)
+    {
+        return chunks[w >> CHUNK_SHIFT][w & (CHUNK_LONGS - 1)];
+    }
+
+    /**
+     * Copy every tile of the specified grid onto this grid with its upper left corner at the specified tile
+     * 
+     * @param source
+     * @param top
+     * @param left
+     */
+    public void copyFrom(TileGrid source, int top, int left)
+    {
+        if (chunks == null || source.chunks == null)
+        {
+            for (int r = 0; r < source.getRows(); r++)
+            {
+                for (int c = 0; c < source.getCols(); c++)
+                {
+                    setBlocked(top + r, left + c, source.isBlocked(r, c));
+                }
+            }
+            return;
+        }
+        if (snapshot)
+            throw new UnsupportedOperationException("A snapshot cannot be edited");
+
+        // Each row of the source is a contiguous run of bits, copied up to a long at a time whatever its alignment
+        for (int r = 0; r < source.rows; r++)
+        {
+            int from = r * source.cols;
+            int to = (top + r) * cols + left;
+            for (int c = 0; c < source.cols; c += 64)
+            {
+                int count = Math.min(64, source.cols - c);
+                writeBits(to + c, count, source.readBits(from + c, count));
+            }
+        }
+        version++;
+    }
+
+    /**
+     * Read a run of up to 64 bits starting at the specified tile index
+     * 
+     * @param start
+     * @param count
+     *            between 1 and 64
+     * @return the bits of the run, starting from the lowest bit
+     */
+    private long readBits(int start, int count)
+    {
+        int shift = start & 63;
+        long bits = getLong(start >> 6) >>> shift;
+        if (shift + count > 64)
+        {
+            bits |= getLong((start >> 6) + 1) << (64 - shift);
+        }
+        return count == 64 ? bits : bits & ((1L << count) - 1);
+    }
+
+    /**
+     * Write a run of up to 64 bits starting at the specified tile index, leaving the bits around it unchanged
+     * 
+     * @param start
+     * @param count
+     *            between 1 and 64
+     * @param bits
+     *            the bits of the run, starting from the lowest bit
+     */
+    private void writeBits(int start, int count, long bits)
+    {
+        int shift = start & 63;
+        long mask = count == 64 ? -1L : (1L << count) - 1;
+        writeLong(start >> 6, mask << shift, bits << shift);
+        if (shift + count > 64)
+        {
+            writeLong((start >> 6) + 1, mask >>> (64 - shift), bits >>> (64 - shift));
+        }
+    }
+
+    /**
+     * Replace the masked bits of the long of the specified index in the packed bits
+     * 
+     * @param w
+     * @param mask
+     * @param bits
+     */
+    private void writeLong(int w, long mask, long bits)
+    {
+        long[] chunk = getOwnedChunk(w >> CHUNK_SHIFT);
+        int i = w & (CHUNK_LONGS - 1);
+        chunk[i] = (chunk[i] & ~mask) | (bits & mask);
+    }
+
+    /**
+     * Get the number of tiles in a grid of the specified size, which must fit in an int so every tile has an index
+     * 
+     * @param rows
+     * @param cols
+     * @return tile count
+     */
+    private static int getTileCount(int rows, int cols)
+    {
+        if ((long)rows * cols > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("A " + rows + "x" + cols + " grid has too many tiles to index");
+        }
+        return rows * cols;
+    }
+
+    /**
+     * Get the number of rows
+     * 
+     * @return number of rows
+     */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns
+     * 
+     * @return number of columns
+     */
+    public int getCols()
+    {
+        return cols;
+    }
+
+    /**
+     * Get the number of bytes used to store the tiles
+     * 
+     * @return bytes
+     */
+    public long getMemoryUsage()
+    {
+        long bytes = 0;
+        for (long[] chunk : chunks)
+        {
+            bytes += chunk.length * 8L;
+        }
+        return bytes;
+    }
+}
@@ -1,5 +1,7 @@
 package astargazer.map;
 
+import java.nio.ByteBuffer;
+
 import astargazer.map.WeightedPoint;
 
 /**
@@ -10,9 +12,9 @@ import astargazer.map.WeightedPoint;
 public class TileMap
 {
     /**
-     * The grid of tiles where TRUE is non-traversable and FALSE is traversable
+     * The grid of tiles where a blocked tile is non-traversable
      */
-    private boolean[][] map;
+    private final TileGrid tiles;
 
     /**
      * The starting point
@@ -34,6 +36,65 @@ public class TileMap
      */
     private static boolean endPointSwap = false;
 
+    // Directions a tile can be left in, listed in the order the neighbor selectors add them. Each direction is the bit
+    // index of that move in a neighbor mask
+    public static final int DIRECTION_NORTH = 0;
+    public static final int DIRECTION_EAST = 1;
+    public static final int DIRECTION_SOUTH = 2;
+    public static final int DIRECTION_WEST = 3;
+    public static final int DIRECTION_NORTHWEST = 4;
+    public static final int DIRECTION_SOUTHEAST = 5;
+    public static final int DIRECTION_SOUTHWEST = 6;
+    public static final int DIRECTION_NORTHEAST = 7;
+
+    /**
+     * The row offset of a step in each direction
+     */
+    public static final int[] DIRECTION_ROWS = new int[] { -1, 0, 1, 0, -1, 1, 1, -1 };
+
+    /**
+     * The column offset of a step in each direction
+     */
+    public static final int[] DIRECTION_COLS = new int[] { 0, 1, 0, -1, -1, 1, -1, 1 };
+
+    /**
+     * The bits of a neighbor mask for the north, east, south, and west directions
+     */
+    public static final int ORTHOGONAL_MASK = 0x0F;
+
+    /**
+     * The value in an int map for a non-traversable tile. 0 is a traversable tile of the default cost and any larger
+     * value is a traversable tile with that traversal cost
+     */
+    public static final int INT_MAP_WALL = 1;
+
+    /**
+     * The traversal cost of a tile when no cost layer is present
+     */
+    public static final int DEFAULT_COST = 1;
+
+    /**
+     * The highest traversal cost a tile can have in the cost layer
+     */
+    public static final int MAX_COST = 255;
+
+    /**
+     * Optional traversal cost of each tile along with the lowest cost of any tile, used to keep the heuristics admissible
+     * on weighted maps, or null if every tile has the default cost
+     */
+    private CostLayer costs;
+
+    /**
+     * Optional precomputed bit mask for each tile of the directions that can be stepped in from it, indexed by
+     * getIndex(), or null if the masks have not been built
+     */
+    private byte[] neighborMasks;
+
+    /**
+     * Whether the neighbor masks permit a diagonal step past a non-traversable tile on the corner
+     */
+    private boolean cutCorners;
+
     /**
      * Construct a TileMap with the specified boolean map of TRUE non-traversable tiles
      * 
@@ -44,14 +105,29 @@ public class TileMap
      */
     public TileMap(boolean[][] map, WeightedPoint start, WeightedPoint goal, int seed)
     {
-        this.map = map;
+        this(new TileGrid(map), start, goal, seed);
+    }
+
+    /**
+     * Construct a TileMap with the specified grid of non-traversable tiles
+     * 
+     * @param tiles
+     * @param start
+     * @param goal
+     * @param seed
+     */
+    public TileMap(TileGrid tiles, WeightedPoint start, WeightedPoint goal, int seed)
+    {
+        this.tiles = tiles;
         this.start = start;
         this.goal = goal;
         this.seed = seed;
     }
 
     /**
-     * Construct a TileMap with the specified int map where 0 is a traversable tile, all other numbers are non-traversable tiles
+     * Construct a TileMap with the specified int map where 0 is a traversable tile, INT_MAP_WALL (1) is a
+     * non-traversable tile, and any larger number is a traversable tile with that traversal cost (up to MAX_COST). The
+     * cost layer is only created when the map contains a weighted tile
      * 
      * @param map
      * @param start
@@ -61,10 +137,33 @@ public class TileMap
     public TileMap(int[][] map, WeightedPoint start, WeightedPoint goal, int seed)
     {
         this(convertIntMap(map), start, goal, seed);
+
+        for (int r = 0; r < map.length; r++)
+        {
+            for (int c = 0; c < map[r].length; c++)
+            {
+                if (map[r][c] > INT_MAP_WALL)
+                {
+                    setCost(r, c, map[r][c]);
+                }
+            }
+        }
+
+        if (costs != null)
+        {
+            // Tighten the minimum cost to the cheapest traversable tile
+            int minCost = MAX_COST;
+            for (int r = 0; r < getRows(); r++)
+                for (int c = 0; c < getCols(); c++)
+                    if (isTraversable(r, c))
+                        minCost = Math.min(minCost, getCost(r, c));
+            costs.setMinCost(minCost);
+        }
     }
 
     /**
-     * Construct a TileMap with the specified int map where all non-zero numbers are non-traversable tiles
+     * Construct a 2D Boolean map of TRUE non-traversable tiles from the specified int map where INT_MAP_WALL (1) is a
+     * non-traversable tile and all other numbers are traversable tiles
      * 
      * @param imap
      */
@@ -75,12 +174,60 @@ public class TileMap
         {
             for (int c = 0; c < imap[r].length; c++)
             {
-                map[r][c] = imap[r][c] != 0;
+                map[r][c] = imap[r][c] == INT_MAP_WALL;
             }
         }
         return map;
     }
 
+    /**
+     * Get a map sharing the tiles, terrain costs, and neighbor masks of this map with different start and goal points,
+     * so that searches between many pairs of points can run at once on a single copy of a large map. Changes made to the
+     * tiles through either map are seen by both, as are changes to the costs once the map has a cost layer
+     * 
+     * @param start
+     * @param goal
+     * @return map
+     */
+    public TileMap withEndPoints(WeightedPoint start, WeightedPoint goal)
+    {
+        TileMap map = new TileMap(tiles, start, goal, seed);
+        map.costs = costs;
+        map.neighborMasks = neighborMasks;
+        map.cutCorners = cutCorners;
+        return map;
+    }
+
+    /**
+     * Get a map with an immutable snapshot of the tiles of this map and the same start and goal points, so a search can
+     * run on a map that stays the same while this one keeps being edited. Taking the snapshot is constant time, and
+     * afterwards this map copies each chunk of tiles or terrain costs the first time it is edited, see
+     * TileGrid.snapshot(). The snapshot starts without neighbor masks since those of this map follow its edits. A
+     * snapshot of a snapshot is the snapshot itself
+     * 
+     * @return snapshot
+     */
+    public TileMap snapshot()
+    {
+        if (tiles.isSnapshot())
+            return this;
+
+        TileMap map = new TileMap(tiles.snapshot(), start, goal, seed);
+        map.costs = costs == null ? null : costs.snapshot();
+        return map;
+    }
+
+    /**
+     * Get the number of edits made to the tiles and terrain costs of this map, or for a snapshot the number made when it
+     * was taken, so a snapshot is out of date when its version differs from that of the map it was taken of
+     * 
+     * @return version
+     */
+    public long getVersion()
+    {
+        return tiles.getVersion() + (costs == null ? 0 : costs.getVersion());
+    }
+
     /**
      * Get the starting point for this tile map
      * 
@@ -121,6 +268,16 @@ public class TileMap
         TileMap.endPointSwap = endPointSwap;
     }
 
+    /**
+     * Whether the end points are swapped
+     * 
+     * @return endPointSwap
+     */
+    public static boolean isEndPointSwap()
+    {
+        return TileMap.endPointSwap;
+    }
+
     /**
      * Whether the point is a traversable point on this tile map
      * 
@@ -129,7 +286,7 @@ public class TileMap
      */
     public boolean isTraversable(WeightedPoint wp)
     {
-        return !map[wp.getRow()][wp.getCol()];
+        return !tiles.isBlocked(wp.getRow(), wp.getCol());
     }
 
     /**
@@ -141,7 +298,98 @@ public class TileMap
      */
     public boolean isTraversable(int row, int col)
     {
-        return !map[row][col];
+        return !tiles.isBlocked(row, col);
+    }
+
+    /**
+     * Whether a straight line between the centers of two tiles only passes traversable tiles. A line through the exact
+     * corner where four tiles meet passes diagonally between them, unless neighbor masks were built without cutting
+     * corners, in which case the two tiles beside the corner must be traversable too
+     * 
+     * @param fromRow
+     * @param fromCol
+     * @param toRow
+     * @param toCol
+     * @return line of sight
+     */
+    public boolean hasLineOfSight(int fromRow, int fromCol, int toRow, int toCol)
+    {
+        return getLineCost(fromRow, fromCol, toRow, toCol, false) >= 0;
+    }
+
+    /**
+     * Get the cost of moving in a straight line between the centers of two tiles, which is the length of the line
+     * weighted by the most expensive tile it enters, so a shortcut never crosses expensive terrain at a cheaper rate. The
+     * line can still cost less than walking the same tiles one step at a time, since it is shorter than the steps
+     * 
+     * @param fromRow
+     * @param fromCol
+     * @param toRow
+     * @param toCol
+     * @return cost, or -1 if there is no line of sight between the tiles, see hasLineOfSight()
+     */
+    public float getLineCost(int fromRow, int fromCol, int toRow, int toCol)
+    {
+        return getLineCost(fromRow, fromCol, toRow, toCol, costs != null);
+    }
+
+    /**
+     * Walk the tiles on a straight line between the centers of two tiles one row at a time. The tiles the line passes in
+     * each row are a run of columns found from where the line crosses the row edges, so each row is tested at once by
+     * TileGrid.isRowClear()
+     * 
+     * @param fromRow
+     * @param fromCol
+     * @param toRow
+     * @param toCol
+     * @param weighted
+     *            whether to find the most expensive tile entered, otherwise the line is weighted by DEFAULT_COST
+     * @return cost, or -1 if a tile on the line is not traversable
+     */
+    private float getLineCost(int fromRow, int fromCol, int toRow, int toCol, boolean weighted)
+    {
+        final int rowDistance = Math.abs(toRow - fromRow);
+        final int colDistance = Math.abs(toCol - fromCol);
+        final int rowStep = toRow >= fromRow ? 1 : -1;
+        final int colStep = toCol >= fromCol ? 1 : -1;
+        final boolean passCorners = neighborMasks == null || cutCorners;
+
+        // Measured from the center of the first tile, row k spans the column offsets between where the line crosses the
+        // row edges k - 0.5 and k + 0.5, which are (2k -/+ 1) * colDistance / (2 * rowDistance)
+        final long span = 2L * rowDistance;
+        int maxCost = DEFAULT_COST;
+        for (int k = 0; k <= rowDistance; k++)
+        {
+            int first = 0;
+            int last = colDistance;
+            if (k > 0)
+            {
+                long enter = (2L * k - 1) * colDistance;
+                first = (int)(passCorners ? Math.floorDiv(enter + rowDistance, span) : -Math.floorDiv(rowDistance - enter, span));
+            }
+            if (k < rowDistance)
+            {
+                long leave = (2L * k + 1) * colDistance;
+                last = (int)(passCorners ? -Math.floorDiv(rowDistance - leave, span) : Math.floorDiv(leave + rowDistance, span));
+            }
+
+            int row = fromRow + k * rowStep;
+            int lowCol = colStep > 0 ? fromCol + first : fromCol - last;
+            int highCol = colStep > 0 ? fromCol + last : fromCol - first;
+            if (!tiles.isRowClear(row, lowCol, highCol))
+                return -1;
+
+            if (weighted)
+            {
+                for (int col = lowCol; col <= highCol; col++)
+                {
+                    if (row != fromRow || col != fromCol)
+                        maxCost = Math.max(maxCost, getCost(row, col));
+                }
+            }
+        }
+
+        return (float)Math.sqrt((double)rowDistance * rowDistance + (double)colDistance * colDistance) * maxCost;
     }
 
     /**
@@ -153,7 +401,192 @@ public class TileMap
      */
     public void setTraversable(int row, int col, boolean traversable)
     {
-        map[row][col] = !traversable;
+        tiles.setBlocked(row, col, !traversable);
+        if (traversable && costs != null && getCost(row, col) < costs.getMinCost())
+        {
+            // The minimum may have been tightened to the traversable tiles, leaving this one out
+            costs.setMinCost(getCost(row, col));
+        }
+
+        if (neighborMasks != null)
+        {
+            // Only the masks in the 3x3 neighborhood of the tile can refer to it
+            for (int r = Math.max(0, row - 1); r <= Math.min(row + 1, getRows() - 1); r++)
+            {
+                for (int c = Math.max(0, col - 1); c <= Math.min(col + 1, getCols() - 1); c++)
+                {
+                    neighborMasks[getIndex(r, c)] = computeNeighborMask(r, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the direction of a single step with the specified row and column offsets
+     * 
+     * @param rowOffset
+     * @param colOffset
+     * @return the direction (see DIRECTION_NORTH), or -1 if the offsets are not a step to an adjacent tile
+     */
+    public static int getDirection(int rowOffset, int colOffset)
+    {
+        for (int d = 0; d < DIRECTION_ROWS.length; d++)
+        {
+            if (DIRECTION_ROWS[d] == rowOffset && DIRECTION_COLS[d] == colOffset)
+                return d;
+        }
+        return -1;
+    }
+
+    /**
+     * Precompute the neighbor mask of every tile, so that neighbor selectors can read the traversable directions of a
+     * tile from a single byte instead of testing the bounds and traversability of each neighbor. The masks are kept up
+     * to date by setTraversable()
+     * 
+     * @param cutCorners
+     *            whether a diagonal step is permitted when a tile it passes on the corner is non-traversable
+     */
+    public void buildNeighborMasks(boolean cutCorners)
+    {
+        this.cutCorners = cutCorners;
+        this.neighborMasks = new byte[getRows() * getCols()];
+        for (int r = 0; r < getRows(); r++)
+        {
+            for (int c = 0; c < getCols(); c++)
+            {
+                neighborMasks[getIndex(r, c)] = computeNeighborMask(r, c);
+            }
+        }
+    }
+
+    /**
+     * Discard the precomputed neighbor masks
+     */
+    public void clearNeighborMasks()
+    {
+        this.neighborMasks = null;
+    }
+
+    /**
+     * Whether the neighbor masks have been precomputed
+     * 
+     * @return hasNeighborMasks
+     */
+    public boolean hasNeighborMasks()
+    {
+        return neighborMasks != null;
+    }
+
+    /**
+     * Get the precomputed neighbor mask of the specified tile. Bit d is set when a step in direction d (see
+     * DIRECTION_NORTH through DIRECTION_NORTHEAST) stays on the map and ends on a traversable tile
+     * 
+     * @param row
+     * @param col
+     * @return mask
+     */
+    public int getNeighborMask(int row, int col)
+    {
+        return neighborMasks[getIndex(row, col)] & 0xFF;
+    }
+
+    /**
+     * Calculate the neighbor mask of the specified tile, a non-traversable tile has no neighbors
+     * 
+     * @param row
+     * @param col
+     * @return mask
+     */
+    private byte computeNeighborMask(int row, int col)
+    {
+        if (tiles.isBlocked(row, col))
+            return 0;
+
+        int mask = 0;
+        for (int d = 0; d < DIRECTION_ROWS.length; d++)
+        {
+            int r = row + DIRECTION_ROWS[d];
+            int c = col + DIRECTION_COLS[d];
+            if (r < 0 || c < 0 || r >= getRows() || c >= getCols() || tiles.isBlocked(r, c))
+                continue;
+
+            // A diagonal step passes the two tiles that share an edge with both the origin and the destination
+            if (d > DIRECTION_WEST && !cutCorners && (tiles.isBlocked(r, col) || tiles.isBlocked(row, c)))
+                continue;
+
+            mask |= 1 << d;
+        }
+        return (byte)mask;
+    }
+
+    /**
+     * Get the traversal cost of the specified tile, the multiplier applied to the cost of any step onto it
+     * 
+     * @param row
+     * @param col
+     * @return cost
+     */
+    public int getCost(int row, int col)
+    {
+        return costs == null ? DEFAULT_COST : costs.get(getIndex(row, col));
+    }
+
+    /**
+     * Set the traversal cost of the specified tile, creating the cost layer if the map does not have one yet. The costs
+     * of a snapshot cannot be set
+     * 
+     * @param row
+     * @param col
+     * @param cost
+     *            between DEFAULT_COST and MAX_COST
+     */
+    public void setCost(int row, int col, int cost)
+    {
+        if (tiles.isSnapshot())
+            throw new UnsupportedOperationException("A snapshot cannot be edited");
+
+        cost = Math.max(DEFAULT_COST, Math.min(MAX_COST, cost));
+        if (costs == null)
+        {
+            if (cost == DEFAULT_COST)
+                return;
+            costs = new CostLayer(getRows() * getCols());
+        }
+        costs.set(getIndex(row, col), cost);
+    }
+
+    /**
+     * Use the specified buffer as the cost layer, for maps whose costs are read straight from a file
+     * 
+     * @param costs
+     *            the traversal cost of each tile as an unsigned byte, indexed by getIndex()
+     * @param minCost
+     *            the lowest traversal cost of any traversable tile
+     */
+    void setCostLayer(ByteBuffer costs, int minCost)
+    {
+        this.costs = new CostLayer(costs, minCost);
+    }
+
+    /**
+     * Whether the map has a cost layer, meaning some tiles may have a traversal cost other than the default
+     * 
+     * @return hasCosts
+     */
+    public boolean hasCosts()
+    {
+        return costs != null;
+    }
+
+    /**
+     * Get a lower bound on the traversal cost of every tile on the map, which the heuristics are scaled by so that
+     * they never overestimate the remaining cost on a weighted map
+     * 
+     * @return minimum cost
+     */
+    public int getMinCost()
+    {
+        return costs == null ? DEFAULT_COST : costs.getMinCost();
     }
 
     /**
@@ -163,7 +596,7 @@ public class TileMap
      */
     public int getRows()
     {
-        return map.length;
+        return tiles.getRows();
     }
 
     /**
@@ -173,7 +606,57 @@ public class TileMap
      */
     public int getCols()
     {
-        return map[0].length;
+        return tiles.getCols();
+    }
+
+    /**
+     * Get the index of the specified tile when the map is flattened row by row into a single array, used by the path
+     * finding algorithm to store per tile values in primitive arrays
+     * 
+     * @param row
+     * @param col
+     * @return index
+     */
+    public int getIndex(int row, int col)
+    {
+        return row * getCols() + col;
+    }
+
+    /**
+     * Get the row of the tile at the specified flattened index
+     * 
+     * @param index
+     * @return row
+     */
+    public int getRow(int index)
+    {
+        return index / getCols();
+    }
+
+    /**
+     * Get the column of the tile at the specified flattened index
+     * 
+     * @param index
+     * @return column
+     */
+    public int getCol(int index)
+    {
+        return index % getCols();
+    }
+
+    /**
+     * Get the number of bytes used to store the tiles, terrain costs, and neighbor masks of this map
+     * 
+     * @return bytes
+     */
+    public long getMemoryUsage()
+    {
+        long bytes = tiles.getMemoryUsage();
+        if (costs != null)
+            bytes += costs.getMemoryUsage();
+        if (neighborMasks != null)
+            bytes += neighborMasks.length;
+        return bytes;
     }
 
     /**
@@ -0,0 +1,255 @@
+package astargazer.map;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes tile maps in a compact binary format that is opened by memory mapping the file, so a large map is
+ * ready as soon as it is opened and its tiles live in the page cache outside the Java heap, shared by every process on
+ * the host that opens the same file. Pages of the file are only read from disk when a tile on them is first read
+ * 
+ * The file is big-endian and made of three parts:
+ * 
+ * A header of HEADER_SIZE bytes holding the ints MAGIC, VERSION, rows, columns, seed, start row, start column, goal
+ * row, goal column, flags (FLAG_COSTS if there is a cost layer), the minimum cost, and a reserved 0.
+ * 
+ * The grid of non-traversable tiles, one bit per tile packed into longs in the same layout as TileGrid, where bit i of
+ * the grid is bit (i % 64) of long (i / 64) and i is TileMap.getIndex() of the tile.
+ * 
+ * The optional cost layer, the traversal cost of each tile as an unsigned byte indexed by TileMap.getIndex()
+ * 
+ * @author Matt Yanos
+ */
+public class TileMapFile
+{
+    /**
+     * The first int of every tile map file, "ASGZ" in ASCII
+     */
+    public static final int MAGIC = 0x4153475A;
+
+    /**
+     * The version of the file format written by this class
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The number of bytes in the header, a multiple of 8 so that the grid longs are aligned
+     */
+    public static final int HEADER_SIZE = 48;
+
+    /**
+     * The flag set in the header when the file has a cost layer
+     */
+    public static final int FLAG_COSTS = 1;
+
+    /**
+     * Private constructor, this class only has static methods
+     */
+    private TileMapFile()
+    {
+    }
+
+    /**
+     * Write the specified map to a file
+     * 
+     * @param map
+     * @param file
+     * @throws IOException
+     */
+    public static void write(TileMap map, File file) throws IOException
+    {
+        final int rows = map.getRows();
+        final int cols = map.getCols();
+
+        // Store the end points as generated, not as currently swapped
+        WeightedPoint start = TileMap.isEndPointSwap() ? map.getGoal() : map.getStart();
+        WeightedPoint goal = TileMap.isEndPointSwap() ? map.getStart() : map.getGoal();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(map.getSeed());
+            out.writeInt(start.getRow());
+            out.writeInt(start.getCol());
+            out.writeInt(goal.getRow());
+            out.writeInt(goal.getCol());
+            out.writeInt(map.hasCosts() ? FLAG_COSTS : 0);
+            out.writeInt(map.getMinCost());
+            out.writeInt(0);
+
+            final int cellCount = rows * cols;
+            long word = 0;
+            for (int i = 0; i < cellCount; i++)
+            {
+                if (!map.isTraversable(i / cols, i % cols))
+                {
+                    word |= 1L << i;
+                }
+                if ((i & 63) == 63)
+                {
+                    out.writeLong(word);
+                    word = 0;
+                }
+            }
+            if ((cellCount & 63) != 0)
+            {
+                out.writeLong(word);
+            }
+
+            if (map.hasCosts())
+            {
+                for (int i = 0; i < cellCount; i++)
+                {
+                    out.writeByte(map.getCost(i / cols, i % cols));
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Open the map in the specified file, mapping it read only. Any attempt to change the tiles or costs of the map
+     * throws a ReadOnlyBufferException
+     * 
+     * @param file
+     * @return map
+     * @throws IOException
+     */
+    public static TileMap open(File file) throws IOException
+    {
+        return open(file, false);
+    }
+
+    /**
+     * Open the map in the specified file. A writable map is mapped copy on write, so its changes stay in this process
+     * and are never written to the file, while the pages that are not changed are still shared with other processes
+     * 
+     * @param file
+     * @param writable
+     *            whether the tiles and costs of the map can be changed, which needs the file to be writable
+     * @return map
+     * @throws IOException
+     */
+    public static TileMap open(File file, boolean writable) throws IOException
+    {
+        FileChannel channel = writable ? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)
+                                       : FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining())
+            {
+                if (channel.read(header) < 0)
+                    throw new IOException(file + " is too short to be a tile map file");
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC)
+                throw new IOException(file + " is not a tile map file");
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException(file + " has unsupported tile map file version " + version);
+
+            final int rows = header.getInt();
+            final int cols = header.getInt();
+            final int seed = header.getInt();
+            WeightedPoint start = new WeightedPoint(header.getInt(), header.getInt());
+            WeightedPoint goal = new WeightedPoint(header.getInt(), header.getInt());
+            final int flags = header.getInt();
+            final int minCost = header.getInt();
+
+            final int cellCount = rows * cols;
+            final long gridSize = ((cellCount + 63L) / 64) * 8;
+            final long costSize = (flags & FLAG_COSTS) != 0 ? cellCount : 0;
+            if (channel.size() < HEADER_SIZE + gridSize + costSize)
+                throw new IOException(file + " is too short for a " + rows + "x" + cols + " tile map");
+
+            // The mappings stay valid after the channel is closed
+            MapMode mode = writable ? MapMode.PRIVATE : MapMode.READ_ONLY;
+            LongBuffer bits = channel.map(mode, HEADER_SIZE, gridSize).asLongBuffer();
+            TileMap map = new TileMap(new MappedTileGrid(rows, cols, bits), start, goal, seed);
+
+            if (costSize > 0)
+            {
+                map.setCostLayer(channel.map(mode, HEADER_SIZE + gridSize, costSize), minCost);
+            }
+
+            return map;
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * A tile grid that reads its bits from a buffer mapped from a tile map file
+     */
+    private static class MappedTileGrid extends TileGrid
+    {
+        /**
+         * The grid longs of the file
+         */
+        private final LongBuffer bits;
+
+        public MappedTileGrid(int rows, int cols, LongBuffer bits)
+        {
+            super(rows, cols, null);
+            this.bits = bits;
+        }
+
+        @Override
+        public boolean isBlocked(int row, int col)
+        {
+            int i = row * getCols() + col;
+            return (bits.get(i >> 6) & (1L << i)) != 0;
+        }
+
+        @Override
+        public void setBlocked(int row, int col, boolean blocked)
+        {
+            int i = row * getCols() + col;
+            long word = bits.get(i >> 6);
+            bits.put(i >> 6, blocked ? word | (1L << i) : word & ~(1L << i));
+        }
+
+        @Override
+        public boolean isRowClear(int row, int fromCol, int toCol)
+        {
+            int first = row * getCols() + fromCol;
+            int last = row * getCols() + toCol;
+            for (int w = first >> 6; w <= last >> 6; w++)
+            {
+                long mask = -1L;
+                if (w == first >> 6)
+                    mask &= -1L << first;
+                if (w == last >> 6)
+                    mask &= -1L >>> (63 - (last & 63));
+                if ((bits.get(w) & mask) != 0)
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public long getMemoryUsage()
+        {
+            return bits.capacity() * 8L;
+        }
+    }
+}
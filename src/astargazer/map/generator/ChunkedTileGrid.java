@@ -0,0 +1,212 @@
+package astargazer.map.generator;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import astargazer.map.TileGrid;
+import astargazer.map.WeightedPoint;
+
+/**
+ * A tile grid for a world too large to hold in memory, split into square chunks that are generated from the map seed
+ * the first time one of their tiles is read. A bounded number of chunks are cached, and when the cache is full the
+ * least recently used chunk is discarded. Since every chunk is generated from a seed derived from its coordinates, a
+ * discarded chunk comes back exactly the same when it is read again. Chunks with tiles that have been changed by
+ * setBlocked() are kept for good, so the changes are never lost
+ * 
+ * The outer border is always non-traversable and the start and goal are always traversable. The grid is not safe to use
+ * from more than one thread
+ * 
+ * @author Matt Yanos
+ */
+public class ChunkedTileGrid extends TileGrid
+{
+    /**
+     * The seed of the whole map, which the seed of each chunk is derived from
+     */
+    private final int seed;
+
+    /**
+     * The generator for the obstacles of each chunk
+     */
+    private final GenerationScheme generator;
+
+    /**
+     * The number of rows and columns in each chunk
+     */
+    private final int chunkSize;
+
+    /**
+     * The start point of the world
+     */
+    private final WeightedPoint start;
+
+    /**
+     * The goal point of the world
+     */
+    private final WeightedPoint goal;
+
+    /**
+     * Generated chunks in order from least to most recently used, keyed by getChunkKey()
+     */
+    private final LinkedHashMap<Long, TileGrid> cachedChunks;
+
+    /**
+     * Chunks with changed tiles, which are never discarded, keyed by getChunkKey()
+     */
+    private final Map<Long, TileGrid> editedChunks = new HashMap<Long, TileGrid>();
+
+    /**
+     * The key of the chunk that was read last, or -1
+     */
+    private long lastKey = -1;
+
+    /**
+     * The chunk that was read last, kept so that reading many tiles of one chunk skips the cache lookup
+     */
+    private TileGrid lastChunk;
+
+    /**
+     * The number of times a chunk has been generated, including chunks generated again after being discarded
+     */
+    private int generatedCount;
+
+    /**
+     * Construct a ChunkedTileGrid, generating no chunks until they are read
+     * 
+     * @param seed
+     *            the seed of the whole map
+     * @param rows
+     * @param cols
+     * @param generator
+     *            the generator for the obstacles of each chunk, which must not keep any state between chunks
+     * @param chunkSize
+     *            the number of rows and columns in each chunk
+     * @param cacheSize
+     *            the number of chunks to keep cached, not counting chunks with changed tiles
+     * @param start
+     * @param goal
+     */
+    public ChunkedTileGrid(int seed, int rows, int cols, GenerationScheme generator, int chunkSize, final int cacheSize, WeightedPoint start, WeightedPoint goal)
+    {
+        super(rows, cols, null);
+
+        this.seed = seed;
+        this.generator = generator;
+        this.chunkSize = chunkSize;
+        this.start = start;
+        this.goal = goal;
+
+        this.cachedChunks = new LinkedHashMap<Long, TileGrid>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TileGrid> eldest)
+            {
+                return size() > Math.max(1, cacheSize);
+            }
+        };
+    }
+
+    @Override
+    public boolean isBlocked(int row, int col)
+    {
+        if ((row == start.getRow() && col == start.getCol()) || (row == goal.getRow() && col == goal.getCol()))
+            return false;
+        if (row == 0 || col == 0 || row == getRows() - 1 || col == getCols() - 1)
+            return true;
+
+        return getChunk(row / chunkSize, col / chunkSize).isBlocked(row % chunkSize, col % chunkSize);
+    }
+
+    @Override
+    public void setBlocked(int row, int col, boolean blocked)
+    {
+        int chunkRow = row / chunkSize;
+        int chunkCol = col / chunkSize;
+        TileGrid chunk = getChunk(chunkRow, chunkCol);
+
+        long key = getChunkKey(chunkRow, chunkCol);
+        if (!editedChunks.containsKey(key))
+        {
+            cachedChunks.remove(key);
+            editedChunks.put(key, chunk);
+        }
+
+        chunk.setBlocked(row % chunkSize, col % chunkSize, blocked);
+    }
+
+    /**
+     * Get the specified chunk, generating it if it is not cached
+     * 
+     * @param chunkRow
+     * @param chunkCol
+     * @return chunk
+     */
+    private TileGrid getChunk(int chunkRow, int chunkCol)
+    {
+        long key = getChunkKey(chunkRow, chunkCol);
+        if (key == lastKey)
+            return lastChunk;
+
+        TileGrid chunk = editedChunks.get(key);
+        if (chunk == null)
+        {
+            chunk = cachedChunks.get(key);
+        }
+        if (chunk == null)
+        {
+            chunk = MapManager.generateChunk(generator, seed, chunkRow, chunkCol, chunkSize, getRows(), getCols(), start, goal);
+            cachedChunks.put(key, chunk);
+            generatedCount++;
+        }
+
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Get the key of the specified chunk in the chunk maps
+     * 
+     * @param chunkRow
+     * @param chunkCol
+     * @return key
+     */
+    private static long getChunkKey(int chunkRow, int chunkCol)
+    {
+        return ((long)chunkRow << 32) | chunkCol;
+    }
+
+    /**
+     * Get the number of chunks currently held in memory
+     * 
+     * @return chunk count
+     */
+    public int getLoadedChunkCount()
+    {
+        return cachedChunks.size() + editedChunks.size();
+    }
+
+    /**
+     * Get the number of times a chunk has been generated, including chunks generated again after being discarded
+     * 
+     * @return generated count
+     */
+    public int getGeneratedChunkCount()
+    {
+        return generatedCount;
+    }
+
+    @Override
+    public long getMemoryUsage()
+    {
+        long bytes = 0;
+        for (TileGrid chunk : cachedChunks.values())
+            bytes += chunk.getMemoryUsage();
+        for (TileGrid chunk : editedChunks.values())
+            bytes += chunk.getMemoryUsage();
+        return bytes;
+    }
+}
@@ -2,26 +2,27 @@ package astargazer.map.generator;
 
 import java.util.Random;
 
+import astargazer.map.TileGrid;
 import astargazer.map.WeightedPoint;
 
 /**
- * Generate a 2D Boolean map with elliptical obstacles
+ * Generate a tile grid with elliptical obstacles
  * 
  * @author Matt Yanos
  */
 public class GeneratorEllipse extends MapGenerator
 {
     @Override
-    public void addObstacles(Random rnd, boolean[][] map, WeightedPoint start, WeightedPoint goal)
+    public void addObstacles(Random rnd, TileGrid map, WeightedPoint start, WeightedPoint goal)
     {
         int r, c, w, h;
-        final int ovalCount = Math.max(1, (map.length * map[0].length) / 100);
+        final int ovalCount = Math.max(1, (map.getRows() * map.getCols()) / 100);
         for (int i = 0; i < ovalCount; i++)
         {
             // Generate these values whether they're used or not to keep the seed consistent 
             // for the start and goals whether there are obstacles or not 
-            r = rnd.nextInt(Math.max(1, map.length));
-            c = rnd.nextInt(Math.max(1, map[0].length));
+            r = rnd.nextInt(Math.max(1, map.getRows()));
+            c = rnd.nextInt(Math.max(1, map.getCols()));
             w = 2 + rnd.nextInt(15);
             h = 2 + rnd.nextInt(15);
 
@@ -79,15 +80,15 @@ public class GeneratorEllipse extends MapGenerator
      * @param width
      * @param height
      */
-    private void insertEllipse(boolean[][] map, int row, int col, int width, int height)
+    private void insertEllipse(TileGrid map, int row, int col, int width, int height)
     {
-        for (int r = Math.max(0, row - height / 2); r < Math.min(row + height / 2, map.length); r++)
+        for (int r = Math.max(0, row - height / 2); r < Math.min(row + height / 2, map.getRows()); r++)
         {
-            for (int c = Math.max(0, col - width / 2); c < Math.min(col + width / 2, map[r].length); c++)
+            for (int c = Math.max(0, col - width / 2); c < Math.min(col + width / 2, map.getCols()); c++)
             {
                 if (isCoveringPoint(r, c, row, col, width, height))
                 {
-                    map[r][c] = true;
+                    map.setBlocked(r, c, true);
                 }
             }
         }
@@ -1,21 +1,31 @@
 package astargazer.map.generator;
 
+import java.util.Arrays;
 import java.util.Random;
 
+import astargazer.map.TileGrid;
 import astargazer.map.WeightedPoint;
 
 /**
- * Generate a 2D Boolean map with line obstacles
+ * Generate a tile grid with line obstacles
  * 
  * @author Matt Yanos
  */
 public class GeneratorLines extends MapGenerator
 {
     @Override
-    public void addObstacles(Random rnd, boolean[][] map, WeightedPoint start, WeightedPoint goal)
+    public void addObstacles(Random rnd, TileGrid map, WeightedPoint start, WeightedPoint goal)
     {
         boolean vertical = rnd.nextBoolean();
-        final int lineCount = Math.max(1, (map.length * map[0].length) / 100);
+        final int lineCount = Math.max(1, (map.getRows() * map.getCols()) / 100);
+
+        // Lines are gathered first and drawn afterward so that overlapping lines only fill each tile once. Vertical lines
+        // are stored by column and horizontal lines by row offset by the number of columns
+        int[] placements = new int[lineCount];
+        int[] begs = new int[lineCount];
+        int[] ends = new int[lineCount];
+        int count = 0;
+
         for (int li = 0; li < lineCount; li++)
         {
             if (li == lineCount - 2)
@@ -27,7 +37,7 @@ public class GeneratorLines extends MapGenerator
                 }
             }
 
-            int placementIndex = rnd.nextInt(vertical ? map[0].length : map.length);
+            int placementIndex = rnd.nextInt(vertical ? map.getCols() : map.getRows());
 
             if ( (vertical && (placementIndex == start.getCol() || placementIndex == goal.getCol())) || 
                  (!vertical && (placementIndex == start.getRow() || placementIndex == goal.getRow())) )
@@ -35,33 +45,99 @@ public class GeneratorLines extends MapGenerator
                 continue;
             }
 
-            int a = rnd.nextInt(vertical ? map.length : map[0].length);
-            int b = rnd.nextInt(vertical ? map.length : map[0].length);
+            int a = rnd.nextInt(vertical ? map.getRows() : map.getCols());
+            int b = rnd.nextInt(vertical ? map.getRows() : map.getCols());
             int beg = Math.min(a, b);
             int end = Math.max(a, b);
 
-            if (rnd.nextBoolean() && beg < (vertical ? map.length / 5 : map[0].length / 5))
+            if (rnd.nextBoolean() && beg < (vertical ? map.getRows() / 5 : map.getCols() / 5))
             {
                 beg = 1;
             }
-            else if (rnd.nextBoolean() && end < (vertical ? map.length / 5 : map[0].length / 5))
+            else if (rnd.nextBoolean() && end < (vertical ? map.getRows() / 5 : map.getCols() / 5))
             {
-                end = vertical ? map.length - 2 : map[0].length - 2;
+                end = vertical ? map.getRows() - 2 : map.getCols() - 2;
             }
 
-            for (int j = beg; j < end; j++)
+            placements[count] = vertical ? placementIndex : map.getCols() + placementIndex;
+            begs[count] = beg;
+            ends[count] = end;
+            count++;
+        }
+
+        drawLines(map, placements, begs, ends, count);
+    }
+
+    /**
+     * Draw the gathered lines onto the map in time linear to the size of the map. The lines are sorted by the column or
+     * row they are on, and the lines sharing a column or row are merged with a running count of the lines covering each
+     * tile, so a tile is filled once no matter how many lines cross it
+     * 
+     * @param map
+     * @param placements
+     *            the column of each vertical line, or the row of each horizontal line plus the number of columns
+     * @param begs
+     *            the first tile of each line
+     * @param ends
+     *            the tile after the last tile of each line
+     * @param count
+     *            the number of lines
+     */
+    private static void drawLines(TileGrid map, int[] placements, int[] begs, int[] ends, int count)
+    {
+        final int placementCount = map.getCols() + map.getRows();
+
+        // Counting sort of the lines by placement
+        int[] firsts = new int[placementCount + 1];
+        for (int i = 0; i < count; i++)
+            firsts[placements[i] + 1]++;
+        for (int p = 0; p < placementCount; p++)
+            firsts[p + 1] += firsts[p];
+
+        int[] order = new int[count];
+        int[] next = firsts.clone();
+        for (int i = 0; i < count; i++)
+            order[next[placements[i]]++] = i;
+
+        // The change in the number of covering lines at each tile along the current column or row
+        int[] coverChanges = new int[Math.max(map.getRows(), map.getCols()) + 1];
+
+        for (int p = 0; p < placementCount; p++)
+        {
+            if (firsts[p] == firsts[p + 1])
+                continue;
+
+            boolean vertical = p < map.getCols();
+            int length = vertical ? map.getRows() : map.getCols();
+            Arrays.fill(coverChanges, 0, length + 1, 0);
+
+            for (int k = firsts[p]; k < firsts[p + 1]; k++)
             {
-                if (vertical)
+                int i = order[k];
+                if (begs[i] < ends[i])
                 {
-                    map[j][placementIndex] = true;
+                    coverChanges[begs[i]]++;
+                    coverChanges[ends[i]]--;
                 }
-                else
+            }
+
+            int covering = 0;
+            for (int j = 0; j < length; j++)
+            {
+                covering += coverChanges[j];
+                if (covering > 0)
                 {
-                    map[placementIndex][j] = true;
+                    if (vertical)
+                    {
+                        map.setBlocked(j, p, true);
+                    }
+                    else
+                    {
+                        map.setBlocked(p - map.getCols(), j, true);
+                    }
                 }
             }
         }
-
     }
 
     @Override
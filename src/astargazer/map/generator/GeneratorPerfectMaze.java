@@ -1,244 +1,164 @@
 package astargazer.map.generator;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
-import java.util.Stack;
 
+import astargazer.map.TileGrid;
 import astargazer.map.WeightedPoint;
 
 /**
- * Generate a 2D Boolean map with a set of obstacles representing a perfect maze
+ * Generate a tile grid with a set of obstacles representing a perfect maze
  * 
  * @author Matt Yanos
  */
 public class GeneratorPerfectMaze extends MapGenerator
 {
-    /**
-     * MazeNode is used in the recursive backtracker maze generation algorithm
-     */
-    private class MazeNode
-    {
-        public final int row;
-
-        public final int col;
-
-        public boolean visited;
-
-        public boolean northOpen;
-
-        public boolean eastOpen;
-
-        public boolean southOpen;
-
-        public boolean westOpen;
-
-        public MazeNode(int row, int col)
-        {
-            this.row = row;
-            this.col = col;
-
-            this.visited = false;
-
-            this.northOpen = false;
-            this.eastOpen = false;
-            this.southOpen = false;
-            this.westOpen = false;
-        }
-    }
-
     @Override
-    public void addObstacles(Random rnd, boolean[][] map, WeightedPoint start, WeightedPoint goal)
+    public void addObstacles(Random rnd, TileGrid map, WeightedPoint start, WeightedPoint goal)
     {
         // If the start or goal points are not on odd indexes, shift them
         makePointsOdd(start);
         makePointsOdd(goal);
 
-        int mazeRows = (map.length - 1) / 2;
-        int mazeCols = (map[0].length - 1) / 2;
-
-        MazeNode[][] maze = new MazeNode[mazeRows][mazeCols];
+        // Each maze node is the tile at (2 * row + 1, 2 * col + 1), surrounded by wall tiles that are carved away to
+        // join it to its neighbors
+        final int mazeRows = (map.getRows() - 1) / 2;
+        final int mazeCols = (map.getCols() - 1) / 2;
+        final int nodeCount = mazeRows * mazeCols;
 
-        for (int r = 0; r < maze.length; r++)
+        if (nodeCount == 0)
         {
-            for (int c = 0; c < maze[r].length; c++)
-            {
-                maze[r][c] = new MazeNode(r, c);
-            }
+            return;
         }
 
-        MazeNode cursor;
-        Stack<MazeNode> stack = new Stack<MazeNode>();
+        fillWalls(map, mazeRows, mazeCols);
+
+        // Visited flags for the maze nodes packed into bits, indexed by row * mazeCols + col
+        long[] visited = new long[(nodeCount + 63) / 64];
+        int visitedCount = 0;
 
-        cursor = getRandomUnvisitedNode(rnd, maze);
+        // Stack of maze node indexes for the backtracking
+        int[] stack = new int[nodeCount];
+        int stackSize = 0;
+
+        // Unvisited neighbors of the cursor in the order north, south, west, east
+        int[] unvisitedNeighbors = new int[4];
+
+        int cursor = getUnvisitedNode(visited, rnd.nextInt(nodeCount));
+        visited[cursor >> 6] |= 1L << cursor;
+        visitedCount++;
 
         // Generate a maze using the recursive backtracker maze generation algorithm
-        while (anyUnvisited(maze))
+        while (visitedCount < nodeCount)
         {
-            if (anyUnvisitedNeighbors(maze, cursor))
+            int row = cursor / mazeCols;
+            int col = cursor % mazeCols;
+
+            int neighborCount = 0;
+            if (row > 0 && !isVisited(visited, cursor - mazeCols))
+                unvisitedNeighbors[neighborCount++] = cursor - mazeCols;
+            if (row < mazeRows - 1 && !isVisited(visited, cursor + mazeCols))
+                unvisitedNeighbors[neighborCount++] = cursor + mazeCols;
+            if (col > 0 && !isVisited(visited, cursor - 1))
+                unvisitedNeighbors[neighborCount++] = cursor - 1;
+            if (col < mazeCols - 1 && !isVisited(visited, cursor + 1))
+                unvisitedNeighbors[neighborCount++] = cursor + 1;
+
+            if (neighborCount > 0)
             {
-                stack.push(cursor);
-                cursor = getUnvisitedNeighbor(rnd, maze, cursor);
+                stack[stackSize++] = cursor;
+
+                int neighbor = unvisitedNeighbors[rnd.nextInt(neighborCount)];
+
+                // Open the wall tile between the cursor and the neighbor, which is halfway between their tiles
+                map.setBlocked(row + neighbor / mazeCols + 1, col + neighbor % mazeCols + 1, false);
+
+                visited[neighbor >> 6] |= 1L << neighbor;
+                visitedCount++;
+                cursor = neighbor;
             }
-            else if (!stack.isEmpty())
+            else if (stackSize > 0)
             {
-                cursor = stack.pop();
+                cursor = stack[--stackSize];
             }
             else
             {
-                cursor = getRandomUnvisitedNode(rnd, maze);
+                // Unreachable on a grid, which is fully connected, but kept so the algorithm matches its description
+                cursor = getUnvisitedNode(visited, rnd.nextInt(nodeCount - visitedCount));
+                visited[cursor >> 6] |= 1L << cursor;
+                visitedCount++;
             }
         }
-
-        // Take the collection of maze nodes and put them into a tile map
-        mazeToMap(maze, map);
     }
 
     /**
-     * Make the coordinate index values of the specified point odd
-     *
-     * @param p
+     * Fill the area covered by the maze with walls, leaving only the maze node tiles traversable
+     * 
+     * @param map
+     * @param mazeRows
+     * @param mazeCols
      */
-    private void makePointsOdd(WeightedPoint p)
+    private static void fillWalls(TileGrid map, int mazeRows, int mazeCols)
     {
-        if (p.getRow() % 2 == 0)
-        {
-            p.setRow(p.getRow() + (p.getRow() > 0 ? -1 : 1));
-        }
-        
-        if (p.getCol() % 2 == 0)
+        for (int r = 0; r <= mazeRows * 2; r++)
         {
-            p.setCol(p.getCol() + (p.getCol() > 0 ? -1 : 1));
+            boolean nodeRow = (r % 2) == 1;
+            for (int c = 0; c <= mazeCols * 2; c++)
+            {
+                map.setBlocked(r, c, !(nodeRow && (c % 2) == 1));
+            }
         }
     }
 
     /**
-     * Gets a random unvisited node and marks it visited before returning it
+     * Whether the maze node with the specified index has been visited
      * 
-     * @param rnd
-     * @param maze
-     * @return node
+     * @param visited
+     * @param node
+     * @return visited
      */
-    private MazeNode getRandomUnvisitedNode(Random rnd, MazeNode[][] maze)
+    private static boolean isVisited(long[] visited, int node)
     {
-        MazeNode node = null;
-        if (anyUnvisited(maze))
-        {
-            List<MazeNode> unvisited = new ArrayList<MazeNode>();
-            for (int r = 0; r < maze.length; r++)
-                for (int c = 0; c < maze[r].length; c++)
-                    if (!maze[r][c].visited)
-                        unvisited.add(maze[r][c]);
-            node = unvisited.get(rnd.nextInt(unvisited.size()));
-            node.visited = true;
-        }
-        return node;
+        return (visited[node >> 6] & (1L << node)) != 0;
     }
 
     /**
-     * Get a randomly selected unvisited neighbor, mark the path between it and the cursor as open, and return it
+     * Get the index of the nth unvisited maze node, counting in row-major order
      * 
-     * @param rnd
-     * @param maze
-     * @param cursor
-     * @return neighbor
+     * @param visited
+     * @param n
+     * @return node
      */
-    private MazeNode getUnvisitedNeighbor(Random rnd, MazeNode[][] maze, MazeNode cursor)
+    private static int getUnvisitedNode(long[] visited, int n)
     {
-        List<MazeNode> unvisitedNeighbors = new ArrayList<MazeNode>();
-        if (cursor.row > 0 && !maze[cursor.row - 1][cursor.col].visited)
-            unvisitedNeighbors.add(maze[cursor.row - 1][cursor.col]);
-        if (cursor.row < maze.length - 1 && !maze[cursor.row + 1][cursor.col].visited)
-            unvisitedNeighbors.add(maze[cursor.row + 1][cursor.col]);
-        if (cursor.col > 0 && !maze[cursor.row][cursor.col - 1].visited)
-            unvisitedNeighbors.add(maze[cursor.row][cursor.col - 1]);
-        if (cursor.col < maze[cursor.row].length - 1 && !maze[cursor.row][cursor.col + 1].visited)
-            unvisitedNeighbors.add(maze[cursor.row][cursor.col + 1]);
-        MazeNode neighbor = unvisitedNeighbors.get(rnd.nextInt(unvisitedNeighbors.size()));
-
-        if (neighbor.row < cursor.row)
-        {
-            cursor.northOpen = true;
-            neighbor.southOpen = true;
-        }
-        else if (neighbor.row > cursor.row)
-        {
-            cursor.southOpen = true;
-            neighbor.northOpen = true;
-        }
-        else if (neighbor.col < cursor.col)
-        {
-            cursor.westOpen = true;
-            neighbor.eastOpen = true;
-        }
-        else if (neighbor.col > cursor.col)
+        for (int word = 0; ; word++)
         {
-            cursor.eastOpen = true;
-            neighbor.westOpen = true;
+            int unvisitedBits = Long.bitCount(~visited[word]);
+            if (n < unvisitedBits)
+            {
+                long bits = ~visited[word];
+                for (int i = 0; i < n; i++)
+                    bits &= bits - 1;
+                return word * 64 + Long.numberOfTrailingZeros(bits);
+            }
+            n -= unvisitedBits;
         }
-
-        neighbor.visited = true;
-
-        return neighbor;
     }
 
     /**
-     * Check if there are any unvisited neighbor nodes
-     * 
-     * @param maze
-     * @param cursor
-     * @return whether there are any unvisited neighbor nodes
-     */
-    private static boolean anyUnvisitedNeighbors(MazeNode[][] maze, MazeNode cursor)
-    {
-        if (cursor.row > 0 && !maze[cursor.row - 1][cursor.col].visited)
-            return true;
-        if (cursor.row < maze.length - 1 && !maze[cursor.row + 1][cursor.col].visited)
-            return true;
-        if (cursor.col > 0 && !maze[cursor.row][cursor.col - 1].visited)
-            return true;
-        if (cursor.col < maze[cursor.row].length - 1 && !maze[cursor.row][cursor.col + 1].visited)
-            return true;
-        return false;
-    }
-
-    private static boolean anyUnvisited(MazeNode[][] maze)
-    {
-        for (int r = 0; r < maze.length; r++)
-            for (int c = 0; c < maze[r].length; c++)
-                if (!maze[r][c].visited)
-                    return true;
-        return false;
-    }
-
-    /**
-     * Fill the map with the maze
+     * Make the coordinate index values of the specified point odd
      * 
-     * @param maze
-     * @param map
+     * @param p
      */
-    private static void mazeToMap(MazeNode[][] maze, boolean[][] map)
+    private void makePointsOdd(WeightedPoint p)
     {
-        int mazeRow, mazeCol;
-        for (int r = 1; r < map.length - 1; r += 2)
+        if (p.getRow() % 2 == 0)
         {
-            for (int c = 1; c < map[r].length - 1; c += 2)
-            {
-                mazeRow = (r - 1) / 2;
-                mazeCol = (c - 1) / 2;
-
-                map[r - 1][c - 1] = true;
-                map[r - 1][c + 0] = !maze[mazeRow][mazeCol].northOpen;
-                map[r - 1][c + 1] = true;
-
-                map[r + 0][c - 1] = !maze[mazeRow][mazeCol].westOpen;
-                map[r + 0][c + 0] = false;
-                map[r + 0][c + 1] = !maze[mazeRow][mazeCol].eastOpen;
-
-                map[r + 1][c - 1] = true;
-                map[r + 1][c + 0] = !maze[mazeRow][mazeCol].southOpen;
-                map[r + 1][c + 1] = true;
-            }
+            p.setRow(p.getRow() + (p.getRow() > 0 ? -1 : 1));
+        }
+        
+        if (p.getCol() % 2 == 0)
+        {
+            p.setCol(p.getCol() + (p.getCol() > 0 ? -1 : 1));
         }
     }
 
@@ -2,27 +2,28 @@ package astargazer.map.generator;
 
 import java.util.Random;
 
+import astargazer.map.TileGrid;
 import astargazer.map.WeightedPoint;
 
 /**
- * Generate a 2D Boolean map with random point obstacles
+ * Generate a tile grid with random point obstacles
  * 
  * @author Matt Yanos
  */
 public class GeneratorRandom extends MapGenerator
 {
     @Override
-    public void addObstacles(Random rnd, boolean[][] map, WeightedPoint start, WeightedPoint goal)
+    public void addObstacles(Random rnd, TileGrid map, WeightedPoint start, WeightedPoint goal)
     {
-        final int pointCount = Math.max(1, (map.length * map[0].length) / (2 + rnd.nextInt(4)));
+        final int pointCount = Math.max(1, (map.getRows() * map.getCols()) / (2 + rnd.nextInt(4)));
         int r, c;
         for (int i = 0; i < pointCount; i++)
         {
-            r = rnd.nextInt(Math.max(1, map.length));
-            c = rnd.nextInt(Math.max(1, map[0].length));
+            r = rnd.nextInt(Math.max(1, map.getRows()));
+            c = rnd.nextInt(Math.max(1, map.getCols()));
             if ((start.getCol() != c || start.getRow() != r) && (goal.getCol() != c || goal.getRow() != r))
             {
-                map[r][c] = true;
+                map.setBlocked(r, c, true);
             }
         }
     }
@@ -2,17 +2,18 @@ package astargazer.map.generator;
 
 import java.util.Random;
 
+import astargazer.map.TileGrid;
 import astargazer.map.WeightedPoint;
 
 /**
  * Base class for generating maps
- *
+ * 
  * @author Matt Yanos
  */
 public class MapGenerator implements GenerationScheme
 {
     @Override
-    public void addObstacles(Random rnd, boolean[][] map, WeightedPoint start, WeightedPoint goal)
+    public void addObstacles(Random rnd, TileGrid map, WeightedPoint start, WeightedPoint goal)
     {
         // The base generator class adds no non-border obstacles
     }
@@ -24,23 +25,23 @@ public class MapGenerator implements GenerationScheme
     }
 
     /**
-     * Add a border to the specified 2D Boolean array
-     *
+     * Add a border to the specified tile grid
+     * 
      * @param map
      */
-    public void addBorder(boolean[][] map)
+    public void addBorder(TileGrid map)
     {
         // Draw vertical borders
-        for (int r = 0; r < map.length; r++)
+        for (int r = 0; r < map.getRows(); r++)
         {
-            map[r][0] = true; // left
-            map[r][map[r].length - 1] = true; // right
+            map.setBlocked(r, 0, true); // left
+            map.setBlocked(r, map.getCols() - 1, true); // right
         }
         // Draw horizontal borders
-        for (int c = 0; c < map[0].length; c++)
+        for (int c = 0; c < map.getCols(); c++)
         {
-            map[0][c] = true; // top
-            map[map.length - 1][c] = true; // bottom
+            map.setBlocked(0, c, true); // top
+            map.setBlocked(map.getRows() - 1, c, true); // bottom
         }
     }
 
@@ -50,11 +51,25 @@ public class MapGenerator implements GenerationScheme
      * @param map
      * @return point
      */
-    public WeightedPoint generatePoint(Random rnd, boolean[][] map)
+    public WeightedPoint generatePoint(Random rnd, TileGrid map)
+    {
+        WeightedPoint point = generatePoint(rnd, map.getRows(), map.getCols());
+        map.setBlocked(point.getRow(), point.getCol(), false);
+        return point;
+    }
+
+    /**
+     * Get a random point inside the border of a map of the specified size without touching the map
+     * 
+     * @param rnd
+     * @param rows
+     * @param cols
+     * @return point
+     */
+    public WeightedPoint generatePoint(Random rnd, int rows, int cols)
     {
-        int r = rnd.nextInt(map.length - 2) + 1;
-        int c = rnd.nextInt(map[0].length - 2) + 1;
-        map[r][c] = false;
+        int r = rnd.nextInt(rows - 2) + 1;
+        int c = rnd.nextInt(cols - 2) + 1;
         return new WeightedPoint(r, c);
     }
 
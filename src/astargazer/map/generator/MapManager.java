@@ -1,7 +1,11 @@
 package astargazer.map.generator;
 
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import astargazer.map.TileGrid;
 import astargazer.map.TileMap;
 import astargazer.map.WeightedPoint;
 
@@ -38,6 +42,16 @@ public class MapManager
      */
     private MapGenerator generator = new MapGenerator();
 
+    /**
+     * How long it took to generate the last map in nanoseconds
+     */
+    private long generationTime;
+
+    /**
+     * How much memory the last generated map uses in bytes
+     */
+    private long generationMemory;
+
     /**
      * Private default constructor
      */
@@ -59,7 +73,7 @@ public class MapManager
 
     /**
      * Set the map generator
-     *
+     * 
      * @param generator
      */
     public void setGenerator(MapGenerator generator)
@@ -96,7 +110,53 @@ public class MapManager
         rnd = new Random(seed);
         this.mapSeed = seed;
 
-        boolean[][] map = new boolean[rnd.nextInt(MAX_HEIGHT - MIN_HEIGHT) + MIN_HEIGHT][rnd.nextInt(MAX_WIDTH - MIN_WIDTH) + MIN_WIDTH];
+        int rows = rnd.nextInt(MAX_HEIGHT - MIN_HEIGHT) + MIN_HEIGHT;
+        int cols = rnd.nextInt(MAX_WIDTH - MIN_WIDTH) + MIN_WIDTH;
+
+        // The maps shown in the window are small, so precompute the neighbor masks for them
+        return generate(seed, rnd, rows, cols, generator, true);
+    }
+
+    /**
+     * Generate a random TileMap of the specified size with the specified generator, without changing the stored seed or
+     * generator. Every generator runs in time linear to the number of tiles, so this can build maps far larger than the
+     * ones shown in the window for load testing. No neighbor masks are built, since they take a byte per tile on top of
+     * the bit per tile of the grid, see TileMap.buildNeighborMasks()
+     * 
+     * @param seed The random number generator seed to use
+     * @param rows The number of rows, at least 3
+     * @param cols The number of columns, at least 3
+     * @param generator The map generator to use
+     * @return
+     *         new TileMap
+     */
+    public TileMap generate(int seed, int rows, int cols, MapGenerator generator)
+    {
+        if (rows < 3 || cols < 3)
+        {
+            throw new IllegalArgumentException("A map must be at least 3x3 to fit a border around its start and goal, not " + rows + "x" + cols);
+        }
+
+        return generate(seed, new Random(seed), rows, cols, generator, false);
+    }
+
+    /**
+     * Generate a random TileMap, recording how long it took and how much memory it uses
+     * 
+     * @param seed
+     * @param rnd
+     * @param rows
+     * @param cols
+     * @param generator
+     * @param neighborMasks whether to build the neighbor masks
+     * @return
+     *         new TileMap
+     */
+    private TileMap generate(int seed, Random rnd, int rows, int cols, MapGenerator generator, boolean neighborMasks)
+    {
+        long startTime = System.nanoTime();
+
+        TileGrid map = new TileGrid(rows, cols);
 
         WeightedPoint start = generator.generatePoint(rnd, map);
         WeightedPoint goal = generator.generatePoint(rnd, map);
@@ -107,6 +167,278 @@ public class MapManager
         // Put a border on all maps
         generator.addBorder(map);
 
-        return new TileMap(map, start, goal, seed);
+        TileMap tileMap = new TileMap(map, start, goal, seed);
+
+        if (neighborMasks)
+        {
+            // Generated maps are static, so precompute the neighbor masks (permitting diagonal steps past corners, like
+            // the 8-directional neighbor selector)
+            tileMap.buildNeighborMasks(true);
+        }
+
+        this.generationTime = System.nanoTime() - startTime;
+        this.generationMemory = tileMap.getMemoryUsage();
+
+        return tileMap;
+    }
+
+    /**
+     * Generate a random TileMap of the specified size by splitting it into square chunks and placing the obstacles of
+     * every chunk in parallel on the specified pool. Each chunk draws from its own random number generator seeded from
+     * the map seed and the chunk coordinates, so the same seed always produces the same map no matter how many threads
+     * the pool has or in which order the chunks finish. Obstacles are clipped at the edges of their chunk and a
+     * generator that structures the whole map, like the perfect maze, produces an independent structure per chunk. As
+     * with generate(), no neighbor masks are built
+     * 
+     * @param seed The random number generator seed to use
+     * @param rows The number of rows, at least 3
+     * @param cols The number of columns, at least 3
+     * @param generator The map generator to use, which must not keep any state between calls to addObstacles()
+     * @param chunkSize The number of rows and columns in each chunk
+     * @param pool The pool to generate the chunks on
+     * @return
+     *         new TileMap
+     */
+    public TileMap generateChunked(int seed, int rows, int cols, MapGenerator generator, int chunkSize, ForkJoinPool pool)
+    {
+        if (rows < 3 || cols < 3)
+        {
+            throw new IllegalArgumentException("A map must be at least 3x3 to fit a border around its start and goal, not " + rows + "x" + cols);
+        }
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive, not " + chunkSize);
+        }
+
+        long startTime = System.nanoTime();
+
+        TileGrid map = new TileGrid(rows, cols);
+
+        Random rnd = new Random(seed);
+        WeightedPoint start = generator.generatePoint(rnd, map);
+        WeightedPoint goal = generator.generatePoint(rnd, map);
+
+        ChunkTask task = new ChunkTask(seed, rows, cols, generator, chunkSize, start, goal);
+        pool.invoke(task);
+
+        // The chunks are copied in afterward because neighboring chunks can share the words of the grid
+        for (int i = 0; i < task.chunks.length; i++)
+        {
+            map.copyFrom(task.chunks[i], (i / task.chunkCols) * chunkSize, (i % task.chunkCols) * chunkSize);
+        }
+
+        // Put a border on all maps
+        generator.addBorder(map);
+
+        // A generator only keeps the end points clear in the chunks that contain them
+        map.setBlocked(start.getRow(), start.getCol(), false);
+        map.setBlocked(goal.getRow(), goal.getCol(), false);
+
+        TileMap tileMap = new TileMap(map, start, goal, seed);
+
+        this.generationTime = System.nanoTime() - startTime;
+        this.generationMemory = tileMap.getMemoryUsage();
+
+        return tileMap;
+    }
+
+    /**
+     * Generate a TileMap of the specified size whose tiles are generated a chunk at a time when they are first read, so
+     * the world can be far larger than would fit in memory. At most the specified number of chunks are kept, with the
+     * least recently used chunk discarded and generated again when it is next read. The tiles are the same as those of
+     * generateChunked() with the same seed, size, generator, and chunk size. No neighbor masks are built, since they
+     * would cover the whole world
+     * 
+     * @param seed The random number generator seed to use
+     * @param rows The number of rows, at least 3
+     * @param cols The number of columns, at least 3
+     * @param generator The map generator to use, which must not keep any state between calls to addObstacles()
+     * @param chunkSize The number of rows and columns in each chunk
+     * @param cachedChunks The number of chunks to keep
+     * @return
+     *         new TileMap
+     */
+    public TileMap generateWorld(int seed, int rows, int cols, MapGenerator generator, int chunkSize, int cachedChunks)
+    {
+        if (rows < 3 || cols < 3)
+        {
+            throw new IllegalArgumentException("A map must be at least 3x3 to fit a border around its start and goal, not " + rows + "x" + cols);
+        }
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive, not " + chunkSize);
+        }
+
+        long startTime = System.nanoTime();
+
+        Random rnd = new Random(seed);
+        WeightedPoint start = generator.generatePoint(rnd, rows, cols);
+        WeightedPoint goal = generator.generatePoint(rnd, rows, cols);
+
+        ChunkedTileGrid map = new ChunkedTileGrid(seed, rows, cols, generator, chunkSize, cachedChunks, start, goal);
+        TileMap tileMap = new TileMap(map, start, goal, seed);
+
+        this.generationTime = System.nanoTime() - startTime;
+        this.generationMemory = tileMap.getMemoryUsage();
+
+        return tileMap;
+    }
+
+    /**
+     * Generate the obstacles of one chunk of a chunked map. The border and end points are not applied, since they
+     * belong to the whole map
+     * 
+     * @param generator
+     * @param seed
+     *            the map seed
+     * @param chunkRow
+     * @param chunkCol
+     * @param chunkSize
+     * @param rows
+     *            the number of rows in the whole map
+     * @param cols
+     *            the number of columns in the whole map
+     * @param start
+     * @param goal
+     * @return chunk
+     */
+    static TileGrid generateChunk(GenerationScheme generator, int seed, int chunkRow, int chunkCol, int chunkSize, int rows, int cols, WeightedPoint start, WeightedPoint goal)
+    {
+        int top = chunkRow * chunkSize;
+        int left = chunkCol * chunkSize;
+
+        TileGrid chunk = new TileGrid(Math.min(chunkSize, rows - top), Math.min(chunkSize, cols - left));
+
+        // The generator sees the end points relative to the chunk, and gets copies since some move them
+        WeightedPoint chunkStart = new WeightedPoint(start.getRow() - top, start.getCol() - left);
+        WeightedPoint chunkGoal = new WeightedPoint(goal.getRow() - top, goal.getCol() - left);
+
+        generator.addObstacles(new Random(getChunkSeed(seed, chunkRow, chunkCol)), chunk, chunkStart, chunkGoal);
+        return chunk;
+    }
+
+    /**
+     * Get the seed for the random number generator of the specified chunk, mixing the map seed and the chunk
+     * coordinates through a SplittableRandom so that neighboring chunks get unrelated streams
+     * 
+     * @param seed
+     * @param chunkRow
+     * @param chunkCol
+     * @return chunk seed
+     */
+    public static long getChunkSeed(int seed, int chunkRow, int chunkCol)
+    {
+        long coordinates = ((long)chunkRow << 32) | (chunkCol & 0xFFFFFFFFL);
+        return new SplittableRandom(seed ^ (coordinates * 0x9E3779B97F4A7C15L)).nextLong();
+    }
+
+    /**
+     * Places the obstacles of a range of chunks, splitting the range in half until it is a single chunk
+     */
+    private static class ChunkTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int seed;
+
+        private final int rows;
+
+        private final int cols;
+
+        private final MapGenerator generator;
+
+        private final int chunkSize;
+
+        private final WeightedPoint start;
+
+        private final WeightedPoint goal;
+
+        /**
+         * The number of chunks across the map
+         */
+        private final int chunkCols;
+
+        /**
+         * The generated tiles of every chunk in row-major order, shared by all the tasks of one map
+         */
+        private final TileGrid[] chunks;
+
+        private final int first;
+
+        private final int last;
+
+        /**
+         * Construct a task for every chunk of the map
+         */
+        public ChunkTask(int seed, int rows, int cols, MapGenerator generator, int chunkSize, WeightedPoint start, WeightedPoint goal)
+        {
+            this.seed = seed;
+            this.rows = rows;
+            this.cols = cols;
+            this.generator = generator;
+            this.chunkSize = chunkSize;
+            this.start = start;
+            this.goal = goal;
+            this.chunkCols = (cols + chunkSize - 1) / chunkSize;
+            this.chunks = new TileGrid[((rows + chunkSize - 1) / chunkSize) * chunkCols];
+            this.first = 0;
+            this.last = chunks.length;
+        }
+
+        /**
+         * Construct a task for the chunks from first up to but not including last
+         */
+        private ChunkTask(ChunkTask parent, int first, int last)
+        {
+            this.seed = parent.seed;
+            this.rows = parent.rows;
+            this.cols = parent.cols;
+            this.generator = parent.generator;
+            this.chunkSize = parent.chunkSize;
+            this.start = parent.start;
+            this.goal = parent.goal;
+            this.chunkCols = parent.chunkCols;
+            this.chunks = parent.chunks;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1)
+            {
+                int middle = (first + last) >>> 1;
+                invokeAll(new ChunkTask(this, first, middle), new ChunkTask(this, middle, last));
+                return;
+            }
+
+            for (int i = first; i < last; i++)
+            {
+                chunks[i] = generateChunk(generator, seed, i / chunkCols, i % chunkCols, chunkSize, rows, cols, start, goal);
+            }
+        }
+    }
+
+    /**
+     * Get how long it took to generate the last map
+     * 
+     * @return
+     *         generation time in nanoseconds
+     */
+    public long getGenerationTime()
+    {
+        return generationTime;
+    }
+
+    /**
+     * Get how much memory the last generated map uses, see TileMap.getMemoryUsage()
+     * 
+     * @return
+     *         bytes
+     */
+    public long getGenerationMemory()
+    {
+        return generationMemory;
     }
 }
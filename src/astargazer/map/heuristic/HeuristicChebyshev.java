@@ -1,18 +1,28 @@
 package astargazer.map.heuristic;
 
-import astargazer.map.WeightedPoint;
-
-public class HeuristicChebyshev extends HeuristicScheme
+public final class HeuristicChebyshev extends HeuristicScheme
 {
 
     @Override
-    public float distance( WeightedPoint one, WeightedPoint two )
+    public float distance(int fromRow, int fromCol, int toRow, int toCol)
     {
-        int dx = Math.abs(one.getRow() - two.getRow());
-        int dy = Math.abs(one.getCol() - two.getCol());
+        int dx = Math.abs(toRow - fromRow);
+        int dy = Math.abs(toCol - fromCol);
         return Math.max(dx, dy);
     }
 
+    @Override
+    public boolean isIntegral()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isConsistent()
+    {
+        return true;
+    }
+
     @Override
     public String getLabel()
     {
@@ -1,23 +1,27 @@
 package astargazer.map.heuristic;
 
-import astargazer.map.WeightedPoint;
-
-public class HeuristicDiagonal extends HeuristicScheme
+public final class HeuristicDiagonal extends HeuristicScheme
 {
     
     public static final float DIAGONAL_SCALE = (float)Math.sqrt( 2.0 );
 
     @Override
-    public float distance( WeightedPoint one, WeightedPoint two )
+    public float distance(int fromRow, int fromCol, int toRow, int toCol)
     {
-        int dx = Math.abs(one.getRow() - two.getRow());
-        int dy = Math.abs(one.getCol() - two.getCol());
+        int dx = Math.abs(toRow - fromRow);
+        int dy = Math.abs(toCol - fromCol);
         
         return (dx < dy) ?
                DIAGONAL_SCALE * dx + (dy - dx) :
                DIAGONAL_SCALE * dy + (dx - dy);
     }
 
+    @Override
+    public boolean isConsistent()
+    {
+        return true;
+    }
+
     @Override
     public String getLabel()
     {
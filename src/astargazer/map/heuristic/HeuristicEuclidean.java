@@ -1,18 +1,25 @@
 package astargazer.map.heuristic;
 
-import astargazer.map.WeightedPoint;
-
 /**
  * Euclidean distance heuristic
  * 
  * @author Matt Yanos
  */
-public class HeuristicEuclidean extends HeuristicScheme
+public final class HeuristicEuclidean extends HeuristicScheme
 {
     @Override
-    public float distance(WeightedPoint one, WeightedPoint two)
+    public float distance(int fromRow, int fromCol, int toRow, int toCol)
+    {
+        int dx = toCol - fromCol;
+        int dy = toRow - fromRow;
+
+        return (float)Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public boolean isConsistent()
     {
-        return (float)Math.sqrt((one.getCol() - two.getCol()) * (one.getCol() - two.getCol()) + (one.getRow() - two.getRow()) * (one.getRow() - two.getRow()));
+        return true;
     }
 
     @Override
@@ -1,18 +1,28 @@
 package astargazer.map.heuristic;
 
-import astargazer.map.WeightedPoint;
-
 /**
  * Manhattan distance heuristic
  * 
  * @author Matt Yanos
  */
-public class HeuristicManhattan extends HeuristicScheme
+public final class HeuristicManhattan extends HeuristicScheme
 {
     @Override
-    public float distance(WeightedPoint one, WeightedPoint two)
+    public float distance(int fromRow, int fromCol, int toRow, int toCol)
+    {
+        return Math.abs(toCol - fromCol) + Math.abs(toRow - fromRow);
+    }
+
+    @Override
+    public boolean isIntegral()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isConsistent()
     {
-        return Math.abs(two.getCol() - one.getCol()) + Math.abs(two.getRow() - one.getRow());
+        return true;
     }
 
     @Override
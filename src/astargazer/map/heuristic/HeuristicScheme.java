@@ -3,7 +3,9 @@ package astargazer.map.heuristic;
 import astargazer.map.WeightedPoint;
 
 /**
- * Calculates distance for use in determining the heuristic for the path finding algorithm
+ * Calculates distance for use in determining the heuristic for the path finding algorithm. The built-in heuristics are
+ * final classes, and the path finding algorithm calls their distance on plain coordinates so the JIT can inline it into
+ * the search loop while a search only ever uses the one heuristic
  * 
  * @author Matt Yanos
  */
@@ -16,7 +18,44 @@ public abstract class HeuristicScheme
      * @param two
      * @return distance
      */
-    public abstract float distance(WeightedPoint one, WeightedPoint two);
+    public float distance(WeightedPoint one, WeightedPoint two)
+    {
+        return distance(one.getRow(), one.getCol(), two.getRow(), two.getCol());
+    }
+
+    /**
+     * Get the distance between the specified tiles for the extended heuristic scheme, without needing a point for
+     * either of them
+     * 
+     * @param fromRow
+     * @param fromCol
+     * @param toRow
+     * @param toCol
+     * @return distance
+     */
+    public abstract float distance(int fromRow, int fromCol, int toRow, int toCol);
+
+    /**
+     * Whether the distance between two tiles is always a whole number. The neighbor selectors use this distance as the
+     * cost of a step, so an integral heuristic means every cost in the search is a whole number
+     * 
+     * @return integral
+     */
+    public boolean isIntegral()
+    {
+        return false;
+    }
+
+    /**
+     * Whether the distance obeys the triangle inequality, so that when it is also used for the step costs the total
+     * cost (f) never decreases along a path and a node never needs to be visited twice
+     * 
+     * @return consistent
+     */
+    public boolean isConsistent()
+    {
+        return false;
+    }
 
     /**
      * Get the label for the extended heuristic scheme
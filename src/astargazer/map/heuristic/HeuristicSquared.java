@@ -1,23 +1,27 @@
 package astargazer.map.heuristic;
 
-import astargazer.map.WeightedPoint;
-
 /**
  * Euclidean distance squared heuristic
  * 
  * @author Matt Yanos, Philip Diffenderfer
  */
-public class HeuristicSquared extends HeuristicScheme
+public final class HeuristicSquared extends HeuristicScheme
 {
     @Override
-    public float distance(WeightedPoint one, WeightedPoint two)
+    public float distance(int fromRow, int fromCol, int toRow, int toCol)
     {
-        float dx = one.getCol() - two.getCol();
-        float dy = one.getRow() - two.getRow();
+        float dx = toCol - fromCol;
+        float dy = toRow - fromRow;
 
         return dx * dx + dy * dy;
     }
 
+    @Override
+    public boolean isIntegral()
+    {
+        return true;
+    }
+
     @Override
     public String getLabel()
     {
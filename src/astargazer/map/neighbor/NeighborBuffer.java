@@ -0,0 +1,143 @@
+package astargazer.map.neighbor;
+
+import java.util.Random;
+
+/**
+ * A reusable buffer of neighboring cell indexes and the step cost to reach each of them. A NeighborSelector fills the
+ * buffer so the path finding algorithm can iterate over the neighbors of the cursor without allocating a list of points
+ * for every step
+ * 
+ * @author Matt Yanos
+ */
+public class NeighborBuffer
+{
+    /**
+     * The cell indexes of the neighbors, see TileMap.getIndex()
+     */
+    private int[] cells;
+
+    /**
+     * The cost to step from the cursor to each neighbor
+     */
+    private float[] costs;
+
+    /**
+     * The number of neighbors currently stored in the buffer
+     */
+    private int count;
+
+    /**
+     * Construct a NeighborBuffer large enough for all eight adjacent tiles
+     */
+    public NeighborBuffer()
+    {
+        this(8);
+    }
+
+    /**
+     * Construct a NeighborBuffer with the specified initial capacity. The buffer grows as needed, so the capacity only
+     * determines when the first growth happens
+     * 
+     * @param capacity
+     */
+    public NeighborBuffer(int capacity)
+    {
+        this.cells = new int[Math.max(1, capacity)];
+        this.costs = new float[cells.length];
+    }
+
+    /**
+     * Empty the buffer
+     */
+    public void clear()
+    {
+        count = 0;
+    }
+
+    /**
+     * Add a neighbor to the buffer
+     * 
+     * @param cell
+     * @param cost
+     */
+    public void add(int cell, float cost)
+    {
+        if (count == cells.length)
+        {
+            int[] growCells = new int[cells.length * 2];
+            float[] growCosts = new float[growCells.length];
+            System.arraycopy(cells, 0, growCells, 0, count);
+            System.arraycopy(costs, 0, growCosts, 0, count);
+            cells = growCells;
+            costs = growCosts;
+        }
+        cells[count] = cell;
+        costs[count] = cost;
+        count++;
+    }
+
+    /**
+     * Whether the specified cell is already in the buffer
+     * 
+     * @param cell
+     * @return contains
+     */
+    public boolean contains(int cell)
+    {
+        for (int i = 0; i < count; i++)
+            if (cells[i] == cell)
+                return true;
+        return false;
+    }
+
+    /**
+     * The number of neighbors in the buffer
+     * 
+     * @return size
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Get the cell index of the neighbor at position i
+     * 
+     * @param i
+     * @return cell
+     */
+    public int getCell(int i)
+    {
+        return cells[i];
+    }
+
+    /**
+     * Get the cost to step to the neighbor at position i
+     * 
+     * @param i
+     * @return cost
+     */
+    public float getCost(int i)
+    {
+        return costs[i];
+    }
+
+    /**
+     * Shuffle the order of the neighbors in the buffer
+     * 
+     * @param rnd
+     */
+    public void shuffle(Random rnd)
+    {
+        for (int i = count - 1; i > 0; i--)
+        {
+            int j = rnd.nextInt(i + 1);
+            int swapCell = cells[i];
+            float swapCost = costs[i];
+            cells[i] = cells[j];
+            costs[i] = costs[j];
+            cells[j] = swapCell;
+            costs[j] = swapCost;
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package astargazer.map.neighbor;
 
-import java.util.List;
-
 import astargazer.gui.HelpPopup;
-import astargazer.map.WeightedPoint;
 import astargazer.map.TileMap;
 import astargazer.map.heuristic.HeuristicScheme;
 
@@ -14,30 +11,40 @@ import astargazer.map.heuristic.HeuristicScheme;
  */
 public class NeighborEightDirections extends NeighborSelector
 {
+    /**
+     * The orthogonal neighbors are shared with the 4-directional selector
+     */
+    private final NeighborFourDirections orthogonal = new NeighborFourDirections();
+
     @Override
-    public List<WeightedPoint> getNeighbors(TileMap map, WeightedPoint cursor, HeuristicScheme distanceCalculator)
+    public int getNeighbors(TileMap map, int row, int col, HeuristicScheme distanceCalculator, NeighborBuffer neighbors)
     {
-        List<WeightedPoint> neighbors = (new NeighborFourDirections()).getNeighbors(map, cursor, distanceCalculator);
+        if (map.hasNeighborMasks())
+        {
+            return getMaskedNeighbors(map, row, col, map.getNeighborMask(row, col), distanceCalculator, neighbors);
+        }
+
+        orthogonal.getNeighbors(map, row, col, distanceCalculator, neighbors);
 
-        // If the neighbor is not out of bounds and that the neighbor is traversable, then add it to the list
-        if (cursor.getRow() > 0 && map.isTraversable(cursor.getRow() - 1, cursor.getCol() - 1) )
+        // If the neighbor is not out of bounds and that the neighbor is traversable, then add it to the buffer
+        if (row > 0 && col > 0 && map.isTraversable(row - 1, col - 1) )
         {
-            neighbors.add( new WeightedPoint(cursor.getRow() - 1, cursor.getCol() - 1) ); // Northwest
+            neighbors.add( map.getIndex(row - 1, col - 1), distanceCalculator.distance(row, col, row - 1, col - 1) ); // Northwest
         }
-        if (cursor.getCol() < map.getCols() - 1 && map.isTraversable(cursor.getRow() + 1, cursor.getCol() + 1) )
+        if (row < map.getRows() - 1 && col < map.getCols() - 1 && map.isTraversable(row + 1, col + 1) )
         {
-            neighbors.add( new WeightedPoint(cursor.getRow() + 1, cursor.getCol() + 1) ); // Southeast
+            neighbors.add( map.getIndex(row + 1, col + 1), distanceCalculator.distance(row, col, row + 1, col + 1) ); // Southeast
         }
-        if (cursor.getRow() < map.getRows() - 1 && map.isTraversable(cursor.getRow() + 1, cursor.getCol() - 1))
+        if (row < map.getRows() - 1 && col > 0 && map.isTraversable(row + 1, col - 1))
         {
-            neighbors.add( new WeightedPoint(cursor.getRow() + 1, cursor.getCol() - 1) ); // Southwest
+            neighbors.add( map.getIndex(row + 1, col - 1), distanceCalculator.distance(row, col, row + 1, col - 1) ); // Southwest
         }
-        if (cursor.getCol() > 0 && map.isTraversable(cursor.getRow() - 1, cursor.getCol() + 1) )
+        if (row > 0 && col < map.getCols() - 1 && map.isTraversable(row - 1, col + 1) )
         {
-            neighbors.add( new WeightedPoint(cursor.getRow() - 1, cursor.getCol() + 1) ); // Northeast
+            neighbors.add( map.getIndex(row - 1, col + 1), distanceCalculator.distance(row, col, row - 1, col + 1) ); // Northeast
         }
 
-        return neighbors;
+        return neighbors.size();
     }
 
     @Override
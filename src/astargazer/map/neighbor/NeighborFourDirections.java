@@ -1,10 +1,6 @@
 package astargazer.map.neighbor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import astargazer.gui.HelpPopup;
-import astargazer.map.WeightedPoint;
 import astargazer.map.TileMap;
 import astargazer.map.heuristic.HeuristicScheme;
 
@@ -16,29 +12,34 @@ import astargazer.map.heuristic.HeuristicScheme;
 public class NeighborFourDirections extends NeighborSelector
 {
     @Override
-    public List<WeightedPoint> getNeighbors(TileMap map, WeightedPoint cursor, HeuristicScheme distanceCalculator)
+    public int getNeighbors(TileMap map, int row, int col, HeuristicScheme distanceCalculator, NeighborBuffer neighbors)
     {
-        List<WeightedPoint> neighbors = new ArrayList<WeightedPoint>();
+        if (map.hasNeighborMasks())
+        {
+            return getMaskedNeighbors(map, row, col, map.getNeighborMask(row, col) & TileMap.ORTHOGONAL_MASK, distanceCalculator, neighbors);
+        }
+
+        neighbors.clear();
 
-        // If the neighbor is not out of bounds and that the neighbor is traversable, then add it to the list
-        if (cursor.getRow() > 0 && map.isTraversable(cursor.getRow() - 1, cursor.getCol()) )
+        // If the neighbor is not out of bounds and that the neighbor is traversable, then add it to the buffer
+        if (row > 0 && map.isTraversable(row - 1, col) )
         {
-            neighbors.add( new WeightedPoint(cursor.getRow() - 1, cursor.getCol()) ); // North
+            neighbors.add( map.getIndex(row - 1, col), distanceCalculator.distance(row, col, row - 1, col) ); // North
         }
-        if (cursor.getCol() < map.getCols() - 1 && map.isTraversable(cursor.getRow(), cursor.getCol() + 1) )
+        if (col < map.getCols() - 1 && map.isTraversable(row, col + 1) )
         {
-            neighbors.add( new WeightedPoint(cursor.getRow(), cursor.getCol() + 1) ); // East
+            neighbors.add( map.getIndex(row, col + 1), distanceCalculator.distance(row, col, row, col + 1) ); // East
         }
-        if (cursor.getRow() < map.getRows() - 1 && map.isTraversable(cursor.getRow() + 1, cursor.getCol()))
+        if (row < map.getRows() - 1 && map.isTraversable(row + 1, col))
         {
-            neighbors.add( new WeightedPoint(cursor.getRow() + 1, cursor.getCol()) ); // South
+            neighbors.add( map.getIndex(row + 1, col), distanceCalculator.distance(row, col, row + 1, col) ); // South
         }
-        if (cursor.getCol() > 0 && map.isTraversable(cursor.getRow(), cursor.getCol() - 1) )
+        if (col > 0 && map.isTraversable(row, col - 1) )
         {
-            neighbors.add( new WeightedPoint(cursor.getRow(), cursor.getCol() - 1) ); // West
+            neighbors.add( map.getIndex(row, col - 1), distanceCalculator.distance(row, col, row, col - 1) ); // West
         }
 
-        return neighbors;
+        return neighbors.size();
     }
 
     @Override
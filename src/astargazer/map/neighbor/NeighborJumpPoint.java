@@ -1,10 +1,6 @@
 package astargazer.map.neighbor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import astargazer.map.TileMap;
-import astargazer.map.WeightedPoint;
 import astargazer.map.heuristic.HeuristicScheme;
 
 /**
@@ -19,40 +15,48 @@ public class NeighborJumpPoint extends NeighborSelector
     private final static int SPOKE_COUNT = 64;
 
     @Override
-    public List<WeightedPoint> getNeighbors(TileMap map, WeightedPoint cursor, HeuristicScheme distanceCalculator)
+    public int getNeighbors(TileMap map, int row, int col, HeuristicScheme distanceCalculator, NeighborBuffer neighbors)
     {
-        List<WeightedPoint> neighbors = new ArrayList<WeightedPoint>();
+        neighbors.clear();
 
         final int maxDistance = (int)Math.max(Math.min(map.getCols(), map.getRows()) / 4.0f, 2.0f); // One quarter the shortest map dimension (or at least 2)
 
         final double deltaAngle = 2.0 * Math.PI / SPOKE_COUNT;
 
+        final int goalRow = map.getGoal().getRow();
+        final int goalCol = map.getGoal().getCol();
+
         double testRow, testCol;
-        WeightedPoint addition;
+        int additionRow, additionCol, addition;
+        float distance;
         for (float angle = 0.0f; angle < Math.PI * 2.0; angle += deltaAngle)
         {
-            testRow = cursor.getRow() + 0.5;
-            testCol = cursor.getCol() + 0.5;
+            testRow = row + 0.5;
+            testCol = col + 0.5;
             while (testCol > 0 && testCol < map.getCols() - 1 && testRow > 0 && testRow < map.getRows() - 1)
             {
-                addition = new WeightedPoint((int)testRow, (int)testCol);
+                additionRow = (int)testRow;
+                additionCol = (int)testCol;
 
                 testRow += Math.sin(angle);
                 testCol += Math.cos(angle);
 
-                if (map.getGoal().equals(addition) || 
-                    (distanceCalculator.distance(cursor, addition) >= maxDistance) || 
-                    (map.isTraversable(addition) && !map.isTraversable((int)testRow, (int)testCol)))
+                distance = distanceCalculator.distance(row, col, additionRow, additionCol);
+
+                if ((additionRow == goalRow && additionCol == goalCol) || 
+                    (distance >= maxDistance) || 
+                    (map.isTraversable(additionRow, additionCol) && !map.isTraversable((int)testRow, (int)testCol)))
                 {
-                    if (!addition.equals(cursor) && !neighbors.contains(addition))
-                        neighbors.add(addition);
+                    addition = map.getIndex(additionRow, additionCol);
+                    if ((additionRow != row || additionCol != col) && !neighbors.contains(addition))
+                        neighbors.add(addition, distance);
 
                     break;
                 }
             }
         }
 
-        return neighbors;
+        return neighbors.size();
     }
 
     @Override
@@ -1,5 +1,6 @@
 package astargazer.map.neighbor;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import astargazer.map.TileMap;
@@ -22,7 +23,67 @@ public abstract class NeighborSelector
      * @return
      *         neighbors
      */
-    public abstract List<WeightedPoint> getNeighbors(TileMap map, WeightedPoint cursor, HeuristicScheme distanceCalculator);
+    public List<WeightedPoint> getNeighbors(TileMap map, WeightedPoint cursor, HeuristicScheme distanceCalculator)
+    {
+        NeighborBuffer buffer = new NeighborBuffer();
+        int count = getNeighbors(map, cursor.getRow(), cursor.getCol(), distanceCalculator, buffer);
+
+        List<WeightedPoint> neighbors = new ArrayList<WeightedPoint>(count);
+        for (int i = 0; i < count; i++)
+        {
+            neighbors.add( new WeightedPoint(map.getRow(buffer.getCell(i)), map.getCol(buffer.getCell(i))) );
+        }
+        return neighbors;
+    }
+
+    /**
+     * Fills the specified buffer with the cell indexes of the neighboring points to be considered in the next step of
+     * the algorithm, along with the cost to step from the cursor to each of them, without allocating any points
+     * 
+     * @param map
+     * @param row
+     *            the row of the cursor
+     * @param col
+     *            the column of the cursor
+     * @param distanceCalculator
+     * @param neighbors
+     *            the buffer to be cleared and filled
+     * @return
+     *         the number of neighbors written to the buffer
+     */
+    public abstract int getNeighbors(TileMap map, int row, int col, HeuristicScheme distanceCalculator, NeighborBuffer neighbors);
+
+    /**
+     * Fills the specified buffer with the neighbors in the directions set in the specified bits of a precomputed
+     * TileMap neighbor mask, which already accounts for the map bounds and the traversable tiles
+     * 
+     * @param map
+     * @param row
+     *            the row of the cursor
+     * @param col
+     *            the column of the cursor
+     * @param mask
+     *            the directions to add, see TileMap.getNeighborMask()
+     * @param distanceCalculator
+     * @param neighbors
+     *            the buffer to be cleared and filled
+     * @return
+     *         the number of neighbors written to the buffer
+     */
+    protected int getMaskedNeighbors(TileMap map, int row, int col, int mask, HeuristicScheme distanceCalculator, NeighborBuffer neighbors)
+    {
+        neighbors.clear();
+
+        for (int bits = mask; bits != 0; bits &= bits - 1)
+        {
+            int direction = Integer.numberOfTrailingZeros(bits);
+            int r = row + TileMap.DIRECTION_ROWS[direction];
+            int c = col + TileMap.DIRECTION_COLS[direction];
+            neighbors.add( map.getIndex(r, c), distanceCalculator.distance(row, col, r, c) );
+        }
+
+        return neighbors.size();
+    }
 
     /**
      * Get the label
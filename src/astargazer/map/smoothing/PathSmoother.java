@@ -0,0 +1,84 @@
+package astargazer.map.smoothing;
+
+import java.util.List;
+
+import astargazer.map.TileMap;
+import astargazer.map.WeightedPoint;
+
+/**
+ * A stage of post processing applied to a path found by the path finding algorithm, dropping points so that the path
+ * is shorter and has fewer turns to follow. Stages can be chained, each smoothing the output of the one before it
+ * 
+ * @author Matt Yanos
+ */
+public abstract class PathSmoother
+{
+    /**
+     * Smooth the specified path. The points that are kept keep the costs the algorithm found for them, and are linked
+     * to each other again so that each point's previous point is the next point in the returned list
+     * 
+     * @param map
+     *            the map the path was found on
+     * @param path
+     *            the path from the goal back to the start, as returned by PathFinder.getPath()
+     * @return the smoothed path, also from the goal back to the start
+     */
+    public abstract List<WeightedPoint> smooth(TileMap map, List<WeightedPoint> path);
+
+    /**
+     * Link each point of the specified path to the next point in the list as its previous point
+     * 
+     * @param path
+     * @return path
+     */
+    protected static List<WeightedPoint> link(List<WeightedPoint> path)
+    {
+        for (int i = 0; i < path.size(); i++)
+        {
+            path.get(i).setPrev(i + 1 < path.size() ? path.get(i + 1) : null);
+        }
+        return path;
+    }
+
+    /**
+     * Whether there is a line of sight between two points
+     * 
+     * @param map
+     * @param one
+     * @param two
+     * @return line of sight
+     */
+    protected static boolean hasLineOfSight(TileMap map, WeightedPoint one, WeightedPoint two)
+    {
+        return map.hasLineOfSight(one.getRow(), one.getCol(), two.getRow(), two.getCol());
+    }
+
+    /**
+     * Get the label
+     * 
+     * @return label
+     */
+    public abstract String getLabel();
+
+    /**
+     * Get an HTML formatted String explaining the smoothing stage
+     * 
+     * @return explanation
+     */
+    public abstract String getExplanation();
+
+    public String toString()
+    {
+        return getLabel();
+    }
+
+    /**
+     * Get all the smoothing stages that extend this base abstract class, in the order they are best chained
+     * 
+     * @return smoothers
+     */
+    public static PathSmoother[] getAllPathSmoothers()
+    {
+        return new PathSmoother[] {new SmootherFunnel(), new SmootherLineOfSight(), new SmootherCollinear()};
+    }
+}
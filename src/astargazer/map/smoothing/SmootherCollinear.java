@@ -0,0 +1,61 @@
+package astargazer.map.smoothing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import astargazer.map.TileMap;
+import astargazer.map.WeightedPoint;
+
+/**
+ * Smoothing stage that drops every point lying on the straight line between the points before and after it, which
+ * leaves only the turns of the path
+ * 
+ * @author Matt Yanos
+ */
+public class SmootherCollinear extends PathSmoother
+{
+    @Override
+    public List<WeightedPoint> smooth(TileMap map, List<WeightedPoint> path)
+    {
+        if (path.size() < 3)
+            return path;
+
+        List<WeightedPoint> smoothed = new ArrayList<WeightedPoint>();
+        smoothed.add(path.get(0));
+        for (int i = 1; i < path.size() - 1; i++)
+        {
+            WeightedPoint prev = smoothed.get(smoothed.size() - 1);
+            WeightedPoint point = path.get(i);
+            WeightedPoint next = path.get(i + 1);
+
+            int rowIn = point.getRow() - prev.getRow();
+            int colIn = point.getCol() - prev.getCol();
+            int rowOut = next.getRow() - point.getRow();
+            int colOut = next.getCol() - point.getCol();
+
+            // Keep the point unless the path carries on through it in the same direction
+            long cross = (long)rowIn * colOut - (long)colIn * rowOut;
+            long dot = (long)rowIn * rowOut + (long)colIn * colOut;
+            if (cross != 0 || dot <= 0)
+            {
+                smoothed.add(point);
+            }
+        }
+        smoothed.add(path.get(path.size() - 1));
+
+        return link(smoothed);
+    }
+
+    @Override
+    public String getLabel()
+    {
+        return "Collinear Removal";
+    }
+
+    @Override
+    public String getExplanation()
+    {
+        return "Removes every point that lies on a straight line between its neighbors on the path, so only the points " +
+               "where the path turns are left. The path itself is unchanged.";
+    }
+}
@@ -0,0 +1,223 @@
+package astargazer.map.smoothing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import astargazer.map.TileMap;
+import astargazer.map.WeightedPoint;
+
+/**
+ * Smoothing stage that finds the shortest line through the corridor of tiles walked by the path with the funnel
+ * algorithm, keeping only the points where that line bends around a corner. It never makes a line of sight check
+ * while it scans, and unlike the line of sight stage the path stays inside the tiles the search walked through
+ * 
+ * The corridor is entered through a portal between each pair of adjacent tiles: the shared edge of an orthogonal step,
+ * or the shared corner of a diagonal one. A funnel from the last bend is narrowed portal by portal until one side
+ * crosses the other, which makes the crossed corner the next bend. Corners are measured in half tiles so that every
+ * point is a whole number. The line bends at tile corners, so each bend is kept as a tile touching the corner, and any
+ * two kept tiles that turn out not to see each other keep the original points between them
+ * 
+ * @author Matt Yanos
+ */
+public class SmootherFunnel extends PathSmoother
+{
+    @Override
+    public List<WeightedPoint> smooth(TileMap map, List<WeightedPoint> path)
+    {
+        if (path.size() < 3)
+            return path;
+
+        List<WeightedPoint> smoothed = new ArrayList<WeightedPoint>();
+        smoothed.add(path.get(0));
+
+        // The funnel runs over each stretch of adjacent steps, and a longer step is kept as it is
+        int first = 0;
+        for (int i = 1; i < path.size(); i++)
+        {
+            if (i == path.size() - 1 || !isStep(path.get(i), path.get(i + 1)))
+            {
+                if (isStep(path.get(i - 1), path.get(i)))
+                {
+                    smoothCorridor(map, path, first, i, smoothed);
+                }
+                smoothed.add(path.get(i));
+                first = i;
+            }
+        }
+
+        return link(smoothed);
+    }
+
+    /**
+     * Add the bends of the shortest line through the corridor of adjacent tiles from path index first to path index last
+     * to the smoothed path, not including either end
+     * 
+     * @param map
+     * @param path
+     * @param first
+     * @param last
+     * @param smoothed
+     */
+    private void smoothCorridor(TileMap map, List<WeightedPoint> path, int first, int last, List<WeightedPoint> smoothed)
+    {
+        // Portal i is between tiles first + i - 1 and first + i, and the corridor starts and ends at tile centers
+        final int portalCount = last - first + 1;
+        int[] leftX = new int[portalCount];
+        int[] leftY = new int[portalCount];
+        int[] rightX = new int[portalCount];
+        int[] rightY = new int[portalCount];
+        for (int i = 0; i < portalCount; i++)
+        {
+            WeightedPoint tile = path.get(first + i);
+            int x = 2 * tile.getCol() + 1;
+            int y = 2 * tile.getRow() + 1;
+            if (i == 0 || i == portalCount - 1)
+            {
+                leftX[i] = rightX[i] = x;
+                leftY[i] = rightY[i] = y;
+                continue;
+            }
+
+            WeightedPoint from = path.get(first + i - 1);
+            int dx = tile.getCol() - from.getCol();
+            int dy = tile.getRow() - from.getRow();
+
+            // The middle of the shared edge, or the shared corner of a diagonal step where the portal is a single point
+            int midX = 2 * from.getCol() + 1 + dx;
+            int midY = 2 * from.getRow() + 1 + dy;
+            int sideX = dx != 0 && dy != 0 ? 0 : -dy;
+            int sideY = dx != 0 && dy != 0 ? 0 : dx;
+            leftX[i] = midX + sideX;
+            leftY[i] = midY + sideY;
+            rightX[i] = midX - sideX;
+            rightY[i] = midY - sideY;
+        }
+
+        List<Integer> bends = new ArrayList<Integer>();
+        int apexX = leftX[0];
+        int apexY = leftY[0];
+        int funnelLeftX = apexX;
+        int funnelLeftY = apexY;
+        int funnelRightX = apexX;
+        int funnelRightY = apexY;
+        int leftIndex = 0;
+        int rightIndex = 0;
+        for (int i = 1; i < portalCount; i++)
+        {
+            // Narrow the right side of the funnel, unless it would cross the left side
+            if (area(apexX, apexY, funnelRightX, funnelRightY, rightX[i], rightY[i]) <= 0)
+            {
+                if ((apexX == funnelRightX && apexY == funnelRightY) || area(apexX, apexY, funnelLeftX, funnelLeftY, rightX[i], rightY[i]) > 0)
+                {
+                    funnelRightX = rightX[i];
+                    funnelRightY = rightY[i];
+                    rightIndex = i;
+                }
+                else
+                {
+                    // The line bends around the left side, which becomes the new apex
+                    bends.add(leftIndex);
+                    apexX = funnelLeftX;
+                    apexY = funnelLeftY;
+                    funnelRightX = apexX;
+                    funnelRightY = apexY;
+                    rightIndex = leftIndex;
+                    i = leftIndex;
+                    continue;
+                }
+            }
+
+            // Narrow the left side of the funnel, unless it would cross the right side
+            if (area(apexX, apexY, funnelLeftX, funnelLeftY, leftX[i], leftY[i]) >= 0)
+            {
+                if ((apexX == funnelLeftX && apexY == funnelLeftY) || area(apexX, apexY, funnelRightX, funnelRightY, leftX[i], leftY[i]) < 0)
+                {
+                    funnelLeftX = leftX[i];
+                    funnelLeftY = leftY[i];
+                    leftIndex = i;
+                }
+                else
+                {
+                    // The line bends around the right side, which becomes the new apex
+                    bends.add(rightIndex);
+                    apexX = funnelRightX;
+                    apexY = funnelRightY;
+                    funnelLeftX = apexX;
+                    funnelLeftY = apexY;
+                    leftIndex = rightIndex;
+                    i = rightIndex;
+                    continue;
+                }
+            }
+        }
+
+        // Keep a tile beside each bend, then make sure every kept tile can see the one before it
+        int kept = first;
+        for (int b = 0; b <= bends.size(); b++)
+        {
+            int next = last;
+            if (b < bends.size())
+            {
+                // The bend is a corner of both tiles beside its portal, so take whichever is visible from the last tile kept
+                next = first + bends.get(b);
+                if (!hasLineOfSight(map, path.get(kept), path.get(next)) && hasLineOfSight(map, path.get(kept), path.get(next - 1)))
+                {
+                    next--;
+                }
+                if (next <= kept)
+                    continue;
+            }
+
+            if (!hasLineOfSight(map, path.get(kept), path.get(next)))
+            {
+                for (int i = kept + 1; i < next; i++)
+                {
+                    smoothed.add(path.get(i));
+                }
+            }
+            if (next < last)
+            {
+                smoothed.add(path.get(next));
+            }
+            kept = next;
+        }
+    }
+
+    /**
+     * Whether two points are adjacent tiles
+     * 
+     * @param one
+     * @param two
+     * @return step
+     */
+    private static boolean isStep(WeightedPoint one, WeightedPoint two)
+    {
+        int dr = Math.abs(one.getRow() - two.getRow());
+        int dc = Math.abs(one.getCol() - two.getCol());
+        return dr <= 1 && dc <= 1 && dr + dc > 0;
+    }
+
+    /**
+     * Twice the signed area of the triangle a, b, c, whose sign tells which side of the line from a to b the point c is on
+     * 
+     * @return area
+     */
+    private static long area(int ax, int ay, int bx, int by, int cx, int cy)
+    {
+        return (long)(cx - ax) * (by - ay) - (long)(bx - ax) * (cy - ay);
+    }
+
+    @Override
+    public String getLabel()
+    {
+        return "Funnel";
+    }
+
+    @Override
+    public String getExplanation()
+    {
+        return "Finds the shortest line through the corridor of tiles walked by the path using the funnel algorithm, " +
+               "and keeps only the tiles where that line bends around a corner. The path stays inside the tiles the " +
+               "search walked through, and the corridor is scanned without any line of sight checks.";
+    }
+}
@@ -0,0 +1,74 @@
+package astargazer.map.smoothing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import astargazer.map.TileMap;
+import astargazer.map.WeightedPoint;
+
+/**
+ * Smoothing stage that pulls the path tight like a string: from each kept point it skips ahead to the furthest point
+ * that can still be seen in a straight line, dropping every point in between
+ * 
+ * @author Matt Yanos
+ */
+public class SmootherLineOfSight extends PathSmoother
+{
+    @Override
+    public List<WeightedPoint> smooth(TileMap map, List<WeightedPoint> path)
+    {
+        if (path.size() < 3)
+            return path;
+
+        List<WeightedPoint> smoothed = new ArrayList<WeightedPoint>();
+        WeightedPoint anchor = path.get(0);
+        smoothed.add(anchor);
+        for (int i = 2; i < path.size(); i++)
+        {
+            if (!isShortcut(map, anchor, path.get(i)))
+            {
+                // The point before this one is the furthest that can be reached straight from the anchor
+                anchor = path.get(i - 1);
+                smoothed.add(anchor);
+            }
+        }
+        smoothed.add(path.get(path.size() - 1));
+
+        return link(smoothed);
+    }
+
+    /**
+     * Whether the path can go straight between two of its points. On a map with terrain costs the straight line must
+     * also cost no more than the part of the path it replaces, which is the difference in the points' from costs
+     * 
+     * @param map
+     * @param from
+     *            the point nearer the goal
+     * @param to
+     *            the point nearer the start
+     * @return shortcut
+     */
+    private boolean isShortcut(TileMap map, WeightedPoint from, WeightedPoint to)
+    {
+        if (!map.hasCosts())
+            return hasLineOfSight(map, from, to);
+
+        float lineCost = map.getLineCost(from.getRow(), from.getCol(), to.getRow(), to.getCol());
+        return lineCost >= 0 && lineCost <= from.getFromCost() - to.getFromCost();
+    }
+
+    @Override
+    public String getLabel()
+    {
+        return "Line of Sight";
+    }
+
+    @Override
+    public String getExplanation()
+    {
+        return "Pulls the path tight like a string. Starting from one end, the path skips ahead to the furthest point " +
+               "that is visible in a straight line, which becomes the next point of the path. The path may leave the " +
+               "tiles the search walked through, and on a map with terrain costs a straight line is only taken when it " +
+               "is no more expensive than the path it replaces.";
+    }
+}
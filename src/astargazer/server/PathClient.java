@@ -0,0 +1,142 @@
+package astargazer.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import astargazer.map.WeightedPoint;
+
+/**
+ * A blocking client of a PathServer. Requests can be sent one after another without waiting for their results, and
+ * the results of all of them are then received in the order the server solves them. Sending and receiving may be done
+ * from two different threads, which a client sending more than the server will queue for it needs to do so that the
+ * server is never blocked writing results that are not being read
+ * 
+ * @author Matt Yanos
+ */
+public class PathClient
+{
+    private final SocketChannel channel;
+
+    /**
+     * Buffer the response frames are read into
+     */
+    private ByteBuffer readBuffer = ByteBuffer.allocate(1 << 12);
+
+    /**
+     * Connect to a server on the specified port of the loopback address
+     * 
+     * @param port
+     * @throws IOException
+     */
+    public PathClient(int port) throws IOException
+    {
+        this.channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * Send a batch of queries to be solved on one map
+     * 
+     * @param requestId
+     *            an id of the client's choosing returned with each result
+     * @param mapId
+     *            the index of the map on the server
+     * @param heuristic
+     *            the index of the heuristic in HeuristicScheme.getAllHeuristics()
+     * @param neighborSelector
+     *            the index of the neighbor selector in NeighborSelector.getAllNeighborSelectors()
+     * @param queries
+     *            the start row, start column, goal row, and goal column of each query, for at most
+     *            PathServer.MAX_PENDING_QUERIES queries
+     * @throws IOException
+     */
+    public synchronized void send(int requestId, int mapId, int heuristic, int neighborSelector, int[] queries) throws IOException
+    {
+        if (queries.length % 4 != 0)
+            throw new IllegalArgumentException("Each query needs four values");
+        if (queries.length / 4 > PathServer.MAX_PENDING_QUERIES)
+            throw new IllegalArgumentException("A request holds at most " + PathServer.MAX_PENDING_QUERIES + " queries, not " + queries.length / 4);
+
+        ByteBuffer frame = ByteBuffer.allocate(4 + PathServer.REQUEST_HEADER_SIZE + queries.length * 4);
+        frame.putInt(PathServer.REQUEST_HEADER_SIZE + queries.length * 4);
+        frame.putInt(requestId);
+        frame.putInt(mapId);
+        frame.put((byte)heuristic);
+        frame.put((byte)neighborSelector);
+        frame.putInt(queries.length / 4);
+        for (int value : queries)
+        {
+            frame.putInt(value);
+        }
+        frame.flip();
+
+        while (frame.hasRemaining())
+        {
+            channel.write(frame);
+        }
+    }
+
+    /**
+     * Wait for the next result
+     * 
+     * @return result
+     * @throws IOException
+     */
+    public PathResult receive() throws IOException
+    {
+        int length = readFully(4).getInt();
+        ByteBuffer frame = readFully(length);
+
+        int requestId = frame.getInt();
+        int queryIndex = frame.getInt();
+        byte status = frame.get();
+        float cost = frame.getFloat();
+        int expanded = frame.getInt();
+        int points = frame.getInt();
+        List<WeightedPoint> path = new ArrayList<WeightedPoint>(points);
+        for (int i = 0; i < points; i++)
+        {
+            path.add(new WeightedPoint(frame.getInt(), frame.getInt()));
+        }
+        return new PathResult(requestId, queryIndex, status, cost, expanded, path);
+    }
+
+    /**
+     * Read exactly the specified number of bytes
+     * 
+     * @param bytes
+     * @return the bytes, ready to be read
+     * @throws IOException
+     */
+    private ByteBuffer readFully(int bytes) throws IOException
+    {
+        if (readBuffer.capacity() < bytes)
+        {
+            readBuffer = ByteBuffer.allocate(bytes);
+        }
+        readBuffer.clear().limit(bytes);
+        while (readBuffer.hasRemaining())
+        {
+            if (channel.read(readBuffer) < 0)
+                throw new EOFException("The server closed the connection");
+        }
+        readBuffer.flip();
+        return readBuffer;
+    }
+
+    /**
+     * Close the connection
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
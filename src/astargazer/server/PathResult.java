@@ -0,0 +1,105 @@
+package astargazer.server;
+
+import java.util.List;
+
+import astargazer.map.WeightedPoint;
+
+/**
+ * The answer from a PathServer to one query of a request
+ * 
+ * @author Matt Yanos
+ */
+public class PathResult
+{
+    private final int requestId;
+
+    private final int queryIndex;
+
+    private final byte status;
+
+    private final float cost;
+
+    private final int expanded;
+
+    private final List<WeightedPoint> path;
+
+    /**
+     * Construct a PathResult
+     * 
+     * @param requestId
+     * @param queryIndex
+     * @param status
+     * @param cost
+     * @param expanded
+     * @param path
+     */
+    public PathResult(int requestId, int queryIndex, byte status, float cost, int expanded, List<WeightedPoint> path)
+    {
+        this.requestId = requestId;
+        this.queryIndex = queryIndex;
+        this.status = status;
+        this.cost = cost;
+        this.expanded = expanded;
+        this.path = path;
+    }
+
+    /**
+     * Get the id of the request the query was sent in
+     * 
+     * @return request id
+     */
+    public int getRequestId()
+    {
+        return requestId;
+    }
+
+    /**
+     * Get the index of the query within its request
+     * 
+     * @return query index
+     */
+    public int getQueryIndex()
+    {
+        return queryIndex;
+    }
+
+    /**
+     * Get the status, PathServer.STATUS_FOUND, STATUS_NOT_FOUND, or STATUS_INVALID
+     * 
+     * @return status
+     */
+    public byte getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Get the cost of the path, or 0 if no path was found
+     * 
+     * @return cost
+     */
+    public float getCost()
+    {
+        return cost;
+    }
+
+    /**
+     * Get the number of cells the search expanded
+     * 
+     * @return expanded
+     */
+    public int getExpanded()
+    {
+        return expanded;
+    }
+
+    /**
+     * Get the path from the start to the goal, which is empty if no path was found
+     * 
+     * @return path
+     */
+    public List<WeightedPoint> getPath()
+    {
+        return path;
+    }
+}
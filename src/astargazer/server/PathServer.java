@@ -0,0 +1,633 @@
+package astargazer.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import astargazer.PathFinder;
+import astargazer.StatusEnum;
+import astargazer.map.TileMap;
+import astargazer.map.TileMapFile;
+import astargazer.map.WeightedPoint;
+import astargazer.map.heuristic.HeuristicScheme;
+import astargazer.map.neighbor.NeighborSelector;
+
+/**
+ * A standalone path finding server that holds one copy of each of its maps and answers batches of start and goal
+ * queries from any number of local clients, so that game processes share one warmed up JVM instead of each loading the
+ * maps and the path finder themselves.
+ * 
+ * Clients connect over TCP on the loopback address. Every message in both directions is a frame of a big-endian int
+ * byte length followed by that many bytes. A request frame holds the ints request id and map id, the bytes heuristic
+ * and neighbor selector (indexes into HeuristicScheme.getAllHeuristics() and NeighborSelector.getAllNeighborSelectors()),
+ * the int query count, and for each query the ints start row, start column, goal row, and goal column. Each query is
+ * solved on its own by the worker pool and answered with a response frame as soon as it is solved, so responses arrive
+ * in the order they complete: the ints request id and query index, the byte status (STATUS_FOUND, STATUS_NOT_FOUND, or
+ * STATUS_INVALID), the float path cost, the int number of expanded cells, the int number of path points, and the row and
+ * column ints of each point from the start to the goal.
+ * 
+ * A client may send any number of requests of up to MAX_PENDING_QUERIES queries each without waiting for responses. A
+ * single selector thread does all of the socket reading and writing without blocking, and stops taking requests from a
+ * client while it has MAX_PENDING_QUERIES queries unsolved or MAX_QUEUED_BYTES of responses it has not read. Requests
+ * already read are left buffered and the client is not read from, which pushes back on it through the socket until it
+ * catches up
+ * 
+ * @author Matt Yanos
+ */
+public class PathServer implements Runnable
+{
+    /**
+     * The port the server listens on when none is specified
+     */
+    public static final int DEFAULT_PORT = 7077;
+
+    /**
+     * The number of unsolved queries from a client at which the server stops taking its requests, which is also the
+     * most queries a single request may hold
+     */
+    public static final int MAX_PENDING_QUERIES = 4096;
+
+    /**
+     * The number of response bytes waiting to be written to a client above which the server stops reading its requests
+     */
+    public static final int MAX_QUEUED_BYTES = 1 << 22;
+
+    /**
+     * Status of a query whose path was found
+     */
+    public static final byte STATUS_FOUND = 0;
+
+    /**
+     * Status of a query with no path between its points
+     */
+    public static final byte STATUS_NOT_FOUND = 1;
+
+    /**
+     * Status of a query naming a map, heuristic, neighbor selector, or point that does not exist
+     */
+    public static final byte STATUS_INVALID = 2;
+
+    /**
+     * The number of bytes of a request before its queries
+     */
+    static final int REQUEST_HEADER_SIZE = 14;
+
+    /**
+     * The number of bytes of each query of a request
+     */
+    static final int QUERY_SIZE = 16;
+
+    /**
+     * The number of bytes of a response before its path points
+     */
+    static final int RESPONSE_HEADER_SIZE = 21;
+
+    /**
+     * The largest frame accepted from a client, a request of MAX_PENDING_QUERIES queries. A larger length closes the
+     * connection
+     */
+    public static final int MAX_FRAME_SIZE = REQUEST_HEADER_SIZE + MAX_PENDING_QUERIES * QUERY_SIZE;
+
+    /**
+     * The maps that can be searched, by map id
+     */
+    private final TileMap[] maps;
+
+    /**
+     * The pool solving the queries
+     */
+    private final ExecutorService workers;
+
+    /**
+     * The path finders, heuristics, and neighbor selectors of each worker thread
+     */
+    private final ThreadLocal<Worker> worker = new ThreadLocal<Worker>()
+    {
+        @Override
+        protected Worker initialValue()
+        {
+            return new Worker();
+        }
+    };
+
+    private final Selector selector;
+
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * Connections with responses queued or pending queries solved since the selector thread last looked at them
+     */
+    private final ConcurrentLinkedQueue<Connection> updated = new ConcurrentLinkedQueue<Connection>();
+
+    private volatile boolean running = true;
+
+    /**
+     * Construct a server for the specified maps listening on the specified port of the loopback address
+     * 
+     * @param maps
+     *            the maps, whose map ids are their indexes
+     * @param port
+     *            the port, or 0 for any free port
+     * @param threads
+     *            the number of worker threads solving queries
+     * @throws IOException
+     */
+    public PathServer(TileMap[] maps, int port, int threads) throws IOException
+    {
+        this.maps = maps;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Get the port the server is listening on
+     * 
+     * @return port
+     * @throws IOException
+     */
+    public int getPort() throws IOException
+    {
+        return ((InetSocketAddress)serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Serve clients until close() is called
+     */
+    @Override
+    public void run()
+    {
+        try
+        {
+            while (running)
+            {
+                selector.select();
+
+                Connection connection;
+                while ((connection = updated.poll()) != null)
+                {
+                    connection.updated.set(false);
+                    try
+                    {
+                        connection.updateInterest();
+                    }
+                    catch (IOException e)
+                    {
+                        connection.close();
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+
+                    if (key.isAcceptable())
+                    {
+                        accept();
+                        continue;
+                    }
+
+                    connection = (Connection)key.attachment();
+                    try
+                    {
+                        if (key.isReadable())
+                            connection.read();
+                        if (key.isValid() && key.isWritable())
+                            connection.write();
+                        if (key.isValid())
+                            connection.updateInterest();
+                    }
+                    catch (IOException e)
+                    {
+                        connection.close();
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            workers.shutdownNow();
+            for (SelectionKey key : selector.keys())
+            {
+                if (key.attachment() instanceof Connection)
+                    ((Connection)key.attachment()).close();
+            }
+            try
+            {
+                serverChannel.close();
+                selector.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stop serving, closing every connection
+     */
+    public void close()
+    {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Accept a waiting client
+     * 
+     * @throws IOException
+     */
+    private void accept() throws IOException
+    {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    /**
+     * Solve a query and write its response
+     * 
+     * @return response frame
+     */
+    private ByteBuffer solve(int requestId, int queryIndex, int mapId, int heuristic, int neighborSelector, int startRow, int startCol, int goalRow, int goalCol)
+    {
+        Worker w = worker.get();
+        if (mapId < 0 || mapId >= maps.length || heuristic >= w.heuristics.length || neighborSelector >= w.neighborSelectors.length)
+            return createResponse(requestId, queryIndex, STATUS_INVALID, 0, 0, null);
+
+        TileMap map = maps[mapId];
+        if (!isOnMap(map, startRow, startCol) || !isOnMap(map, goalRow, goalCol))
+            return createResponse(requestId, queryIndex, STATUS_INVALID, 0, 0, null);
+
+        if (!map.isTraversable(startRow, startCol) || !map.isTraversable(goalRow, goalCol))
+            return createResponse(requestId, queryIndex, STATUS_NOT_FOUND, 0, 0, null);
+
+        TileMap query = map.withEndPoints(new WeightedPoint(startRow, startCol), new WeightedPoint(goalRow, goalCol));
+        PathFinder pf = w.pathFinders[mapId];
+        if (pf == null)
+        {
+            pf = new PathFinder(query);
+            w.pathFinders[mapId] = pf;
+        }
+        pf.reset(query, w.heuristics[heuristic], w.neighborSelectors[neighborSelector]);
+
+        if (pf.solve() != StatusEnum.COMPLETED_FOUND)
+            return createResponse(requestId, queryIndex, STATUS_NOT_FOUND, 0, pf.getStats().getExpanded(), null);
+
+        List<WeightedPoint> path = pf.getPath();
+        return createResponse(requestId, queryIndex, STATUS_FOUND, path.get(0).getFromCost(), pf.getStats().getExpanded(), path);
+    }
+
+    /**
+     * Whether the specified tile is on the map
+     */
+    private static boolean isOnMap(TileMap map, int row, int col)
+    {
+        return row >= 0 && col >= 0 && row < map.getRows() && col < map.getCols();
+    }
+
+    /**
+     * Write a response frame
+     * 
+     * @param path
+     *            from the goal back to the start as returned by PathFinder.getPath(), or null
+     * @return frame, ready to be written
+     */
+    private static ByteBuffer createResponse(int requestId, int queryIndex, byte status, float cost, long expanded, List<WeightedPoint> path)
+    {
+        int points = path == null ? 0 : path.size();
+        ByteBuffer frame = ByteBuffer.allocate(4 + RESPONSE_HEADER_SIZE + points * 8);
+        frame.putInt(RESPONSE_HEADER_SIZE + points * 8);
+        frame.putInt(requestId);
+        frame.putInt(queryIndex);
+        frame.put(status);
+        frame.putFloat(cost);
+        frame.putInt((int)Math.min(Integer.MAX_VALUE, expanded));
+        frame.putInt(points);
+        for (int i = points - 1; i >= 0; i--)
+        {
+            frame.putInt(path.get(i).getRow());
+            frame.putInt(path.get(i).getCol());
+        }
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * The state kept by each worker thread, which is reused by every query the thread solves. Each map has its own
+     * path finder so that the per cell arrays sized for it are kept between queries
+     */
+    private class Worker
+    {
+        private final PathFinder[] pathFinders = new PathFinder[maps.length];
+
+        private final HeuristicScheme[] heuristics = HeuristicScheme.getAllHeuristics();
+
+        private final NeighborSelector[] neighborSelectors = NeighborSelector.getAllNeighborSelectors();
+    }
+
+    /**
+     * A client connection. Reading, writing, and interest changes happen on the selector thread, while the worker
+     * threads only queue responses and mark the connection as updated
+     */
+    private class Connection
+    {
+        private final SocketChannel channel;
+
+        private SelectionKey key;
+
+        /**
+         * Bytes read that do not yet make up a whole frame
+         */
+        private ByteBuffer readBuffer = ByteBuffer.allocate(1 << 16);
+
+        /**
+         * Response frames waiting to be written, in the order their queries were solved
+         */
+        private final ConcurrentLinkedQueue<ByteBuffer> responses = new ConcurrentLinkedQueue<ByteBuffer>();
+
+        /**
+         * The response frame being written
+         */
+        private ByteBuffer writing;
+
+        /**
+         * The number of queries read but not yet solved
+         */
+        private final AtomicInteger pendingQueries = new AtomicInteger();
+
+        /**
+         * The number of response bytes solved but not yet written
+         */
+        private final AtomicLong queuedBytes = new AtomicLong();
+
+        /**
+         * Whether the connection is on the updated queue
+         */
+        private final AtomicBoolean updated = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        public Connection(SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        /**
+         * Read what the client has sent and hand its whole request frames to the workers
+         * 
+         * @throws IOException
+         */
+        private void read() throws IOException
+        {
+            if (channel.read(readBuffer) < 0)
+            {
+                close();
+                return;
+            }
+            dispatch();
+        }
+
+        /**
+         * Hand the whole request frames in the read buffer to the workers while the client is within its limits, leaving
+         * the rest buffered until its pending queries are solved and its responses are read
+         * 
+         * @throws IOException
+         */
+        private void dispatch() throws IOException
+        {
+            readBuffer.flip();
+            while (readBuffer.remaining() >= 4 && isWithinLimits())
+            {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < REQUEST_HEADER_SIZE || length > MAX_FRAME_SIZE)
+                    throw new IOException("Invalid frame length " + length);
+                if (readBuffer.remaining() < 4 + length)
+                {
+                    if (readBuffer.capacity() < 4 + length)
+                    {
+                        // Grow to fit the whole frame
+                        ByteBuffer grown = ByteBuffer.allocate(4 + length);
+                        grown.put(readBuffer);
+                        readBuffer = grown;
+                        return;
+                    }
+                    break;
+                }
+
+                readBuffer.getInt();
+                int end = readBuffer.position() + length;
+                handleRequest(readBuffer, end);
+                readBuffer.position(end);
+            }
+            readBuffer.compact();
+        }
+
+        /**
+         * Submit every query of the request frame that ends at the specified position of the buffer
+         * 
+         * @param frame
+         * @param end
+         * @throws IOException
+         */
+        private void handleRequest(ByteBuffer frame, int end) throws IOException
+        {
+            final int requestId = frame.getInt();
+            final int mapId = frame.getInt();
+            final int heuristic = frame.get() & 0xFF;
+            final int neighborSelector = frame.get() & 0xFF;
+            final int count = frame.getInt();
+            if (count < 0 || count > MAX_PENDING_QUERIES || end - frame.position() != (long)count * QUERY_SIZE)
+                throw new IOException("Invalid query count " + count);
+
+            for (int i = 0; i < count; i++)
+            {
+                final int queryIndex = i;
+                final int startRow = frame.getInt();
+                final int startCol = frame.getInt();
+                final int goalRow = frame.getInt();
+                final int goalCol = frame.getInt();
+
+                pendingQueries.incrementAndGet();
+                workers.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        ByteBuffer response;
+                        try
+                        {
+                            response = solve(requestId, queryIndex, mapId, heuristic, neighborSelector, startRow, startCol, goalRow, goalCol);
+                        }
+                        catch (RuntimeException e)
+                        {
+                            response = createResponse(requestId, queryIndex, STATUS_INVALID, 0, 0, null);
+                        }
+                        respond(response);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Queue a response frame from a worker thread and wake the selector thread to write it
+         * 
+         * @param response
+         */
+        private void respond(ByteBuffer response)
+        {
+            if (!closed)
+            {
+                queuedBytes.addAndGet(response.remaining());
+                responses.add(response);
+            }
+            pendingQueries.decrementAndGet();
+
+            if (updated.compareAndSet(false, true))
+            {
+                PathServer.this.updated.add(this);
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Write as many queued responses as the socket will take without blocking
+         * 
+         * @throws IOException
+         */
+        private void write() throws IOException
+        {
+            while (true)
+            {
+                if (writing == null)
+                {
+                    writing = responses.poll();
+                    if (writing == null)
+                        return;
+                }
+
+                channel.write(writing);
+                if (writing.hasRemaining())
+                    return;
+
+                queuedBytes.addAndGet(-writing.limit());
+                writing = null;
+            }
+        }
+
+        /**
+         * Whether the client has few enough queries unsolved and responses unread for more of its requests to be taken
+         * 
+         * @return within limits
+         */
+        private boolean isWithinLimits()
+        {
+            return pendingQueries.get() < MAX_PENDING_QUERIES && queuedBytes.get() < MAX_QUEUED_BYTES;
+        }
+
+        /**
+         * Read only while the client is within its limits, and write only while there is something to write. Requests
+         * left buffered when the client went over its limits are taken first, since the socket will not report them as
+         * readable again
+         * 
+         * @throws IOException
+         */
+        private void updateInterest() throws IOException
+        {
+            if (closed || !key.isValid())
+                return;
+
+            if (readBuffer.position() > 0 && isWithinLimits())
+            {
+                dispatch();
+            }
+
+            boolean readable = isWithinLimits();
+            boolean writable = writing != null || !responses.isEmpty();
+            key.interestOps((readable ? SelectionKey.OP_READ : 0) | (writable ? SelectionKey.OP_WRITE : 0));
+        }
+
+        /**
+         * Close the connection, dropping any responses still to be written
+         */
+        private void close()
+        {
+            closed = true;
+            if (key != null)
+                key.cancel();
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                // Already closed
+            }
+            responses.clear();
+        }
+    }
+
+    /**
+     * Run the server on the maps in the specified tile map files
+     * 
+     * @param args
+     *            [port] followed by one or more tile map files, whose map ids are the order they are listed in
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int first = 0;
+        int port = DEFAULT_PORT;
+        if (args.length > 0 && args[0].matches("\\d+"))
+        {
+            port = Integer.parseInt(args[0]);
+            first = 1;
+        }
+
+        if (args.length <= first)
+        {
+            System.err.println("Usage: server [port] <tile map file>...");
+            return;
+        }
+
+        TileMap[] maps = new TileMap[args.length - first];
+        for (int i = 0; i < maps.length; i++)
+        {
+            maps[i] = TileMapFile.open(new File(args[first + i]));
+        }
+
+        PathServer server = new PathServer(maps, port, Runtime.getRuntime().availableProcessors());
+        System.out.println("Serving " + maps.length + " map(s) on port " + server.getPort());
+        server.run();
+    }
+}